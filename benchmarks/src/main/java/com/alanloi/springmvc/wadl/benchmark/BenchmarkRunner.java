@@ -0,0 +1,31 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with the GC profiler, so the allocation rate per
+ * operation is reported along with the throughput/time.
+ *
+ * Equivalent to <code>java -jar target/benchmarks.jar -prof gc</code>. An
+ * optional argument restricts the benchmarks to those matching a regexp.
+ *
+ * @author Alan Loi
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*")
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,54 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import java.util.Collections;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.WadlGenerator;
+import com.alanloi.springmvc.wadl.WadlGeneratorOptions;
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+
+/**
+ * Reports the retained heap size of a generated WadlApplication with and
+ * without interning of identical params, representations, docs and QNames.
+ *
+ * Not a JMH benchmark as it measures space rather than time - run with
+ * <code>java -cp target/benchmarks.jar com.alanloi.springmvc.wadl.benchmark.RetainedSizeReport</code>.
+ *
+ * @author Alan Loi
+ */
+public final class RetainedSizeReport {
+
+	private static final int[] HANDLER_METHODS = { 100, 1000, 10000 };
+
+	private RetainedSizeReport() {
+	}
+
+	public static void main(String[] args) {
+		System.out.println(String.format("%16s %16s %16s %8s", "handler methods", "duplicated (B)", "interned (B)",
+				"saved"));
+
+		for (int handlerMethods : HANDLER_METHODS) {
+			RequestMappingHandlerMapping handlerMapping = SyntheticHandlerMappings.create(handlerMethods);
+
+			long duplicated = retainedSize(handlerMapping, false);
+			long interned = retainedSize(handlerMapping, true);
+
+			System.out.println(String.format("%16d %16d %16d %7.1f%%", handlerMethods, duplicated, interned,
+					100d * (duplicated - interned) / duplicated));
+		}
+	}
+
+	private static long retainedSize(RequestMappingHandlerMapping handlerMapping, boolean interning) {
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+		options.setInterning(interning);
+
+		WadlApplication application = WadlGenerator.generate(handlerMapping, "http://localhost:8080/app",
+				"benchmark", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), options);
+
+		return GraphLayout.parseInstance(application).totalSize();
+	}
+}
@@ -0,0 +1,37 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Controller whose methods back the synthetic request mappings. The
+ * <code>@RequestMapping</code>s are created by
+ * {@link SyntheticHandlerMappings} rather than declared here, for copies of
+ * this class defined by {@link SyntheticControllerClassLoader}.
+ *
+ * @author Alan Loi
+ */
+public class SyntheticController {
+
+	public Map<String, Object> get(@PathVariable("id") Long id) {
+		return Collections.emptyMap();
+	}
+
+	public List<Map<String, Object>> find(@RequestParam("q") String query,
+			@RequestParam(value = "page", required = false, defaultValue = "1") Integer page,
+			@RequestParam(value = "size", required = false, defaultValue = "20") Integer size) {
+		return Collections.emptyList();
+	}
+
+	public void update(@PathVariable("id") Long id, @RequestParam("amount") BigDecimal amount,
+			@RequestParam(value = "force", defaultValue = "false") Boolean force) {
+	}
+
+	public void delete(@PathVariable("id") Long id) {
+	}
+}
@@ -0,0 +1,155 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Defines copies of {@link SyntheticController} under other names, so each
+ * synthetic resource has its own controller class and handler methods, as
+ * in a real API. The class files of the copies are served as resources for
+ * the parameter name discovery.
+ *
+ * A copy is the class file of SyntheticController with its name replaced in
+ * the constant pool; the rest of the class file refers to the constant pool
+ * by index, so it stays the same.
+ *
+ * @author Alan Loi
+ */
+class SyntheticControllerClassLoader extends ClassLoader {
+
+	private static final String TEMPLATE_NAME = SyntheticController.class.getName();
+
+	private static final String TEMPLATE_INTERNAL_NAME = TEMPLATE_NAME.replace('.', '/');
+
+	private final byte[] template;
+
+	/** Class files of the copies, by resource name. */
+	private final Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+
+	SyntheticControllerClassLoader() {
+		super(SyntheticController.class.getClassLoader());
+		this.template = readClassFile(SyntheticController.class);
+	}
+
+	/**
+	 * Define a copy of SyntheticController.
+	 *
+	 * @param index distinguishes the copy
+	 * @return the controller class, named <code>SyntheticController&lt;index&gt;</code>
+	 */
+	synchronized Class<?> defineController(int index) {
+		String internalName = TEMPLATE_INTERNAL_NAME + index;
+		byte[] classFile = rename(this.template, TEMPLATE_INTERNAL_NAME, internalName);
+
+		this.classFiles.put(internalName + ".class", classFile);
+		return defineClass(TEMPLATE_NAME + index, classFile, 0, classFile.length);
+	}
+
+	@Override
+	public InputStream getResourceAsStream(String name) {
+		byte[] classFile;
+		synchronized (this) {
+			classFile = this.classFiles.get(name);
+		}
+		return (classFile != null ? new ByteArrayInputStream(classFile) : super.getResourceAsStream(name));
+	}
+
+	private static byte[] readClassFile(Class<?> clazz) {
+		InputStream in = clazz.getResourceAsStream(clazz.getSimpleName() + ".class");
+		if (in == null) {
+			throw new IllegalStateException("Class file not found: " + clazz.getName());
+		}
+
+		try {
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+					out.write(buffer, 0, read);
+				}
+				return out.toByteArray();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read class file: " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Replace a name in the UTF8 constants of a class file, i.e. in the class
+	 * name and the descriptors which refer to the class.
+	 */
+	private static byte[] rename(byte[] classFile, String name, String newName) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(classFile.length + 16);
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			// magic, minor and major version
+			out.writeInt(in.readInt());
+			out.writeInt(in.readInt());
+
+			int constantPoolCount = in.readUnsignedShort();
+			out.writeShort(constantPoolCount);
+			for (int i = 1; i < constantPoolCount; i++) {
+				int tag = in.readUnsignedByte();
+				out.writeByte(tag);
+				if (tag == 1) {
+					out.writeUTF(in.readUTF().replace(name, newName));
+				} else {
+					copy(in, out, getConstantSize(tag));
+					if (tag == 5 || tag == 6) {
+						// a long or double takes two entries
+						i++;
+					}
+				}
+			}
+
+			// the rest of the class file
+			copy(in, out, in.available());
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not rename class file", e);
+		}
+	}
+
+	private static int getConstantSize(int tag) {
+		switch (tag) {
+		case 7: // Class
+		case 8: // String
+		case 16: // MethodType
+		case 19: // Module
+		case 20: // Package
+			return 2;
+		case 15: // MethodHandle
+			return 3;
+		case 3: // Integer
+		case 4: // Float
+		case 9: // Fieldref
+		case 10: // Methodref
+		case 11: // InterfaceMethodref
+		case 12: // NameAndType
+		case 17: // Dynamic
+		case 18: // InvokeDynamic
+			return 4;
+		case 5: // Long
+		case 6: // Double
+			return 8;
+		default:
+			throw new IllegalStateException("Unknown constant pool tag: " + tag);
+		}
+	}
+
+	private static void copy(DataInputStream in, DataOutputStream out, int length) throws IOException {
+		byte[] buffer = new byte[length];
+		in.readFully(buffer);
+		out.write(buffer);
+	}
+}
@@ -0,0 +1,102 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.condition.ConsumesRequestCondition;
+import org.springframework.web.servlet.mvc.condition.PatternsRequestCondition;
+import org.springframework.web.servlet.mvc.condition.ProducesRequestCondition;
+import org.springframework.web.servlet.mvc.condition.RequestMethodsRequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Creates RequestMappingHandlerMappings with any number of handler methods,
+ * without starting an application context.
+ *
+ * @author Alan Loi
+ */
+public final class SyntheticHandlerMappings {
+
+	private SyntheticHandlerMappings() {
+	}
+
+	/**
+	 * Create a handler mapping. Every fourth handler method starts a new
+	 * resource, with GET/PUT/DELETE on <code>/resourceN/{id}</code> and a
+	 * GET on <code>/resourceN</code>.
+	 *
+	 * Each resource has its own controller class, a copy of
+	 * {@link SyntheticController}, so the per-class and per-method work of
+	 * the generator (parameter name discovery, type resolution) is done for
+	 * every handler method, as for a real API of that size.
+	 *
+	 * @param handlerMethodCount the number of handler methods
+	 * @return the handler mapping
+	 */
+	public static RequestMappingHandlerMapping create(int handlerMethodCount) {
+		SyntheticControllerClassLoader classLoader = new SyntheticControllerClassLoader();
+
+		final Map<RequestMappingInfo, HandlerMethod> handlerMethods =
+				new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+
+		for (int i = 0; handlerMethods.size() < handlerMethodCount; i++) {
+			String path = "/resource" + i;
+
+			Object controller = newController(classLoader, i);
+			HandlerMethod get = handlerMethod(controller, "get", Long.class);
+			HandlerMethod find = handlerMethod(controller, "find", String.class, Integer.class, Integer.class);
+			HandlerMethod update = handlerMethod(controller, "update", Long.class, BigDecimal.class, Boolean.class);
+			HandlerMethod delete = handlerMethod(controller, "delete", Long.class);
+
+			handlerMethods.put(mapping(path + "/{id}", RequestMethod.GET, null, "application/json"), get);
+			if (handlerMethods.size() < handlerMethodCount) {
+				handlerMethods.put(mapping(path, RequestMethod.GET, null, "application/json"), find);
+			}
+			if (handlerMethods.size() < handlerMethodCount) {
+				handlerMethods.put(mapping(path + "/{id}", RequestMethod.PUT, "application/json", null), update);
+			}
+			if (handlerMethods.size() < handlerMethodCount) {
+				handlerMethods.put(mapping(path + "/{id}", RequestMethod.DELETE, null, null), delete);
+			}
+		}
+
+		return new RequestMappingHandlerMapping() {
+			@Override
+			public Map<RequestMappingInfo, HandlerMethod> getHandlerMethods() {
+				return Collections.unmodifiableMap(handlerMethods);
+			}
+		};
+	}
+
+	private static Object newController(SyntheticControllerClassLoader classLoader, int index) {
+		try {
+			return classLoader.defineController(index).newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static RequestMappingInfo mapping(String pattern, RequestMethod method, String consumes,
+			String produces) {
+		return new RequestMappingInfo(new PatternsRequestCondition(pattern), new RequestMethodsRequestCondition(
+				method), null, null, (consumes != null ? new ConsumesRequestCondition(consumes) : null),
+				(produces != null ? new ProducesRequestCondition(produces) : null), null);
+	}
+
+	private static HandlerMethod handlerMethod(Object controller, String methodName, Class<?>... parameterTypes) {
+		try {
+			Method method = controller.getClass().getMethod(methodName, parameterTypes);
+			return new HandlerMethod(controller, method);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
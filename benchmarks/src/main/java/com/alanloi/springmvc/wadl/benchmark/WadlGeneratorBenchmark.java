@@ -0,0 +1,106 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.WadlGenerator;
+import com.alanloi.springmvc.wadl.WadlGeneratorOptions;
+import com.alanloi.springmvc.wadl.WadlMarshaller;
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+
+/**
+ * Benchmarks WadlGenerator.generate and the JAXB marshalling of its result
+ * for synthetic handler mappings of different sizes.
+ *
+ * @author Alan Loi
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WadlGeneratorBenchmark {
+
+	private static final String BASE_URL = "http://localhost:8080/app";
+
+	@Param({ "100", "1000", "10000" })
+	private int handlerMethods;
+
+	private RequestMappingHandlerMapping handlerMapping;
+	private WadlTypeMapper wadlTypeMapper;
+	private List<Class<?>> ignoreControllers;
+	private WadlGeneratorOptions options;
+
+	private JAXBContext jaxbContext;
+	private WadlMarshaller wadlMarshaller;
+	private WadlApplication application;
+
+	@Setup
+	public void setUp() throws JAXBException {
+		this.handlerMapping = SyntheticHandlerMappings.create(this.handlerMethods);
+		this.wadlTypeMapper = new JsonBasedWadlTypeMapper();
+		this.ignoreControllers = Collections.emptyList();
+		this.options = new WadlGeneratorOptions();
+
+		this.jaxbContext = JAXBContext.newInstance(WadlApplication.class);
+		this.wadlMarshaller = new WadlMarshaller();
+		this.application = generate();
+	}
+
+	@Benchmark
+	public WadlApplication generate() {
+		return WadlGenerator.generate(this.handlerMapping, BASE_URL, "benchmark", this.ignoreControllers,
+				this.wadlTypeMapper, this.options);
+	}
+
+	@Benchmark
+	public byte[] marshal() throws JAXBException {
+		return marshal(this.application);
+	}
+
+	/**
+	 * Marshals with a pooled, preconfigured Marshaller rather than creating
+	 * one per call.
+	 */
+	@Benchmark
+	public byte[] marshalPooled() {
+		return this.wadlMarshaller.toBytes(this.application);
+	}
+
+	@Benchmark
+	public byte[] generateAndMarshal() throws JAXBException {
+		return marshal(generate());
+	}
+
+	private byte[] marshal(WadlApplication wadlApplication) throws JAXBException {
+		Marshaller marshaller = this.jaxbContext.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+		marshaller.marshal(wadlApplication, bytes);
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,103 @@
+package com.alanloi.springmvc.wadl.benchmark;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+
+/**
+ * Benchmarks AbstractWadlTypeMapper.getWadlType for a direct match, a super
+ * class match, an interface match and a miss - both with the per-class cache
+ * and without it.
+ *
+ * @author Alan Loi
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WadlTypeMapperBenchmark {
+
+	private UncachedJsonWadlTypeMapper mapper;
+
+	@Setup
+	public void setUp() {
+		this.mapper = new UncachedJsonWadlTypeMapper();
+	}
+
+	@Benchmark
+	public QName direct() {
+		return this.mapper.getWadlType(String.class);
+	}
+
+	@Benchmark
+	public QName superclass() {
+		return this.mapper.getWadlType(MegaInteger.class);
+	}
+
+	@Benchmark
+	public QName iface() {
+		return this.mapper.getWadlType(ArrayList.class);
+	}
+
+	@Benchmark
+	public QName miss() {
+		return this.mapper.getWadlType(Runnable.class);
+	}
+
+	@Benchmark
+	public QName directUncached() {
+		return this.mapper.resolveWadlType(String.class);
+	}
+
+	@Benchmark
+	public QName superclassUncached() {
+		return this.mapper.resolveWadlType(MegaInteger.class);
+	}
+
+	@Benchmark
+	public QName ifaceUncached() {
+		return this.mapper.resolveWadlType(ArrayList.class);
+	}
+
+	@Benchmark
+	public QName missUncached() {
+		return this.mapper.resolveWadlType(Runnable.class);
+	}
+
+	/**
+	 * Exposes the uncached resolution.
+	 */
+	static class UncachedJsonWadlTypeMapper extends JsonBasedWadlTypeMapper {
+
+		@Override
+		public QName resolveWadlType(Class<?> javaType) {
+			return super.resolveWadlType(javaType);
+		}
+	}
+
+	static class MegaInteger extends BigInteger {
+
+		private static final long serialVersionUID = 1L;
+
+		public MegaInteger() {
+			super("1");
+		}
+	}
+}
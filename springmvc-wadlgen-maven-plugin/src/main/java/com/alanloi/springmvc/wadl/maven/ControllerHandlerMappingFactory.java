@@ -0,0 +1,62 @@
+package com.alanloi.springmvc.wadl.maven;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Detects the Spring MVC request mappings of the <code>@Controller</code>
+ * classes in a set of packages, without starting the application.
+ *
+ * The controllers are registered as lazy bean definitions and are never
+ * instantiated, so their dependencies don't need to be available.
+ *
+ * @author Alan Loi
+ */
+public class ControllerHandlerMappingFactory {
+
+	private final ClassLoader classLoader;
+
+	public ControllerHandlerMappingFactory(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Scan the packages for controllers and detect their request mappings.
+	 *
+	 * @param basePackages the packages to scan
+	 * @return the request mappings
+	 */
+	public RequestMappingHandlerMapping create(String... basePackages) {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.setClassLoader(this.classLoader);
+
+		ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+		scanner.setResourceLoader(new PathMatchingResourcePatternResolver(this.classLoader));
+		scanner.addIncludeFilter(new AnnotationTypeFilter(Controller.class));
+
+		for (String basePackage : basePackages) {
+			Set<BeanDefinition> candidates = scanner.findCandidateComponents(basePackage);
+			for (BeanDefinition candidate : candidates) {
+				RootBeanDefinition beanDefinition = new RootBeanDefinition();
+				beanDefinition.setBeanClassName(candidate.getBeanClassName());
+				beanDefinition.setLazyInit(true);
+				context.registerBeanDefinition(candidate.getBeanClassName(), beanDefinition);
+			}
+		}
+
+		context.refresh();
+
+		// detects the handler methods of the controllers
+		RequestMappingHandlerMapping handlerMapping = new RequestMappingHandlerMapping();
+		handlerMapping.setApplicationContext(context);
+		return handlerMapping;
+	}
+}
@@ -0,0 +1,222 @@
+package com.alanloi.springmvc.wadl.maven;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.WadlGenerator;
+import com.alanloi.springmvc.wadl.WadlGeneratorOptions;
+import com.alanloi.springmvc.wadl.WadlMarshaller;
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.XmlBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.web.WadlDocumentTemplate;
+
+/**
+ * Generates the WADL of the project's Spring MVC controllers at build time
+ * and writes it into the build output, to be served by
+ * <code>PrebuiltWadlServlet</code>.
+ *
+ * Unless a base URL is configured, the base URL is written as a
+ * placeholder which is replaced with the real base URL when the WADL is
+ * served. The servlet then compresses each rendered document itself, so a
+ * gzip copy is only written for a configured base URL.
+ *
+ * @goal generate
+ * @phase process-classes
+ * @requiresDependencyResolution compile
+ * @threadSafe
+ *
+ * @author Alan Loi
+ */
+public class GenerateWadlMojo extends AbstractMojo {
+
+	/**
+	 * @parameter expression="${project}"
+	 * @required
+	 * @readonly
+	 */
+	private MavenProject project;
+
+	/**
+	 * Packages to scan for <code>@Controller</code> classes.
+	 *
+	 * @parameter
+	 * @required
+	 */
+	private String[] basePackages;
+
+	/**
+	 * Name of the application.
+	 *
+	 * @parameter default-value="${project.name}"
+	 */
+	private String applicationName;
+
+	/**
+	 * Fully qualified names of controller classes to ignore.
+	 *
+	 * @parameter
+	 */
+	private String[] ignoreControllers;
+
+	/**
+	 * The WADL type mapper: <code>json</code>, <code>xml</code> or the fully
+	 * qualified name of a WadlTypeMapper class with a default constructor.
+	 *
+	 * @parameter default-value="json"
+	 */
+	private String wadlTypeMapper;
+
+	/**
+	 * Base URL of the resources. Defaults to a placeholder which is replaced
+	 * when the WADL is served.
+	 *
+	 * @parameter
+	 */
+	private String baseUrl;
+
+	/**
+	 * The WADL file to write. If a base URL is configured, a gzip copy is
+	 * written next to it with a <code>.gz</code> suffix.
+	 *
+	 * @parameter default-value="${project.build.outputDirectory}/META-INF/wadl/application.wadl"
+	 * @required
+	 */
+	private File outputFile;
+
+	public void execute() throws MojoExecutionException {
+		ClassLoader projectClassLoader = createProjectClassLoader();
+
+		Thread thread = Thread.currentThread();
+		ClassLoader originalClassLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(projectClassLoader);
+		try {
+			RequestMappingHandlerMapping handlerMapping = new ControllerHandlerMappingFactory(projectClassLoader)
+					.create(this.basePackages);
+
+			WadlApplication application = WadlGenerator.generate(handlerMapping,
+					(this.baseUrl != null ? this.baseUrl : WadlDocumentTemplate.BASE_URL_PLACEHOLDER),
+					this.applicationName, loadIgnoreControllers(projectClassLoader),
+					createWadlTypeMapper(projectClassLoader), new WadlGeneratorOptions());
+
+			byte[] content = marshal(application);
+			write(this.outputFile, content, false);
+
+			// a document with the placeholder can't be served as is, nor its gzip copy
+			File gzipFile = new File(this.outputFile.getPath() + ".gz");
+			if (this.baseUrl != null) {
+				write(gzipFile, content, true);
+			} else if (gzipFile.exists() && !gzipFile.delete()) {
+				throw new MojoExecutionException("Could not delete stale gzip copy of the WADL: " + gzipFile);
+			}
+
+			getLog().info("Generated WADL with " + handlerMapping.getHandlerMethods().size()
+					+ " request mappings: " + this.outputFile);
+		} finally {
+			thread.setContextClassLoader(originalClassLoader);
+		}
+	}
+
+	/**
+	 * The project classes are loaded in a child of the plugin's class loader,
+	 * so the Spring annotations are shared with the plugin.
+	 */
+	@SuppressWarnings("unchecked")
+	private ClassLoader createProjectClassLoader() throws MojoExecutionException {
+		try {
+			List<String> classpathElements = this.project.getCompileClasspathElements();
+
+			URL[] urls = new URL[classpathElements.size()];
+			for (int i = 0; i < urls.length; i++) {
+				urls[i] = new File(classpathElements.get(i)).toURI().toURL();
+			}
+
+			return new URLClassLoader(urls, getClass().getClassLoader());
+		} catch (DependencyResolutionRequiredException e) {
+			throw new MojoExecutionException("Could not resolve the project classpath", e);
+		} catch (MalformedURLException e) {
+			throw new MojoExecutionException("Invalid project classpath", e);
+		}
+	}
+
+	private List<Class<?>> loadIgnoreControllers(ClassLoader classLoader) throws MojoExecutionException {
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+
+		if (this.ignoreControllers != null) {
+			for (String className : this.ignoreControllers) {
+				classes.add(loadClass(className, classLoader));
+			}
+		}
+
+		return classes;
+	}
+
+	private WadlTypeMapper createWadlTypeMapper(ClassLoader classLoader) throws MojoExecutionException {
+		if ("json".equalsIgnoreCase(this.wadlTypeMapper)) {
+			return new JsonBasedWadlTypeMapper();
+		} else if ("xml".equalsIgnoreCase(this.wadlTypeMapper)) {
+			return new XmlBasedWadlTypeMapper();
+		}
+
+		try {
+			return (WadlTypeMapper) loadClass(this.wadlTypeMapper, classLoader).newInstance();
+		} catch (InstantiationException e) {
+			throw new MojoExecutionException("Could not create WADL type mapper: " + this.wadlTypeMapper, e);
+		} catch (IllegalAccessException e) {
+			throw new MojoExecutionException("Could not create WADL type mapper: " + this.wadlTypeMapper, e);
+		}
+	}
+
+	private static Class<?> loadClass(String className, ClassLoader classLoader) throws MojoExecutionException {
+		try {
+			return Class.forName(className, true, classLoader);
+		} catch (ClassNotFoundException e) {
+			throw new MojoExecutionException("Class not found: " + className, e);
+		}
+	}
+
+	private static byte[] marshal(WadlApplication application) throws MojoExecutionException {
+		try {
+			return new WadlMarshaller().toBytes(application);
+		} catch (IllegalStateException e) {
+			throw new MojoExecutionException("Could not marshal WADL", e);
+		}
+	}
+
+	private static void write(File file, byte[] content, boolean gzip) throws MojoExecutionException {
+		File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new MojoExecutionException("Could not create directory: " + dir);
+		}
+
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				if (gzip) {
+					out = new GZIPOutputStream(out);
+				}
+				out.write(content);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not write WADL: " + file, e);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.alanloi.springmvc.wadl.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.maven.sample.SampleOrderController;
+
+/**
+ * Tests for ControllerHandlerMappingFactory.
+ *
+ * @author Alan Loi
+ */
+public class ControllerHandlerMappingFactoryTest {
+
+	private static final String SAMPLE_PACKAGE = "com.alanloi.springmvc.wadl.maven.sample";
+
+	@Test
+	public void testCreateDetectsControllerMappings() {
+		RequestMappingHandlerMapping handlerMapping = new ControllerHandlerMappingFactory(getClass()
+				.getClassLoader()).create(SAMPLE_PACKAGE);
+
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = handlerMapping.getHandlerMethods();
+		assertEquals(3, handlerMethods.size());
+
+		Set<String> methodNames = new HashSet<String>();
+		Set<String> patterns = new HashSet<String>();
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMethods.entrySet()) {
+			// the controller is only referred to by its bean name, it isn't instantiated
+			assertEquals(SampleOrderController.class, entry.getValue().getBeanType());
+			methodNames.add(entry.getValue().getMethod().getName());
+			patterns.addAll(entry.getKey().getPatternsCondition().getPatterns());
+		}
+
+		assertEquals(3, methodNames.size());
+		assertTrue(patterns.contains("/orders"));
+		assertTrue(patterns.contains("/orders/{id}"));
+	}
+
+	@Test
+	public void testCreateWithoutControllers() {
+		RequestMappingHandlerMapping handlerMapping = new ControllerHandlerMappingFactory(getClass()
+				.getClassLoader()).create("com.alanloi.springmvc.wadl.maven.none");
+
+		assertTrue(handlerMapping.getHandlerMethods().isEmpty());
+	}
+}
@@ -0,0 +1,40 @@
+package com.alanloi.springmvc.wadl.maven.sample;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Sample controller used as a test fixture. Its dependency isn't available,
+ * so it can't be instantiated.
+ *
+ * @author Alan Loi
+ */
+@Controller
+@RequestMapping("/orders")
+public class SampleOrderController {
+
+	public SampleOrderController(Runnable unavailableDependency) {
+		throw new IllegalStateException("Controllers must not be instantiated");
+	}
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = "application/json")
+	public @ResponseBody String getOrder(@PathVariable("id") Long id) {
+		return null;
+	}
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+	public void deleteOrder(@PathVariable Long id) {
+	}
+
+	@RequestMapping(method = RequestMethod.GET, produces = "application/json")
+	public @ResponseBody List<String> findOrders(@RequestParam("q") String query) {
+		return Collections.emptyList();
+	}
+}
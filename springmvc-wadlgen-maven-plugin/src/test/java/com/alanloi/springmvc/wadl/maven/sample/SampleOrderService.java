@@ -0,0 +1,17 @@
+package com.alanloi.springmvc.wadl.maven.sample;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * Not a controller, so its request mapping must not be detected.
+ *
+ * @author Alan Loi
+ */
+@Service
+public class SampleOrderService {
+
+	@RequestMapping("/service")
+	public void handle() {
+	}
+}
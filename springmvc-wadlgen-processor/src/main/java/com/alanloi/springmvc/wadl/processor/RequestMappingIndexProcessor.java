@@ -0,0 +1,276 @@
+package com.alanloi.springmvc.wadl.processor;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Records each <code>@RequestMapping</code> method at compile time, with its
+ * parameter names and types, the attributes of its
+ * <code>@PathVariable</code>/<code>@RequestParam</code> parameters, its
+ * return type and the media types it consumes and produces.
+ *
+ * They're written to a single index in the class output, which
+ * springmvc-wadlgen reads instead of parsing the parameter names from the
+ * debug info of the controller class files at runtime. See
+ * <code>com.alanloi.springmvc.wadl.CompiledMappingIndex</code> for the
+ * format, which must be kept in step with this.
+ *
+ * The index only covers the classes compiled together, so an incremental
+ * compile of some of the controllers leaves the others to the runtime
+ * discovery.
+ *
+ * @author Alan Loi
+ */
+@SupportedAnnotationTypes(RequestMappingIndexProcessor.REQUEST_MAPPING)
+public class RequestMappingIndexProcessor extends AbstractProcessor {
+
+	/** Where the index is written, relative to the class output. */
+	static final String LOCATION = "META-INF/springmvc-wadlgen/mappings.idx";
+
+	/** The first line of the index, with its format version. */
+	static final String HEADER = "#springmvc-wadlgen mappings 1";
+
+	static final String REQUEST_MAPPING = "org.springframework.web.bind.annotation.RequestMapping";
+
+	private static final String PATH_VARIABLE = "org.springframework.web.bind.annotation.PathVariable";
+
+	private static final String REQUEST_PARAM = "org.springframework.web.bind.annotation.RequestParam";
+
+	private static final String ENCODING = "UTF-8";
+
+	/** The index lines of each method, by class and method, so the index doesn't depend on the compile order. */
+	private final Map<String, String> records = new TreeMap<String, String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.METHOD) {
+					record((ExecutableElement) element);
+				}
+			}
+		}
+
+		if (roundEnv.processingOver() && !this.records.isEmpty()) {
+			write();
+		}
+
+		// leave the annotations to any other processors
+		return false;
+	}
+
+	private void record(ExecutableElement method) {
+		TypeElement type = (TypeElement) method.getEnclosingElement();
+		String className = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+		String methodName = method.getSimpleName().toString();
+
+		AnnotationMirror methodMapping = getAnnotation(method, REQUEST_MAPPING);
+		AnnotationMirror typeMapping = getAnnotation(type, REQUEST_MAPPING);
+
+		StringBuilder record = new StringBuilder();
+		record.append('M');
+		appendField(record, className);
+		appendField(record, methodName);
+		appendField(record, getTypeName(method.getReturnType()));
+		appendField(record, getMediaTypes(methodMapping, typeMapping, "consumes"));
+		appendField(record, getMediaTypes(methodMapping, typeMapping, "produces"));
+		record.append('\n');
+
+		StringBuilder key = new StringBuilder(className).append('#').append(methodName).append('(');
+
+		for (VariableElement param : method.getParameters()) {
+			String paramType = getTypeName(param.asType());
+			if (key.charAt(key.length() - 1) != '(') {
+				key.append(',');
+			}
+			key.append(paramType);
+
+			record.append('P');
+			appendField(record, param.getSimpleName().toString());
+			appendField(record, paramType);
+
+			AnnotationMirror pathVariable = getAnnotation(param, PATH_VARIABLE);
+			AnnotationMirror requestParam = getAnnotation(param, REQUEST_PARAM);
+			if (pathVariable != null) {
+				appendField(record, "PathVariable");
+				appendField(record, String.valueOf(getValue(pathVariable, "value")));
+				appendField(record, "true");
+				appendField(record, "");
+			} else if (requestParam != null) {
+				appendField(record, "RequestParam");
+				appendField(record, String.valueOf(getValue(requestParam, "value")));
+				appendField(record, String.valueOf(getValue(requestParam, "required")));
+				appendField(record, String.valueOf(getValue(requestParam, "defaultValue")));
+			} else {
+				appendField(record, "-");
+				appendField(record, "");
+				appendField(record, "");
+				appendField(record, "");
+			}
+			record.append('\n');
+		}
+
+		this.records.put(key.append(')').toString(), record.toString());
+	}
+
+	private void write() {
+		try {
+			FileObject file = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+					LOCATION);
+
+			Writer writer = new OutputStreamWriter(file.openOutputStream(), ENCODING);
+			try {
+				writer.write(HEADER);
+				writer.write('\n');
+				for (String record : this.records.values()) {
+					writer.write(record);
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			// not fatal, the parameter names are then discovered at runtime
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+					"Could not write request mapping index " + LOCATION + ": " + e);
+		}
+	}
+
+	/**
+	 * The media types of the method mapping, or else of the controller
+	 * mapping, as Spring MVC combines them.
+	 */
+	private List<String> getMediaTypes(AnnotationMirror methodMapping, AnnotationMirror typeMapping, String name) {
+		List<String> mediaTypes = getStrings(methodMapping, name);
+		return (!mediaTypes.isEmpty() ? mediaTypes : getStrings(typeMapping, name));
+	}
+
+	/**
+	 * The erased type, by binary name for classes and as
+	 * <code>type[]</code> for arrays, the same as the runtime builds it from
+	 * a <code>Class</code>.
+	 */
+	private String getTypeName(TypeMirror type) {
+		TypeMirror erasure = this.processingEnv.getTypeUtils().erasure(type);
+
+		if (erasure.getKind() == TypeKind.ARRAY) {
+			return getTypeName(((ArrayType) erasure).getComponentType()) + "[]";
+		} else if (erasure.getKind() == TypeKind.DECLARED) {
+			TypeElement element = (TypeElement) ((DeclaredType) erasure).asElement();
+			return this.processingEnv.getElementUtils().getBinaryName(element).toString();
+		} else {
+			return erasure.toString(); // primitives and void
+		}
+	}
+
+	private List<String> getStrings(AnnotationMirror annotation, String name) {
+		List<String> strings = new ArrayList<String>();
+
+		Object value = getValue(annotation, name);
+		if (value instanceof List) {
+			for (Object element : (List<?>) value) {
+				strings.add(String.valueOf(((AnnotationValue) element).getValue()));
+			}
+		}
+
+		return strings;
+	}
+
+	/**
+	 * @return the value of an annotation attribute, with the default if it's
+	 *         not set, or <code>null</code> if there's no annotation
+	 */
+	private Object getValue(AnnotationMirror annotation, String name) {
+		if (annotation == null) {
+			return null;
+		}
+
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.processingEnv
+				.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+
+		return null;
+	}
+
+	private static AnnotationMirror getAnnotation(Element element, String annotationType) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+			if (type.getQualifiedName().contentEquals(annotationType)) {
+				return annotation;
+			}
+		}
+
+		return null;
+	}
+
+	private static void appendField(StringBuilder record, String value) {
+		record.append('\t').append(escape(value));
+	}
+
+	private static void appendField(StringBuilder record, List<String> values) {
+		record.append('\t');
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				record.append(',');
+			}
+			record.append(escape(values.get(i)));
+		}
+	}
+
+	private static String escape(String value) {
+		StringBuilder result = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\t':
+				result.append("\\t");
+				break;
+			case '\n':
+				result.append("\\n");
+				break;
+			case '\r':
+				result.append("\\r");
+				break;
+			case ',':
+			case '\\':
+				result.append('\\').append(c);
+				break;
+			default:
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,185 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import com.alanloi.springmvc.wadl.processor.RequestMappingIndexProcessor;
+
+/**
+ * Tests for RequestMappingIndexProcessor: compiles a sample controller with
+ * it and reads the parameter names back through {@link CompiledMappingIndex},
+ * so the keys written at compile time must match those built from the
+ * methods at runtime.
+ *
+ * In the package of CompiledMappingIndex, which isn't public.
+ *
+ * @author Alan Loi
+ */
+public class RequestMappingIndexProcessorTest {
+
+	private static final String CONTROLLER_NAME = "com.example.web.SampleController";
+
+	private static final String CONTROLLER_SOURCE = "package com.example.web;\n"
+			+ "import java.util.*;\n"
+			+ "import org.springframework.web.bind.annotation.*;\n"
+			+ "@RequestMapping(\"/samples\")\n"
+			+ "public class SampleController<T extends Number> {\n"
+			+ "  @RequestMapping(\"/{id}\")\n"
+			+ "  public String get(@PathVariable long id, @RequestParam(\"q\") String query) { return null; }\n"
+			+ "  @RequestMapping(\"/matrix\")\n"
+			+ "  public void matrix(long[][] cells, String[] labels) { }\n"
+			+ "  @RequestMapping(\"/tags\")\n"
+			+ "  public void tags(int count, String... tags) { }\n"
+			+ "  @RequestMapping(\"/generic\")\n"
+			+ "  public <V extends Comparable<V>> List<T> generic(T amount, V key, Map<String, List<T>> byName,\n"
+			+ "      T[] amounts) { return null; }\n"
+			+ "  public void notMapped(String ignored) { }\n"
+			+ "  public static class Nested {\n"
+			+ "    @RequestMapping(\"/nested\")\n"
+			+ "    public void find(Nested parent, Inner.Deeper child) { }\n"
+			+ "    public static class Inner {\n"
+			+ "      public static class Deeper { }\n"
+			+ "    }\n"
+			+ "  }\n"
+			+ "}\n";
+
+	private File directory;
+	private URLClassLoader classLoader;
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = File.createTempFile("processor.", ".tmp");
+		this.directory.delete();
+		this.directory.mkdirs();
+
+		compile();
+		this.classLoader = new URLClassLoader(new URL[] { this.directory.toURI().toURL() }, getClass()
+				.getClassLoader());
+	}
+
+	@After
+	public void tearDown() {
+		delete(this.directory);
+	}
+
+	@Test
+	public void testParameterNamesAreIndexed() throws Exception {
+		Class<?> controller = this.classLoader.loadClass(CONTROLLER_NAME);
+		Class<?> nested = this.classLoader.loadClass(CONTROLLER_NAME + "$Nested");
+		Class<?> deeper = this.classLoader.loadClass(CONTROLLER_NAME + "$Nested$Inner$Deeper");
+
+		assertParameterNames(controller.getMethod("get", long.class, String.class), "id", "query");
+		assertParameterNames(controller.getMethod("matrix", long[][].class, String[].class), "cells", "labels");
+		assertParameterNames(controller.getMethod("tags", int.class, String[].class), "count", "tags");
+		assertParameterNames(controller.getMethod("generic", Number.class, Comparable.class, java.util.Map.class,
+				Number[].class), "amount", "key", "byName", "amounts");
+		assertParameterNames(nested.getMethod("find", nested, deeper), "parent", "child");
+	}
+
+	@Test
+	public void testEveryMappedMethodIsIndexed() throws Exception {
+		CompiledMappingIndex index = CompiledMappingIndex.forClassLoader(this.classLoader);
+
+		int mapped = 0;
+		for (String className : Arrays.asList(CONTROLLER_NAME, CONTROLLER_NAME + "$Nested")) {
+			for (Method method : this.classLoader.loadClass(className).getDeclaredMethods()) {
+				if (method.isAnnotationPresent(RequestMapping.class)) {
+					assertNotNull(CompiledMappingIndex.getKey(method), index.getParameterNames(method));
+					mapped++;
+				}
+			}
+		}
+
+		assertEquals(5, mapped);
+		assertEquals(mapped, index.size());
+	}
+
+	private void assertParameterNames(Method method, String... expected) {
+		List<String> parameterNames = CompiledMappingIndex.forClassLoader(this.classLoader).getParameterNames(
+				method);
+		assertEquals(CompiledMappingIndex.getKey(method), Arrays.asList(expected), parameterNames);
+	}
+
+	/**
+	 * Compile the sample controller with the processor (and without debug
+	 * info, so the index is the only source of parameter names).
+	 */
+	private void compile() throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("Needs a JDK", compiler);
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		try {
+			List<String> options = Arrays.asList("-g:none", "-d", this.directory.getPath(), "-classpath",
+					System.getProperty("java.class.path"));
+			List<JavaFileObject> sources = Arrays.<JavaFileObject> asList(new SourceFile(CONTROLLER_NAME,
+					CONTROLLER_SOURCE));
+
+			CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+			task.setProcessors(Arrays.asList(new RequestMappingIndexProcessor()));
+
+			boolean compiled = task.call();
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				assertTrue(diagnostic.toString(), diagnostic.getKind() != Diagnostic.Kind.ERROR);
+			}
+			assertTrue(compiled);
+		} finally {
+			fileManager.close();
+		}
+
+		assertTrue(new File(this.directory, CompiledMappingIndex.LOCATION).isFile());
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * A source file held in memory.
+	 */
+	private static class SourceFile extends SimpleJavaFileObject {
+
+		private final String source;
+
+		SourceFile(String className, String source) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.source = source;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return this.source;
+		}
+	}
+}
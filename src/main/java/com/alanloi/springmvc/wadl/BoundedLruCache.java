@@ -0,0 +1,77 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small thread-safe cache which evicts the least recently used entry once
+ * it holds a maximum number of entries, e.g. for WADL views whose keys come
+ * from request parameters.
+ *
+ * @author Alan Loi
+ */
+public class BoundedLruCache<K, V> {
+
+	private final int maxSize;
+
+	private final LinkedHashMap<K, V> entries;
+
+	public BoundedLruCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * @param key the key
+	 * @return the cached value, or <code>null</code> if there is none
+	 */
+	public synchronized V get(K key) {
+		return this.entries.get(key);
+	}
+
+	/**
+	 * Cache a value unless one has been cached for the key meanwhile.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 * @return the previously cached value, or <code>null</code> if there was none
+	 */
+	public synchronized V putIfAbsent(K key, V value) {
+		V existing = this.entries.get(key);
+		if (existing != null) {
+			return existing;
+		}
+
+		this.entries.put(key, value);
+		return null;
+	}
+
+	/**
+	 * Cache a value, replacing any cached one.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	public synchronized void put(K key, V value) {
+		this.entries.put(key, value);
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+}
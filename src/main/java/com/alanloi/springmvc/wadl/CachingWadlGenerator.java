@@ -0,0 +1,557 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlMethod;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationListener;
+
+/**
+ * Caches the WadlApplication generated by {@link WadlGenerator} so the Spring
+ * MVC request mappings are only walked once, rather than on every request.
+ *
+ * The request mappings are described once in a
+ * {@link HandlerMethodDescriptorIndex}, which is built when a
+ * <code>ContextRefreshedEvent</code> is received (register this class as a
+ * bean) or otherwise on first use, so generating for another base URL
+ * needs no reflection. It's not built on the refresh if
+ * {@link #setIndexOnRefresh(boolean) turned off}, e.g. when using a
+ * {@link com.alanloi.springmvc.wadl.web.WadlWarmUp} which builds it in the
+ * background instead.
+ *
+ * The WadlApplication is generated once without a base URL, as a template.
+ * Each base URL (scheme, host, port and context path) a request comes in
+ * through just gets a shallow copy of it with the base URL filled in, see
+ * {@link WadlGenerator#withBaseUrl(WadlApplication, String)}.
+ *
+ * Partial WADLs selected by a {@link WadlFilter} are generated from the same
+ * index and the most recently used ones are kept too. So are the index and
+ * the per-controller shards of a sharded WADL, see
+ * {@link WadlGenerator#generateShardIndex(HandlerMethodDescriptorIndex, String, String)}.
+ * Concurrent callers missing the same one share a single generation.
+ *
+ * The cached WadlApplications and index are invalidated when a
+ * <code>ContextRefreshedEvent</code> is received or when
+ * {@link #invalidate()} is called explicitly. As a listener it has the
+ * highest precedence, so other listeners (like the warm-up) only see the
+ * invalidated cache. On a context refresh the
+ * index is {@link HandlerMethodDescriptorIndex#update updated} by default,
+ * so only the request mappings which were added or changed are described
+ * again, the WADL methods of the others are reused and the shards of
+ * unchanged controllers are kept.
+ *
+ * NOTE: the same WadlApplication instance is handed to all callers, so it
+ * must be treated as read-only.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class CachingWadlGenerator implements ApplicationListener<ContextRefreshedEvent>, Ordered {
+
+	/**
+	 * The base URL is derived from the request (which includes the Host
+	 * header) so only keep the copies of the most recently used base URLs.
+	 */
+	private static final int MAX_CACHED_BASE_URLS = 16;
+
+	/** Filters also come from the request, so only keep the most recently used views. */
+	private static final int MAX_CACHED_FILTERS = 32;
+
+	private static final String SHARD_INDEX_KEY = "shardIndex";
+
+	private static final String SHARD_KEY_PREFIX = "shard:";
+
+	@Getter
+	private final RequestMappingHandlerMapping handlerMapping;
+	@Getter
+	private final String applicationName;
+	@Getter
+	private final List<Class<?>> ignoreControllers;
+	@Getter
+	private final WadlTypeMapper wadlTypeMapper;
+
+	/**
+	 * Settings passed to {@link WadlGenerator}. Cache hits and misses are
+	 * reported to its listener, if any.
+	 */
+	@Getter
+	@Setter
+	private WadlGeneratorOptions options = new WadlGeneratorOptions();
+
+	/**
+	 * If set, {@link #invalidate()} keeps serving the current WadlApplications
+	 * while their replacement is generated on this executor
+	 * (stale-while-revalidate), rather than making the next callers wait.
+	 */
+	@Getter
+	@Setter
+	private Executor revalidationExecutor;
+
+	/**
+	 * Whether a context refresh only regenerates what has changed (the
+	 * default), rather than everything.
+	 */
+	@Getter
+	@Setter
+	private boolean incrementalRefresh = true;
+
+	/**
+	 * Whether the index is rebuilt on the thread refreshing the context (the
+	 * default), rather than on first use. Set this to <code>false</code> when
+	 * using a {@link com.alanloi.springmvc.wadl.web.WadlWarmUp}, so the index
+	 * is built on its warm-up thread (or not at all if it loads a snapshot).
+	 */
+	@Getter
+	@Setter
+	private boolean indexOnRefresh = true;
+
+	/**
+	 * Order among the <code>ContextRefreshedEvent</code> listeners: the
+	 * highest precedence by default, so the cache is invalidated before any
+	 * listener using it runs.
+	 */
+	@Getter
+	@Setter
+	private int order = Ordered.HIGHEST_PRECEDENCE;
+
+	private final AtomicReference<Cache> cache = new AtomicReference<Cache>(new Cache(null));
+
+	/** The cache being generated in the background, if any. */
+	private final AtomicReference<Cache> revalidating = new AtomicReference<Cache>();
+
+	private final GenerationCoordinator<Cache, HandlerMethodDescriptorIndex> indexBuilds =
+			new GenerationCoordinator<Cache, HandlerMethodDescriptorIndex>();
+
+	private final GenerationCoordinator<Cache, WadlApplication> templateBuilds =
+			new GenerationCoordinator<Cache, WadlApplication>();
+
+	public CachingWadlGenerator(RequestMappingHandlerMapping handlerMapping, String applicationName,
+			List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper) {
+		this.handlerMapping = handlerMapping;
+		this.applicationName = applicationName;
+		this.ignoreControllers = (ignoreControllers != null ? ignoreControllers
+				: Collections.<Class<?>> emptyList());
+		this.wadlTypeMapper = wadlTypeMapper;
+	}
+
+	public CachingWadlGenerator(RequestMappingHandlerMapping handlerMapping, String applicationName,
+			List<Class<?>> ignoreControllers) {
+		this(handlerMapping, applicationName, ignoreControllers, new JsonBasedWadlTypeMapper());
+	}
+
+	/**
+	 * Get the WadlApplication for the base URL of the given request. Only
+	 * the first call after startup or invalidation actually generates, the
+	 * rest copy the template.
+	 *
+	 * Concurrent callers which miss the cache at the same time wait for a
+	 * single generation of the template. They may each copy the template,
+	 * but only the first copy is cached and returned to all of them. The
+	 * copies of the most recently used base URLs are cached.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @return the cached WadlApplication
+	 */
+	public WadlApplication generate(HttpServletRequest request) {
+		String baseUrl = WadlGenerator.getBaseUrl(request);
+
+		// hold on to the current cache so an invalidate() during generation discards the result
+		Cache current = this.cache.get();
+
+		WadlGenerationListener listener = this.options.getListener();
+
+		WadlApplication result = current.applications.get(baseUrl);
+		if (listener != null) {
+			listener.cacheAccessed(result != null);
+		}
+
+		if (result != null) {
+			return result;
+		}
+
+		WadlApplication copy = WadlGenerator.withBaseUrl(getTemplate(current), baseUrl);
+
+		result = current.applications.putIfAbsent(baseUrl, copy);
+		return (result != null ? result : copy);
+	}
+
+	/**
+	 * Get the WadlApplication without a base URL, generating it if it hasn't
+	 * been cached yet.
+	 *
+	 * @return the cached template
+	 */
+	public WadlApplication getTemplate() {
+		return getTemplate(this.cache.get());
+	}
+
+	private WadlApplication getTemplate(final Cache current) {
+		WadlApplication template = current.template;
+		if (template != null) {
+			return template;
+		}
+
+		return this.templateBuilds.get(current, new Callable<WadlApplication>() {
+			public WadlApplication call() {
+				if (current.template == null) {
+					if (log.isDebugEnabled()) {
+						log.debug("Generating WADL template");
+					}
+
+					current.template = WadlGenerator.generate(getIndex(current), null, getApplicationName(),
+							getOptions(), current.wadlMethods);
+				}
+
+				return current.template;
+			}
+		});
+	}
+
+	/**
+	 * Get the WadlApplication for the base URL of the given request, of just
+	 * the request mappings selected by the given filter.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param filter selects the request mappings to include
+	 * @return the (partial) WadlApplication
+	 */
+	public WadlApplication generate(HttpServletRequest request, WadlFilter filter) {
+		if (filter.isEmpty()) {
+			return generate(request);
+		}
+
+		return WadlGenerator.withBaseUrl(getTemplate(filter), WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Get the WadlApplication without a base URL of just the request
+	 * mappings selected by the given filter, generating it from the index if
+	 * it isn't one of the most recently used filters. Concurrent callers for
+	 * the same filter share a single generation.
+	 *
+	 * @param filter selects the request mappings to include
+	 * @return the cached (partial) template
+	 */
+	public WadlApplication getTemplate(final WadlFilter filter) {
+		if (filter.isEmpty()) {
+			return getTemplate();
+		}
+
+		final Cache current = this.cache.get();
+
+		WadlApplication template = current.filteredTemplates.get(filter);
+		WadlGenerationListener listener = this.options.getListener();
+		if (listener != null) {
+			listener.cacheAccessed(template != null);
+		}
+
+		if (template != null) {
+			return template;
+		}
+
+		return current.builds.get(filter, new Callable<WadlApplication>() {
+			public WadlApplication call() {
+				WadlApplication filtered = current.filteredTemplates.get(filter);
+				if (filtered == null) {
+					if (log.isDebugEnabled()) {
+						log.debug("Generating WADL template for " + filter);
+					}
+
+					filtered = WadlGenerator.generate(getIndex(current), filter, null, getApplicationName(),
+							getOptions());
+					current.filteredTemplates.put(filter, filtered);
+				}
+
+				return filtered;
+			}
+		});
+	}
+
+	/**
+	 * Get the index of the sharded WADL for the base URL of the given
+	 * request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @return the WadlApplication listing the shards
+	 */
+	public WadlApplication generateShardIndex(HttpServletRequest request) {
+		return WadlGenerator.withBaseUrl(getShardIndex(), WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Get the shard of one controller for the base URL of the given request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param controllerName name of the controller class
+	 * @return the WadlApplication of the controller, or <code>null</code> if
+	 *         there is no such controller
+	 */
+	public WadlApplication generateShard(HttpServletRequest request, String controllerName) {
+		WadlApplication shard = getShard(controllerName);
+		return (shard != null ? WadlGenerator.withBaseUrl(shard, WadlGenerator.getBaseUrl(request)) : null);
+	}
+
+	/**
+	 * Get the index of the sharded WADL without a base URL, generating it if
+	 * it hasn't been cached yet.
+	 *
+	 * @return the cached shard index
+	 */
+	public WadlApplication getShardIndex() {
+		final Cache current = this.cache.get();
+
+		WadlApplication shardIndex = current.shardIndex;
+		if (shardIndex != null) {
+			return shardIndex;
+		}
+
+		return current.builds.get(SHARD_INDEX_KEY, new Callable<WadlApplication>() {
+			public WadlApplication call() {
+				if (current.shardIndex == null) {
+					current.shardIndex = WadlGenerator.generateShardIndex(getIndex(current), null,
+							getApplicationName());
+				}
+
+				return current.shardIndex;
+			}
+		});
+	}
+
+	/**
+	 * Get the shard of one controller without a base URL, generating just
+	 * that shard if it hasn't been cached yet.
+	 *
+	 * @param controllerName name of the controller class
+	 * @return the cached shard, or <code>null</code> if there is no such
+	 *         controller
+	 */
+	public WadlApplication getShard(final String controllerName) {
+		final Cache current = this.cache.get();
+
+		WadlApplication shard = current.shards.get(controllerName);
+		WadlGenerationListener listener = this.options.getListener();
+		if (listener != null) {
+			listener.cacheAccessed(shard != null);
+		}
+
+		if (shard != null) {
+			return shard;
+		}
+
+		final HandlerMethodDescriptorIndex shardIndex = getIndex(current).getShard(controllerName);
+		if (shardIndex == null) {
+			return null;
+		}
+
+		return current.builds.get(SHARD_KEY_PREFIX + controllerName, new Callable<WadlApplication>() {
+			public WadlApplication call() {
+				WadlApplication built = current.shards.get(controllerName);
+				if (built == null) {
+					if (log.isDebugEnabled()) {
+						log.debug("Generating WADL shard of " + controllerName);
+					}
+
+					built = WadlGenerator.generate(shardIndex, null, getApplicationName(), getOptions());
+					current.shards.put(controllerName, built);
+				}
+
+				return built;
+			}
+		});
+	}
+
+	/**
+	 * Get the index of the request mappings, building it if necessary.
+	 *
+	 * @return the index
+	 */
+	public HandlerMethodDescriptorIndex getIndex() {
+		return getIndex(this.cache.get());
+	}
+
+	private HandlerMethodDescriptorIndex getIndex(final Cache current) {
+		HandlerMethodDescriptorIndex index = current.index;
+		if (index != null) {
+			return index;
+		}
+
+		return this.indexBuilds.get(current, new Callable<HandlerMethodDescriptorIndex>() {
+			public HandlerMethodDescriptorIndex call() {
+				if (current.index == null) {
+					Cache previous = current.previous;
+					if (previous != null && previous.index != null) {
+						current.index = HandlerMethodDescriptorIndex.update(previous.index, getHandlerMapping(),
+								getIgnoreControllers(), getWadlTypeMapper(), getOptions());
+						current.reuse(previous);
+					} else {
+						current.index = HandlerMethodDescriptorIndex.create(getHandlerMapping(),
+								getIgnoreControllers(), getWadlTypeMapper(), getOptions());
+					}
+					current.previous = null;
+
+					if (log.isDebugEnabled()) {
+						log.debug("Indexed " + current.index.size() + " request mappings");
+					}
+				}
+
+				return current.index;
+			}
+		});
+	}
+
+	/**
+	 * Discard all cached WadlApplications and the index so the next call
+	 * regenerates them.
+	 *
+	 * With a {@link #setRevalidationExecutor(Executor) revalidation executor}
+	 * the current ones are kept until the new ones have been generated in the
+	 * background instead (unless nothing has been generated yet).
+	 */
+	public void invalidate() {
+		invalidate(false);
+	}
+
+	private void invalidate(boolean incremental) {
+		Executor executor = this.revalidationExecutor;
+		Cache current = this.cache.get();
+		Cache previous = (incremental ? current : null);
+
+		if (executor == null || current.template == null) {
+			this.revalidating.set(null);
+			this.cache.set(new Cache(previous));
+
+			if (log.isDebugEnabled()) {
+				log.debug("Invalidated cached WADL");
+			}
+
+			return;
+		}
+
+		final Cache next = new Cache(previous);
+		this.revalidating.set(next);
+
+		if (log.isDebugEnabled()) {
+			log.debug("Revalidating cached WADL in the background");
+		}
+
+		executor.execute(new Runnable() {
+			public void run() {
+				revalidate(next);
+			}
+		});
+	}
+
+	private void revalidate(Cache next) {
+		try {
+			getTemplate(next);
+		} catch (RuntimeException e) {
+			log.error("Could not regenerate WADL - the next request will retry", e);
+		}
+
+		// unless superseded by a later invalidate(), swap in the new cache (empty if generation failed)
+		if (this.revalidating.compareAndSet(next, null)) {
+			this.cache.set(next);
+		}
+	}
+
+	/**
+	 * @return whether the cached WadlApplications are being regenerated in the
+	 *         background
+	 */
+	public boolean isRevalidating() {
+		return this.revalidating.get() != null;
+	}
+
+	/**
+	 * Invalidates the cache as the request mappings may have changed, and
+	 * rebuilds the index while the application is starting up unless
+	 * {@link #setIndexOnRefresh(boolean) turned off}.
+	 */
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		invalidate(this.incrementalRefresh);
+
+		if (this.indexOnRefresh) {
+			getIndex();
+		}
+	}
+
+	/**
+	 * The index, template, the copies of the template per base URL, the
+	 * filtered templates and the shards, swapped out as a whole on
+	 * invalidation.
+	 */
+	private static class Cache {
+
+		/** The cache this one replaces, to reuse what hasn't changed from, until the index has been built. */
+		volatile Cache previous;
+
+		volatile HandlerMethodDescriptorIndex index;
+
+		volatile WadlApplication template;
+
+		final BoundedLruCache<String, WadlApplication> applications =
+				new BoundedLruCache<String, WadlApplication>(MAX_CACHED_BASE_URLS);
+
+		final BoundedLruCache<WadlFilter, WadlApplication> filteredTemplates =
+				new BoundedLruCache<WadlFilter, WadlApplication>(MAX_CACHED_FILTERS);
+
+		volatile WadlApplication shardIndex;
+
+		/** Only holds the controllers of the index, so it's bounded. */
+		final ConcurrentMap<String, WadlApplication> shards = new ConcurrentHashMap<String, WadlApplication>();
+
+		/** Only one build at a time per filter, for the shard index and per shard. */
+		final GenerationCoordinator<Object, WadlApplication> builds =
+				new GenerationCoordinator<Object, WadlApplication>();
+
+		/** The WADL methods of the template, by the descriptor they were mapped from. */
+		final ConcurrentMap<HandlerMethodDescriptor, List<WadlMethod>> wadlMethods =
+				new ConcurrentHashMap<HandlerMethodDescriptor, List<WadlMethod>>();
+
+		Cache(Cache previous) {
+			// skip a cache which never got as far as building its index
+			this.previous = (previous != null && previous.index == null ? previous.previous : previous);
+		}
+
+		/**
+		 * Take over the WADL methods of the descriptors which are still in
+		 * the index and the shards of the controllers which haven't changed.
+		 */
+		void reuse(Cache previous) {
+			for (HandlerMethodDescriptor descriptor : this.index.getDescriptors()) {
+				List<WadlMethod> methods = previous.wadlMethods.get(descriptor);
+				if (methods != null) {
+					this.wadlMethods.put(descriptor, methods);
+				}
+			}
+
+			Set<String> changed = this.index.getChangedControllers(previous.index);
+			for (Map.Entry<String, WadlApplication> shard : previous.shards.entrySet()) {
+				if (!changed.contains(shard.getKey())) {
+					this.shards.putIfAbsent(shard.getKey(), shard.getValue());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import net.java.dev.wadl._2009._02.WadlMethod;
+import net.java.dev.wadl._2009._02.WadlParam;
+import net.java.dev.wadl._2009._02.WadlRepresentation;
+import net.java.dev.wadl._2009._02.WadlResource;
+import net.java.dev.wadl._2009._02.WadlResponse;
+
+/**
+ * Sorts freshly generated parts of a WadlApplication into an order which
+ * only depends on their content, not on the iteration order of the handler
+ * mapping or of the sets of a request mapping. Nodes running the same build
+ * then serialize byte for byte the same WADL.
+ *
+ * Only sorts the lists of the given objects, never of objects they share
+ * (e.g. interned params), so it's safe to use on a WadlApplication which is
+ * still being built while an older one is read.
+ *
+ * @author Alan Loi
+ *
+ * @see WadlGeneratorOptions#isCanonical()
+ */
+final class CanonicalOrder {
+
+	/** Methods by name, id and href, then resources by path. */
+	private static final Comparator<Object> METHOD_OR_RESOURCE = new Comparator<Object>() {
+		public int compare(Object o1, Object o2) {
+			boolean method1 = (o1 instanceof WadlMethod);
+			boolean method2 = (o2 instanceof WadlMethod);
+			if (method1 != method2) {
+				return (method1 ? -1 : 1);
+			}
+
+			if (method1) {
+				WadlMethod m1 = (WadlMethod) o1;
+				WadlMethod m2 = (WadlMethod) o2;
+				int result = compareStrings(m1.getName(), m2.getName());
+				if (result == 0) {
+					result = compareStrings(m1.getId(), m2.getId());
+				}
+				return (result != 0 ? result : compareStrings(m1.getHref(), m2.getHref()));
+			}
+
+			return compareStrings(((WadlResource) o1).getPath(), ((WadlResource) o2).getPath());
+		}
+	};
+
+	private static final Comparator<WadlResource> RESOURCE = new Comparator<WadlResource>() {
+		public int compare(WadlResource r1, WadlResource r2) {
+			return compareStrings(r1.getPath(), r2.getPath());
+		}
+	};
+
+	/** By style, then name. */
+	private static final Comparator<WadlParam> PARAM = new Comparator<WadlParam>() {
+		public int compare(WadlParam p1, WadlParam p2) {
+			int result = compareStrings((p1.getStyle() != null ? p1.getStyle().name() : null),
+					(p2.getStyle() != null ? p2.getStyle().name() : null));
+			return (result != 0 ? result : compareStrings(p1.getName(), p2.getName()));
+		}
+	};
+
+	/** By media type, then element. */
+	private static final Comparator<WadlRepresentation> REPRESENTATION = new Comparator<WadlRepresentation>() {
+		public int compare(WadlRepresentation r1, WadlRepresentation r2) {
+			int result = compareStrings(r1.getMediaType(), r2.getMediaType());
+			return (result != 0 ? result : compareStrings(toString(r1.getElement()), toString(r2.getElement())));
+		}
+
+		private String toString(QName qName) {
+			return (qName != null ? qName.toString() : null);
+		}
+	};
+
+	private CanonicalOrder() {
+	}
+
+	/**
+	 * Sort the params and representations of newly mapped methods.
+	 *
+	 * @param wadlMethods the methods
+	 */
+	static void sortMethods(List<WadlMethod> wadlMethods) {
+		for (WadlMethod wadlMethod : wadlMethods) {
+			if (wadlMethod.getRequest() != null) {
+				Collections.sort(wadlMethod.getRequest().getParam(), PARAM);
+				Collections.sort(wadlMethod.getRequest().getRepresentation(), REPRESENTATION);
+			}
+
+			for (WadlResponse wadlResponse : wadlMethod.getResponse()) {
+				Collections.sort(wadlResponse.getParam(), PARAM);
+				Collections.sort(wadlResponse.getRepresentation(), REPRESENTATION);
+			}
+		}
+	}
+
+	/**
+	 * Sort newly built resources by path, and their methods and child
+	 * resources, recursively.
+	 *
+	 * @param wadlResources the resources
+	 */
+	static void sortResources(List<WadlResource> wadlResources) {
+		Collections.sort(wadlResources, RESOURCE);
+
+		for (WadlResource wadlResource : wadlResources) {
+			sortResource(wadlResource);
+		}
+	}
+
+	private static void sortResource(WadlResource wadlResource) {
+		List<Object> methodOrResource = wadlResource.getMethodOrResource();
+		Collections.sort(methodOrResource, METHOD_OR_RESOURCE);
+
+		for (Object child : methodOrResource) {
+			if (child instanceof WadlResource) {
+				sortResource((WadlResource) child);
+			}
+		}
+	}
+
+	/**
+	 * Compare with <code>null</code>s first.
+	 */
+	private static int compareStrings(String s1, String s2) {
+		if (s1 == null) {
+			return (s2 == null ? 0 : -1);
+		}
+		return (s2 == null ? 1 : s1.compareTo(s2));
+	}
+}
@@ -0,0 +1,272 @@
+package com.alanloi.springmvc.wadl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * The handler method parameter names recorded at compile time by the
+ * <code>springmvc-wadlgen-processor</code> annotation processor, so they
+ * don't have to be read from the debug info of the controller class files
+ * at runtime.
+ *
+ * The processor writes an index to {@link #LOCATION} in each jar or classes
+ * directory it compiles. All of them on the classpath are merged. Methods
+ * which aren't in an index (e.g. compiled without the processor) are left to
+ * the reflection based discovery.
+ *
+ * The index is a UTF-8 text file which starts with {@link #HEADER}. Each
+ * <code>@RequestMapping</code> method is an <code>M</code> line, followed by
+ * a <code>P</code> line per method parameter, with tab separated fields:
+ *
+ * <pre>
+ * M  class  method  returnType  consumes  produces
+ * P  name   type    PathVariable|RequestParam|-  value  required  defaultValue
+ * </pre>
+ *
+ * Types are erased, with nested classes by binary name and arrays as
+ * <code>type[]</code>. Lists are comma separated. Tabs, line breaks, commas
+ * and backslashes in values are escaped with a backslash. Only the names
+ * and types are read here, the rest is cheaply available by reflection.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+final class CompiledMappingIndex {
+
+	/** Where the annotation processor writes the index. */
+	static final String LOCATION = "META-INF/springmvc-wadlgen/mappings.idx";
+
+	/** The first line of an index, with its format version. */
+	static final String HEADER = "#springmvc-wadlgen mappings 1";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final CompiledMappingIndex EMPTY =
+			new CompiledMappingIndex(Collections.<String, List<String>>emptyMap());
+
+	/** By class loader, so reloaded controllers get the index they were compiled with. */
+	private static final Map<ClassLoader, CompiledMappingIndex> INDEXES =
+			new WeakHashMap<ClassLoader, CompiledMappingIndex>();
+
+	/**
+	 * The index looked up last, read without locking: the controllers of an
+	 * application (and so every handler method described) almost always
+	 * share a class loader.
+	 */
+	private static volatile Recent recent;
+
+	/** The parameter names by method key. */
+	private final Map<String, List<String>> parameterNames;
+
+	CompiledMappingIndex(Map<String, List<String>> parameterNames) {
+		this.parameterNames = parameterNames;
+	}
+
+	/**
+	 * Get the index of a class loader, reading it on first use.
+	 *
+	 * @param classLoader the class loader of the controllers
+	 * @return the index, empty if there is none
+	 */
+	static CompiledMappingIndex forClassLoader(ClassLoader classLoader) {
+		if (classLoader == null) {
+			return EMPTY; // bootstrap classes aren't controllers
+		}
+
+		Recent last = recent;
+		if (last != null && last.classLoader.get() == classLoader) {
+			return last.index;
+		}
+
+		CompiledMappingIndex index;
+		synchronized (INDEXES) {
+			index = INDEXES.get(classLoader);
+			if (index == null) {
+				index = load(classLoader);
+				INDEXES.put(classLoader, index);
+			}
+		}
+
+		recent = new Recent(classLoader, index);
+		return index;
+	}
+
+	private static CompiledMappingIndex load(ClassLoader classLoader) {
+		Map<String, List<String>> parameterNames = new HashMap<String, List<String>>();
+
+		try {
+			Enumeration<URL> resources = classLoader.getResources(LOCATION);
+			while (resources.hasMoreElements()) {
+				URL resource = resources.nextElement();
+				InputStream in = resource.openStream();
+				try {
+					if (!read(in, parameterNames)) {
+						log.warn("Ignoring request mapping index in an unknown format: " + resource);
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} catch (IOException e) {
+			log.warn("Could not read request mapping index, discovering parameter names by reflection", e);
+			return EMPTY;
+		}
+
+		if (parameterNames.isEmpty()) {
+			return EMPTY;
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Read the parameter names of " + parameterNames.size() + " handler methods from " + LOCATION);
+		}
+
+		return new CompiledMappingIndex(parameterNames);
+	}
+
+	/**
+	 * Read an index into a map of parameter names by method key.
+	 *
+	 * @param in the index
+	 * @param parameterNames the map to add to
+	 * @return <code>false</code> if the index is in an unknown format
+	 * @throws IOException if the index could not be read
+	 */
+	static boolean read(InputStream in, Map<String, List<String>> parameterNames) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, ENCODING));
+
+		if (!HEADER.equals(reader.readLine())) {
+			return false;
+		}
+
+		StringBuilder key = null;
+		List<String> names = null;
+		int paramCount = 0;
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] fields = line.split("\t", -1);
+
+			if (fields[0].equals("M") && fields.length >= 3) {
+				if (key != null) {
+					parameterNames.put(key.append(')').toString(), Collections.unmodifiableList(names));
+				}
+
+				key = new StringBuilder().append(unescape(fields[1])).append('#').append(unescape(fields[2]))
+						.append('(');
+				names = new ArrayList<String>();
+				paramCount = 0;
+
+			} else if (fields[0].equals("P") && fields.length >= 3 && key != null) {
+				if (paramCount++ > 0) {
+					key.append(',');
+				}
+				key.append(unescape(fields[2]));
+				names.add(unescape(fields[1]));
+			}
+
+			// anything else is from a later version of the processor
+		}
+
+		if (key != null) {
+			parameterNames.put(key.append(')').toString(), Collections.unmodifiableList(names));
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param method a handler method
+	 * @return its parameter names, or <code>null</code> if it isn't in the
+	 *         index
+	 */
+	List<String> getParameterNames(Method method) {
+		if (this.parameterNames.isEmpty()) {
+			return null;
+		}
+
+		return this.parameterNames.get(getKey(method));
+	}
+
+	int size() {
+		return this.parameterNames.size();
+	}
+
+	/**
+	 * The key of a method, e.g. <code>com.example.Controller#find(long,java.lang.String[])</code>
+	 */
+	static String getKey(Method method) {
+		StringBuilder key = new StringBuilder();
+		key.append(method.getDeclaringClass().getName()).append('#').append(method.getName()).append('(');
+
+		Class<?>[] paramTypes = method.getParameterTypes();
+		for (int i = 0; i < paramTypes.length; i++) {
+			if (i > 0) {
+				key.append(',');
+			}
+			appendTypeName(key, paramTypes[i]);
+		}
+
+		return key.append(')').toString();
+	}
+
+	private static void appendTypeName(StringBuilder key, Class<?> type) {
+		if (type.isArray()) {
+			appendTypeName(key, type.getComponentType());
+			key.append("[]");
+		} else {
+			key.append(type.getName());
+		}
+	}
+
+	static String unescape(String value) {
+		if (value.indexOf('\\') == -1) {
+			return value;
+		}
+
+		StringBuilder result = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				c = value.charAt(++i);
+				if (c == 't') {
+					c = '\t';
+				} else if (c == 'n') {
+					c = '\n';
+				} else if (c == 'r') {
+					c = '\r';
+				}
+			}
+			result.append(c);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * An index with its class loader, which is only weakly referenced so it
+	 * can still be unloaded.
+	 */
+	private static final class Recent {
+
+		private final WeakReference<ClassLoader> classLoader;
+		private final CompiledMappingIndex index;
+
+		Recent(ClassLoader classLoader, CompiledMappingIndex index) {
+			this.classLoader = new WeakReference<ClassLoader>(classLoader);
+			this.index = index;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Makes sure only one build runs per key at a time: callers asking for a
+ * key which is already being built wait for that build and share its
+ * result (or failure) instead of starting their own.
+ *
+ * Results are not kept once a build completes - caching them is up to the
+ * caller. Keys are compared with <code>equals()</code>, so objects which
+ * don't override it (e.g. a cache instance) give one build per instance.
+ *
+ * @author Alan Loi
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the built values
+ */
+public class GenerationCoordinator<K, V> {
+
+	private final ConcurrentMap<K, Flight> inFlight = new ConcurrentHashMap<K, Flight>();
+
+	/**
+	 * Build a value on the calling thread, or wait for the build already
+	 * running for the key.
+	 *
+	 * @param key the key of the value
+	 * @param builder builds the value if no build is running
+	 * @return the built value
+	 * @throws IllegalStateException if interrupted while waiting, or if the
+	 *             build threw a checked exception
+	 */
+	public V get(K key, Callable<V> builder) {
+		Flight flight = new Flight(key, builder);
+
+		Flight existing = this.inFlight.putIfAbsent(key, flight);
+		if (existing == null) {
+			flight.run();
+			existing = flight;
+		}
+
+		return await(existing);
+	}
+
+	/**
+	 * Start building a value on an executor, unless a build is already
+	 * running for the key.
+	 *
+	 * @param key the key of the value
+	 * @param builder builds the value if no build is running
+	 * @param executor the executor to build on
+	 * @return the running build
+	 */
+	public Future<V> submit(K key, Callable<V> builder, Executor executor) {
+		Flight flight = new Flight(key, builder);
+
+		Flight existing = this.inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			return existing;
+		}
+
+		try {
+			executor.execute(flight);
+		} catch (RuntimeException e) {
+			this.inFlight.remove(key, flight);
+			throw e;
+		}
+
+		return flight;
+	}
+
+	/**
+	 * @param key the key of the value
+	 * @return whether a build is running for the key
+	 */
+	public boolean isInFlight(K key) {
+		return this.inFlight.containsKey(key);
+	}
+
+	private V await(Future<V> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for WADL generation", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException("Could not generate WADL", e.getCause());
+		}
+	}
+
+	/**
+	 * A build which removes itself from the in-flight builds when done.
+	 */
+	private class Flight extends FutureTask<V> {
+
+		private final K key;
+
+		Flight(K key, Callable<V> builder) {
+			super(builder);
+			this.key = key;
+		}
+
+		@Override
+		protected void done() {
+			GenerationCoordinator.this.inFlight.remove(this.key, this);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.alanloi.springmvc.wadl;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import net.java.dev.wadl._2009._02.WadlParamStyle;
+
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+/**
+ * Everything needed to describe a single Spring MVC request mapping in a
+ * WADL, resolved up front from the mapping, the handler method's reflection
+ * data (parameter names, annotations and types) and the WadlTypeMapper.
+ *
+ * Descriptors are immutable so they can be built once and shared between
+ * generations and threads.
+ *
+ * @author Alan Loi
+ *
+ * @see HandlerMethodDescriptorIndex
+ */
+@Getter
+public final class HandlerMethodDescriptor {
+
+	/** The request mapping this describes. */
+	private final RequestMappingInfo mappingInfo;
+
+	private final Class<?> beanType;
+	private final Method method;
+	private final String methodName;
+
+	/**
+	 * Identifies the handler method within the WADL: the controller class
+	 * and method name, with the parameter types if the method is overloaded.
+	 */
+	private final String methodId;
+
+	/** Names of the annotation types on the controller class and the handler method. */
+	private final Set<String> annotationTypes;
+
+	/** The URL patterns, or just the root path if there are none. */
+	private final List<String> paths;
+	private final List<RequestMethod> httpMethods;
+
+	private final List<Param> params;
+	private final List<String> consumes;
+	private final List<String> produces;
+
+	/** The WADL type of the return value, only resolved if something is produced. */
+	private final QName responseElement;
+
+	HandlerMethodDescriptor(RequestMappingInfo mappingInfo, Class<?> beanType, Method method,
+			Set<String> annotationTypes, List<String> paths, List<RequestMethod> httpMethods, List<Param> params,
+			List<String> consumes, List<String> produces, QName responseElement) {
+		this.mappingInfo = mappingInfo;
+		this.beanType = beanType;
+		this.method = method;
+		this.methodName = method.getName();
+		this.methodId = createMethodId(beanType, method);
+		this.annotationTypes = Collections.unmodifiableSet(annotationTypes);
+		this.paths = Collections.unmodifiableList(paths);
+		this.httpMethods = Collections.unmodifiableList(httpMethods);
+		this.params = Collections.unmodifiableList(params);
+		this.consumes = Collections.unmodifiableList(consumes);
+		this.produces = Collections.unmodifiableList(produces);
+		this.responseElement = responseElement;
+	}
+
+	/**
+	 * Check whether this descriptor is still up to date for a request
+	 * mapping, i.e. it describes the same mapping and handler method. A
+	 * reloaded controller (or parameter or return type) class is a different
+	 * class, so its methods aren't equal to the old ones. Whether the types
+	 * would still be mapped the same is checked by
+	 * {@link HandlerMethodDescriptorIndex#update}.
+	 *
+	 * @param otherMappingInfo the request mapping
+	 * @param handlerMethod its handler method
+	 * @return <code>true</code> if nothing has changed
+	 */
+	boolean describes(RequestMappingInfo otherMappingInfo, HandlerMethod handlerMethod) {
+		return this.mappingInfo.equals(otherMappingInfo) && this.beanType == handlerMethod.getBeanType()
+				&& this.method.equals(handlerMethod.getMethod());
+	}
+
+	/**
+	 * Get the id of a handler method, e.g.
+	 * <code>com.example.OrderController.findOrders</code>. The class name is
+	 * fully qualified because controllers in different packages may share a
+	 * simple name; overloads are told apart by their parameter types, e.g.
+	 * <code>com.example.OrderController.findOrders-String-int</code>. The id
+	 * is a valid XML name (<code>xs:ID</code>).
+	 */
+	static String createMethodId(Class<?> beanType, Method method) {
+		StringBuilder id = new StringBuilder(beanType.getName().replace('$', '.'));
+		id.append('.').append(method.getName());
+
+		if (isOverloaded(beanType, method)) {
+			for (Class<?> parameterType : method.getParameterTypes()) {
+				id.append('-').append(parameterType.getSimpleName().replace("[]", "Array"));
+			}
+		}
+
+		return id.toString();
+	}
+
+	private static boolean isOverloaded(Class<?> beanType, Method method) {
+		for (Class<?> type = beanType; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Method other : type.getDeclaredMethods()) {
+				if (other.getName().equals(method.getName()) && !other.isBridge() && !other.isSynthetic()
+						&& !Arrays.equals(other.getParameterTypes(), method.getParameterTypes())) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * A <code>@PathVariable</code> or <code>@RequestParam</code> of a
+	 * handler method.
+	 */
+	@Getter
+	@EqualsAndHashCode
+	public static final class Param {
+
+		private final String name;
+		private final QName type;
+		private final WadlParamStyle style;
+		private final boolean required;
+
+		/** Whether the parameter is an array or collection, so it may be repeated. */
+		private final boolean repeating;
+
+		/** The cleaned default value, or <code>null</code> if there is none. */
+		private final String defaultValue;
+
+		Param(String name, QName type, WadlParamStyle style, boolean required, boolean repeating,
+				String defaultValue) {
+			this.name = name;
+			this.type = type;
+			this.style = style;
+			this.required = required;
+			this.repeating = repeating;
+			this.defaultValue = defaultValue;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.mapper.RegistryWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+
+/**
+ * An immutable, ordered list of {@link HandlerMethodDescriptor}s for the
+ * request mappings of an application.
+ *
+ * Creating the index does all the reflection, class file parsing (for the
+ * parameter names) and type mapping, so build it once when the request
+ * mappings are known (e.g. on <code>ContextRefreshedEvent</code>) and
+ * generate from it with
+ * {@link WadlGenerator#generate(HandlerMethodDescriptorIndex, String, String, WadlGeneratorOptions)}
+ * as often as needed.
+ *
+ * The descriptors are also grouped by controller class, so the WADL can be
+ * generated one controller (shard) at a time from {@link #getShard(String)}.
+ *
+ * @author Alan Loi
+ */
+public final class HandlerMethodDescriptorIndex {
+
+	@Getter
+	private final List<HandlerMethodDescriptor> descriptors;
+
+	/** The descriptors by controller class name, in the order the controllers first appear. */
+	private final Map<String, List<HandlerMethodDescriptor>> descriptorsByController;
+
+	private final Map<RequestMappingInfo, HandlerMethodDescriptor> descriptorsByMapping;
+
+	/** The mapper the types were mapped with, and the version of its bindings at the time. */
+	private final WadlTypeMapper wadlTypeMapper;
+	private final long wadlTypeMapperVersion;
+
+	HandlerMethodDescriptorIndex(List<HandlerMethodDescriptor> descriptors, WadlTypeMapper wadlTypeMapper,
+			long wadlTypeMapperVersion) {
+		this.descriptors = Collections.unmodifiableList(descriptors);
+		this.wadlTypeMapper = wadlTypeMapper;
+		this.wadlTypeMapperVersion = wadlTypeMapperVersion;
+
+		Map<String, List<HandlerMethodDescriptor>> byController =
+				new LinkedHashMap<String, List<HandlerMethodDescriptor>>();
+		Map<RequestMappingInfo, HandlerMethodDescriptor> byMapping =
+				new HashMap<RequestMappingInfo, HandlerMethodDescriptor>();
+		for (HandlerMethodDescriptor descriptor : descriptors) {
+			byMapping.put(descriptor.getMappingInfo(), descriptor);
+
+			String controllerName = descriptor.getBeanType().getName();
+			List<HandlerMethodDescriptor> controllerDescriptors = byController.get(controllerName);
+			if (controllerDescriptors == null) {
+				controllerDescriptors = new ArrayList<HandlerMethodDescriptor>();
+				byController.put(controllerName, controllerDescriptors);
+			}
+			controllerDescriptors.add(descriptor);
+		}
+		this.descriptorsByController = byController;
+		this.descriptorsByMapping = byMapping;
+	}
+
+	/**
+	 * Describe the request mappings of an application.
+	 *
+	 * @param handlerMapping the Spring MVC request mappings
+	 * @param ignoreControllers list of controller classes to leave out
+	 * @param wadlTypeMapper WADL type mapper to resolve the parameter and return types with
+	 * @param options optional settings e.g. to describe the mappings in parallel
+	 * @return the index
+	 */
+	public static HandlerMethodDescriptorIndex create(RequestMappingHandlerMapping handlerMapping,
+			List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper, WadlGeneratorOptions options) {
+		// before describing, so bindings changed meanwhile are picked up by the next update
+		long version = getVersion(wadlTypeMapper);
+
+		return new HandlerMethodDescriptorIndex(WadlGenerator.describe(handlerMapping, ignoreControllers,
+				wadlTypeMapper, options.getListener(), options.getExecutor()), wadlTypeMapper, version);
+	}
+
+	/**
+	 * Describe the request mappings of an application again, e.g. after a
+	 * context refresh, only doing the reflection and type mapping for the
+	 * mappings which were added or changed since the previous index. The
+	 * descriptors of the other mappings are reused.
+	 *
+	 * @param previous the previous index of the application
+	 * @param handlerMapping the Spring MVC request mappings
+	 * @param ignoreControllers list of controller classes to leave out
+	 * @param wadlTypeMapper WADL type mapper to resolve the parameter and return types with; if it isn't the
+	 *            one the previous index was created with, or its bindings have changed since (see
+	 *            {@link RegistryWadlTypeMapper#getVersion()}), all the mappings are described again
+	 * @param options optional settings e.g. to describe the mappings in parallel
+	 * @return the index
+	 */
+	public static HandlerMethodDescriptorIndex update(HandlerMethodDescriptorIndex previous,
+			RequestMappingHandlerMapping handlerMapping, List<Class<?>> ignoreControllers,
+			WadlTypeMapper wadlTypeMapper, WadlGeneratorOptions options) {
+		long version = getVersion(wadlTypeMapper);
+		if (previous.wadlTypeMapper != wadlTypeMapper || previous.wadlTypeMapperVersion != version) {
+			// the types of the previous descriptors may be mapped differently now
+			previous = null;
+		}
+
+		return new HandlerMethodDescriptorIndex(WadlGenerator.describe(handlerMapping, ignoreControllers,
+				wadlTypeMapper, options.getListener(), options.getExecutor(), previous), wadlTypeMapper, version);
+	}
+
+	/**
+	 * @return the version of the bindings of a mapper whose bindings can
+	 *         change, otherwise always the same
+	 */
+	private static long getVersion(WadlTypeMapper wadlTypeMapper) {
+		return (wadlTypeMapper instanceof RegistryWadlTypeMapper ? ((RegistryWadlTypeMapper) wadlTypeMapper)
+				.getVersion() : 0);
+	}
+
+	/**
+	 * Get the names of the controllers whose request mappings differ from
+	 * those in another index: added, removed or changed.
+	 *
+	 * @param previous the other index
+	 * @return the names of the changed controller classes
+	 */
+	public Set<String> getChangedControllers(HandlerMethodDescriptorIndex previous) {
+		Set<String> changed = new LinkedHashSet<String>();
+
+		for (Map.Entry<String, List<HandlerMethodDescriptor>> entry : this.descriptorsByController.entrySet()) {
+			List<HandlerMethodDescriptor> previousDescriptors = previous.descriptorsByController.get(entry.getKey());
+			if (previousDescriptors == null || !isSame(entry.getValue(), previousDescriptors)) {
+				changed.add(entry.getKey());
+			}
+		}
+
+		for (String controllerName : previous.descriptorsByController.keySet()) {
+			if (!this.descriptorsByController.containsKey(controllerName)) {
+				changed.add(controllerName);
+			}
+		}
+
+		return changed;
+	}
+
+	private static boolean isSame(List<HandlerMethodDescriptor> descriptors, List<HandlerMethodDescriptor> others) {
+		if (descriptors.size() != others.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < descriptors.size(); i++) {
+			if (descriptors.get(i) != others.get(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param mappingInfo a request mapping
+	 * @return its descriptor, or <code>null</code> if it isn't in the index
+	 */
+	HandlerMethodDescriptor getDescriptor(RequestMappingInfo mappingInfo) {
+		return this.descriptorsByMapping.get(mappingInfo);
+	}
+
+	/**
+	 * @return the names of the controller classes, in the order they first
+	 *         appear in the index
+	 */
+	public Set<String> getControllerNames() {
+		return Collections.unmodifiableSet(this.descriptorsByController.keySet());
+	}
+
+	/**
+	 * Get the index of just the request mappings of one controller.
+	 *
+	 * @param controllerName name of the controller class
+	 * @return the index, or <code>null</code> if there is no such controller
+	 */
+	public HandlerMethodDescriptorIndex getShard(String controllerName) {
+		List<HandlerMethodDescriptor> controllerDescriptors = this.descriptorsByController.get(controllerName);
+		return (controllerDescriptors != null ? new HandlerMethodDescriptorIndex(controllerDescriptors,
+				this.wadlTypeMapper, this.wadlTypeMapperVersion) : null);
+	}
+
+	public int size() {
+		return this.descriptors.size();
+	}
+}
@@ -0,0 +1,211 @@
+package com.alanloi.springmvc.wadl;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import org.springframework.core.GenericTypeResolver;
+
+/**
+ * Resolves the generic parameter and return types of handler methods to the
+ * class to look up in the WadlTypeMapper, which only maps classes:
+ *
+ * <ul>
+ * <li>primitives are boxed, e.g. <code>long</code> is mapped as
+ * <code>Long</code></li>
+ * <li>type variables are resolved against the controller class, e.g.
+ * <code>T</code> of <code>CrudController&lt;T&gt;</code> is mapped as
+ * <code>Order</code> for <code>OrderController extends
+ * CrudController&lt;Order&gt;</code></li>
+ * <li>a parameter which is an array or a parameterized collection, e.g.
+ * <code>List&lt;Long&gt;</code>, is a repeating parameter of its element
+ * type</li>
+ * </ul>
+ *
+ * Return types are resolved the same way, except that collections and
+ * arrays are left as they are: they're the type of the whole response.
+ *
+ * A resolver lives for a single describe pass, like a WadlInterner, and
+ * caches its resolutions in a concurrent map, so it can be shared by
+ * parallel workers. The cache is dropped with the resolver, so it doesn't
+ * hold on to the controller classes (or their class loader) between passes.
+ *
+ * @author Alan Loi
+ */
+final class JavaTypeResolver {
+
+	private static final Map<Class<?>, Class<?>> WRAPPER_TYPES = new HashMap<Class<?>, Class<?>>();
+
+	static {
+		WRAPPER_TYPES.put(boolean.class, Boolean.class);
+		WRAPPER_TYPES.put(byte.class, Byte.class);
+		WRAPPER_TYPES.put(char.class, Character.class);
+		WRAPPER_TYPES.put(short.class, Short.class);
+		WRAPPER_TYPES.put(int.class, Integer.class);
+		WRAPPER_TYPES.put(long.class, Long.class);
+		WRAPPER_TYPES.put(float.class, Float.class);
+		WRAPPER_TYPES.put(double.class, Double.class);
+	}
+
+	private final ConcurrentMap<Key, ResolvedType> resolvedTypes = new ConcurrentHashMap<Key, ResolvedType>();
+
+	/**
+	 * @param type the generic type of a handler method parameter
+	 * @param contextClass the controller class, to resolve type variables against
+	 * @return the resolved type
+	 */
+	ResolvedType resolveParameterType(Type type, Class<?> contextClass) {
+		return resolve(type, contextClass, true);
+	}
+
+	/**
+	 * @param type the generic return type of a handler method
+	 * @param contextClass the controller class, to resolve type variables against
+	 * @return the resolved type
+	 */
+	ResolvedType resolveReturnType(Type type, Class<?> contextClass) {
+		return resolve(type, contextClass, false);
+	}
+
+	private ResolvedType resolve(Type type, Class<?> contextClass, boolean parameter) {
+		// the context only matters for generic types
+		Key key = new Key(type, (type instanceof Class ? null : contextClass), parameter);
+
+		ResolvedType resolved = this.resolvedTypes.get(key);
+		if (resolved == null) {
+			resolved = doResolve(type, contextClass, parameter);
+
+			ResolvedType existing = this.resolvedTypes.putIfAbsent(key, resolved);
+			if (existing != null) {
+				resolved = existing;
+			}
+		}
+
+		return resolved;
+	}
+
+	private static ResolvedType doResolve(Type type, Class<?> contextClass, boolean parameter) {
+		Map<TypeVariable<?>, Type> typeVariables = (type instanceof Class ? null : getTypeVariables(contextClass));
+
+		if (parameter) {
+			Type elementType = getElementType(type, typeVariables);
+			if (elementType != null) {
+				return new ResolvedType(toClass(elementType, typeVariables), true);
+			}
+		}
+
+		return new ResolvedType(toClass(type, typeVariables), false);
+	}
+
+	/**
+	 * @return the element type of an array or a parameterized collection, or
+	 *         <code>null</code> if the type is neither
+	 */
+	private static Type getElementType(Type type, Map<TypeVariable<?>, Type> typeVariables) {
+		if (type instanceof Class) {
+			return ((Class<?>) type).getComponentType();
+
+		} else if (type instanceof GenericArrayType) {
+			return ((GenericArrayType) type).getGenericComponentType();
+
+		} else if (type instanceof ParameterizedType) {
+			ParameterizedType parameterizedType = (ParameterizedType) type;
+			Type[] typeArguments = parameterizedType.getActualTypeArguments();
+			if (typeArguments.length == 1 && parameterizedType.getRawType() instanceof Class
+					&& Collection.class.isAssignableFrom((Class<?>) parameterizedType.getRawType())) {
+				return typeArguments[0];
+			}
+
+		} else if (type instanceof TypeVariable) {
+			Type resolved = typeVariables.get(type);
+			if (resolved != null && resolved != type) {
+				return getElementType(resolved, typeVariables);
+			}
+		}
+
+		return null;
+	}
+
+	private static Class<?> toClass(Type type, Map<TypeVariable<?>, Type> typeVariables) {
+		Class<?> javaType;
+		if (type instanceof Class) {
+			javaType = (Class<?>) type;
+		} else if (type instanceof WildcardType) {
+			javaType = toClass(((WildcardType) type).getUpperBounds()[0], typeVariables);
+		} else if (type instanceof GenericArrayType) {
+			Class<?> componentType = toClass(((GenericArrayType) type).getGenericComponentType(), typeVariables);
+			return Array.newInstance(componentType, 0).getClass();
+		} else if (type instanceof ParameterizedType) {
+			javaType = toClass(((ParameterizedType) type).getRawType(), typeVariables);
+		} else if (type instanceof TypeVariable) {
+			// as GenericTypeResolver.resolveType(): an unresolved variable is its bound
+			Type resolved = typeVariables.get(type);
+			javaType = toClass((resolved != null && resolved != type ? resolved : ((TypeVariable<?>) type)
+					.getBounds()[0]), typeVariables);
+		} else {
+			javaType = Object.class;
+		}
+
+		Class<?> wrapperType = WRAPPER_TYPES.get(javaType);
+		return (wrapperType != null ? wrapperType : javaType);
+	}
+
+	/**
+	 * GenericTypeResolver's map of the type variables of a class uses the
+	 * raw TypeVariable type, so copy it.
+	 */
+	private static Map<TypeVariable<?>, Type> getTypeVariables(Class<?> contextClass) {
+		Map<TypeVariable<?>, Type> typeVariables = new HashMap<TypeVariable<?>, Type>();
+		for (Map.Entry<?, Type> entry : GenericTypeResolver.getTypeVariableMap(contextClass).entrySet()) {
+			typeVariables.put((TypeVariable<?>) entry.getKey(), entry.getValue());
+		}
+		return typeVariables;
+	}
+
+	int getCacheSize() {
+		return this.resolvedTypes.size();
+	}
+
+	/**
+	 * The class to map a Java type as.
+	 */
+	@Getter
+	@EqualsAndHashCode
+	static final class ResolvedType {
+
+		private final Class<?> javaType;
+
+		/** Whether it's the element type of an array or collection parameter. */
+		private final boolean repeating;
+
+		ResolvedType(Class<?> javaType, boolean repeating) {
+			this.javaType = javaType;
+			this.repeating = repeating;
+		}
+	}
+
+	@EqualsAndHashCode
+	private static final class Key {
+
+		private final Type type;
+		private final Class<?> contextClass;
+		private final boolean parameter;
+
+		Key(Type type, Class<?> contextClass, boolean parameter) {
+			this.type = type;
+			this.contextClass = contextClass;
+			this.parameter = parameter;
+		}
+	}
+}
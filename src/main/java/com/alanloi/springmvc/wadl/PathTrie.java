@@ -0,0 +1,204 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A trie of URL path segments, used to build nested WADL resources where
+ * everything mapped to the same path ends up in a single resource.
+ *
+ * Children are kept in insertion order so walking the trie is
+ * deterministic. Looking up a path (or path prefix) costs O(depth).
+ *
+ * Not thread-safe - build it on one thread, then read it from many.
+ *
+ * @param <T> the type of the values stored at each path, e.g. WADL methods
+ *
+ * @author Alan Loi
+ */
+public class PathTrie<T> {
+
+	private static final char SEPARATOR = '/';
+
+	private final Node<T> root = new Node<T>("");
+
+	/**
+	 * Add a value at a path, creating the intermediate nodes as needed.
+	 *
+	 * @param path the path e.g. <code>/orders/{id}</code>
+	 * @param value the value to add
+	 */
+	public void add(String path, T value) {
+		getOrCreateNode(path).values.add(value);
+	}
+
+	/**
+	 * Add values at a path, creating the node even if there are no values.
+	 *
+	 * @param path the path e.g. <code>/orders/{id}</code>
+	 * @param values the values to add
+	 */
+	public void addAll(String path, Collection<? extends T> values) {
+		getOrCreateNode(path).values.addAll(values);
+	}
+
+	/**
+	 * Get the values stored at exactly the given path.
+	 *
+	 * @param path the path e.g. <code>/orders/{id}</code>
+	 * @return the values, or an empty list if there's no such path
+	 */
+	public List<T> get(String path) {
+		Node<T> node = findNode(path);
+		return (node != null ? Collections.unmodifiableList(node.values) : Collections.<T> emptyList());
+	}
+
+	/**
+	 * Check whether any path has been added which starts with the given
+	 * segments.
+	 *
+	 * @param pathPrefix the path prefix e.g. <code>/orders</code>
+	 * @return <code>true</code> if there's a path with that prefix
+	 */
+	public boolean containsPrefix(String pathPrefix) {
+		return findNode(pathPrefix) != null;
+	}
+
+	/**
+	 * Check whether the given path starts with (or is) a path which has
+	 * values, e.g. whether <code>/orders/{id}</code> is below a path prefix
+	 * that has been added.
+	 *
+	 * @param path the path e.g. <code>/orders/{id}</code>
+	 * @return <code>true</code> if a path along the given path has values
+	 */
+	public boolean containsPrefixOf(String path) {
+		Node<T> node = this.root;
+
+		for (String segment : split(path)) {
+			if (!node.values.isEmpty()) {
+				return true;
+			}
+
+			node = node.children.get(segment);
+			if (node == null) {
+				return false;
+			}
+		}
+
+		return !node.values.isEmpty();
+	}
+
+	/**
+	 * Walk the trie depth first, calling the visitor for each resource.
+	 *
+	 * Chains of nodes without values and with only a single child are
+	 * collapsed into one resource (e.g. <code>{customerId}/orders</code>).
+	 * Top-level resources get a path starting with <code>/</code>, nested
+	 * resources get a path relative to their parent.
+	 *
+	 * @param visitor the visitor
+	 * @throws E if the visitor fails
+	 */
+	public <E extends Exception> void accept(Visitor<T, E> visitor) throws E {
+		if (!this.root.values.isEmpty()) {
+			visitor.startResource(String.valueOf(SEPARATOR), this.root.values);
+			visitor.endResource();
+		}
+
+		for (Node<T> child : this.root.children.values()) {
+			visit(child, SEPARATOR + child.segment, visitor);
+		}
+	}
+
+	private <E extends Exception> void visit(Node<T> node, String path, Visitor<T, E> visitor) throws E {
+		while (node.values.isEmpty() && node.children.size() == 1) {
+			node = node.children.values().iterator().next();
+			path = path + SEPARATOR + node.segment;
+		}
+
+		visitor.startResource(path, node.values);
+
+		for (Node<T> child : node.children.values()) {
+			visit(child, child.segment, visitor);
+		}
+
+		visitor.endResource();
+	}
+
+	private Node<T> getOrCreateNode(String path) {
+		Node<T> node = this.root;
+
+		for (String segment : split(path)) {
+			Node<T> child = node.children.get(segment);
+			if (child == null) {
+				child = new Node<T>(segment);
+				node.children.put(segment, child);
+			}
+			node = child;
+		}
+
+		return node;
+	}
+
+	private Node<T> findNode(String path) {
+		Node<T> node = this.root;
+
+		for (String segment : split(path)) {
+			node = node.children.get(segment);
+			if (node == null) {
+				return null;
+			}
+		}
+
+		return node;
+	}
+
+	private static String[] split(String path) {
+		String[] segments = StringUtils.split(path, SEPARATOR);
+		return (segments != null ? segments : new String[0]);
+	}
+
+	/**
+	 * Callback for walking the trie.
+	 *
+	 * @param <T> the type of the values
+	 * @param <E> the type of exception the visitor may throw
+	 */
+	public interface Visitor<T, E extends Exception> {
+
+		/**
+		 * Called when entering a resource. Nested resources are visited before
+		 * the matching {@link #endResource()} call.
+		 *
+		 * @param path the path of the resource, relative to its parent
+		 * @param values the values stored at the resource
+		 * @throws E if the visitor fails
+		 */
+		void startResource(String path, List<T> values) throws E;
+
+		/**
+		 * Called when leaving a resource.
+		 *
+		 * @throws E if the visitor fails
+		 */
+		void endResource() throws E;
+	}
+
+	private static class Node<T> {
+
+		private final String segment;
+		private final List<T> values = new ArrayList<T>(2);
+		private final Map<String, Node<T>> children = new LinkedHashMap<String, Node<T>>(4);
+
+		Node(String segment) {
+			this.segment = segment;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package com.alanloi.springmvc.wadl;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import net.java.dev.wadl._2009._02.WadlMethod;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+
+/**
+ * Generates a WADL from Spring MVC request mappings straight to an
+ * XMLStreamWriter, without building the WadlApplication object graph.
+ *
+ * The <code>application</code>, <code>resources</code> and
+ * <code>resource</code> elements are written directly and only the
+ * <code>method</code> elements are marshalled as JAXB fragments one at a
+ * time. The output is equivalent to marshalling the WadlApplication from
+ * {@link WadlGenerator}.
+ *
+ * Resources are merged by path, so everything under a top-level resource
+ * (e.g. <code>/orders</code>) has to be known before it can be written. The
+ * request mappings are grouped by the first segment of their paths, then
+ * each group is described, written and flushed before the next one is
+ * described. Apart from a reference to each request mapping, memory use is
+ * bounded by the largest top-level resource rather than by the number of
+ * request mappings, and the first resource is sent before the rest have
+ * been described.
+ *
+ * @author Alan Loi
+ */
+public class StreamingWadlGenerator {
+
+	static final String WADL_NAMESPACE = "http://wadl.dev.java.net/2009/02";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final WadlTypeMapper DEFAULT_WADL_TYPE_MAPPER = new JsonBasedWadlTypeMapper();
+
+	/** The methods are written and discarded one at a time, so there's nothing to share. */
+	private static final WadlInterner NOT_INTERNING = new WadlInterner(false);
+
+	/** Group of the request mappings of the root path. */
+	private static final String ROOT_SEGMENT = "";
+
+	/**
+	 * Generates a WADL from Spring MVC request mappings and writes it to an
+	 * output stream as UTF-8 encoded XML.
+	 *
+	 * @param handlerMapping the Spring MVC request mappings
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param applicationName name of the application
+	 * @param ignoreControllers list of controller classes to ignore
+	 * @param wadlTypeMapper custom WADL type mapper to use
+	 * @param out the stream to write to (not closed)
+	 *
+	 * @throws XMLStreamException if the WADL could not be written
+	 *
+	 * @see WadlGenerator#generate(RequestMappingHandlerMapping, HttpServletRequest, String, List, WadlTypeMapper)
+	 */
+	public static void generate(RequestMappingHandlerMapping handlerMapping, HttpServletRequest request,
+			String applicationName, List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper,
+			OutputStream out) throws XMLStreamException {
+
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+		writer.writeStartDocument(ENCODING, "1.0");
+		generate(handlerMapping, request, applicationName, ignoreControllers, wadlTypeMapper, writer);
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	public static void generate(RequestMappingHandlerMapping handlerMapping, HttpServletRequest request,
+			String applicationName, List<Class<?>> ignoreControllers, OutputStream out)
+			throws XMLStreamException {
+		generate(handlerMapping, request, applicationName, ignoreControllers, DEFAULT_WADL_TYPE_MAPPER, out);
+	}
+
+	/**
+	 * Generates a WADL <code>application</code> element from Spring MVC
+	 * request mappings and writes it to an XMLStreamWriter.
+	 *
+	 * @param handlerMapping the Spring MVC request mappings
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param applicationName name of the application
+	 * @param ignoreControllers list of controller classes to ignore
+	 * @param wadlTypeMapper custom WADL type mapper to use
+	 * @param writer the writer to write to (the document is not started or ended)
+	 *
+	 * @throws XMLStreamException if the WADL could not be written
+	 */
+	public static void generate(RequestMappingHandlerMapping handlerMapping, HttpServletRequest request,
+			String applicationName, List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper,
+			XMLStreamWriter writer) throws XMLStreamException {
+
+		Marshaller marshaller = WadlMarshaller.createFragmentMarshaller();
+
+		writer.setDefaultNamespace(WADL_NAMESPACE);
+		writer.writeStartElement(WADL_NAMESPACE, "application");
+		writer.writeDefaultNamespace(WADL_NAMESPACE);
+
+		writer.writeEmptyElement(WADL_NAMESPACE, "doc");
+		writeAttribute(writer, "title", applicationName);
+
+		writer.writeStartElement(WADL_NAMESPACE, "resources");
+		writeAttribute(writer, "base", WadlGenerator.getBaseUrl(request));
+		writer.flush();
+
+		JavaTypeResolver typeResolver = new JavaTypeResolver();
+		ResourceWriter resourceWriter = new ResourceWriter(writer, marshaller);
+
+		Map<String, List<Map.Entry<RequestMappingInfo, HandlerMethod>>> groups = groupByTopLevelSegment(
+				handlerMapping, ignoreControllers);
+		for (Map.Entry<String, List<Map.Entry<RequestMappingInfo, HandlerMethod>>> group : groups.entrySet()) {
+			// only this group's methods are kept, until they're written
+			PathTrie<WadlMethod> pathTrie = new PathTrie<WadlMethod>();
+
+			for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : group.getValue()) {
+				HandlerMethodDescriptor descriptor = WadlGenerator.describe(entry.getKey(), entry.getValue(),
+						wadlTypeMapper, typeResolver, NOT_INTERNING, null);
+
+				List<String> paths = descriptor.getPaths();
+				for (String path : paths) {
+					if (!getTopLevelSegment(path).equals(group.getKey())) {
+						continue;  // written with another group
+					}
+
+					// a method id may only occur once, so the other paths refer to it
+					pathTrie.addAll(path, (path.equals(paths.get(0))
+							? WadlGenerator.mapToWadlMethods(descriptor, NOT_INTERNING, null)
+							: WadlGenerator.mapToWadlMethodReferences(descriptor)));
+				}
+			}
+
+			pathTrie.accept(resourceWriter);
+			writer.flush();
+		}
+
+		writer.writeEndElement();  // resources
+		writer.writeEndElement();  // application
+		writer.flush();
+	}
+
+	/**
+	 * Group the request mappings which aren't ignored by the first segment
+	 * of their paths, in the order the top-level resources are merged in by
+	 * {@link WadlGenerator}: the root path first, then by first occurrence. A
+	 * request mapping with paths under several top-level resources is in
+	 * each of their groups.
+	 */
+	static Map<String, List<Map.Entry<RequestMappingInfo, HandlerMethod>>> groupByTopLevelSegment(
+			RequestMappingHandlerMapping handlerMapping, List<Class<?>> ignoreControllers) {
+		Map<String, List<Map.Entry<RequestMappingInfo, HandlerMethod>>> groups =
+				new LinkedHashMap<String, List<Map.Entry<RequestMappingInfo, HandlerMethod>>>();
+		groups.put(ROOT_SEGMENT, new ArrayList<Map.Entry<RequestMappingInfo, HandlerMethod>>());
+
+		Set<Class<?>> ignoredControllers = new HashSet<Class<?>>(ignoreControllers);
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+			if (WadlGenerator.isIgnored(entry.getValue(), ignoredControllers)) {
+				continue;  // skip
+			}
+
+			Set<String> segments = new LinkedHashSet<String>();
+			for (String path : WadlGenerator.getResourcePaths(entry.getKey())) {
+				segments.add(getTopLevelSegment(path));
+			}
+
+			for (String segment : segments) {
+				List<Map.Entry<RequestMappingInfo, HandlerMethod>> group = groups.get(segment);
+				if (group == null) {
+					group = new ArrayList<Map.Entry<RequestMappingInfo, HandlerMethod>>();
+					groups.put(segment, group);
+				}
+				group.add(entry);
+			}
+		}
+
+		if (groups.get(ROOT_SEGMENT).isEmpty()) {
+			groups.remove(ROOT_SEGMENT);
+		}
+
+		return groups;
+	}
+
+	/**
+	 * @return the first segment of a path, as split by {@link PathTrie}, or
+	 *         an empty string for the root path
+	 */
+	static String getTopLevelSegment(String path) {
+		String[] segments = StringUtils.split(path, '/');
+		return (segments != null && segments.length > 0 ? segments[0] : ROOT_SEGMENT);
+	}
+
+	/**
+	 * Writes a <code>resource</code> element for each path in the trie.
+	 */
+	private static class ResourceWriter implements PathTrie.Visitor<WadlMethod, XMLStreamException> {
+
+		private final XMLStreamWriter writer;
+		private final Marshaller marshaller;
+
+		ResourceWriter(XMLStreamWriter writer, Marshaller marshaller) {
+			this.writer = writer;
+			this.marshaller = marshaller;
+		}
+
+		public void startResource(String path, List<WadlMethod> wadlMethods) throws XMLStreamException {
+			this.writer.writeStartElement(WADL_NAMESPACE, "resource");
+			writeAttribute(this.writer, "path", path);
+
+			for (WadlMethod wadlMethod : wadlMethods) {
+				marshal(this.marshaller, wadlMethod, this.writer);
+			}
+		}
+
+		public void endResource() throws XMLStreamException {
+			this.writer.writeEndElement();  // resource
+		}
+	}
+
+	private static void writeAttribute(XMLStreamWriter writer, String name, String value)
+			throws XMLStreamException {
+		if (value != null) {
+			writer.writeAttribute(name, value);
+		}
+	}
+
+	private static void marshal(Marshaller marshaller, Object fragment, XMLStreamWriter writer)
+			throws XMLStreamException {
+		try {
+			marshaller.marshal(fragment, writer);
+		} catch (JAXBException e) {
+			throw new XMLStreamException("Could not marshal WADL fragment: " + fragment, e);
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package com.alanloi.springmvc.wadl;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.servlet.http.HttpServletRequest;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Selects part of the request mappings, to generate a partial WADL e.g. of
+ * just <code>/orders/**</code>.
+ *
+ * Mappings can be included and excluded by controller class, package (and
+ * its sub-packages), annotation (on the controller class or the handler
+ * method) and path prefix. A mapping path is in the view if it matches none
+ * of the excludes and, if there are any includes, at least one of them.
+ *
+ * Filters are immutable and normalized, so equal filters can be used as a
+ * cache key. Matching only takes hash lookups and a walk of a path prefix
+ * trie, regardless of the number of criteria.
+ *
+ * @author Alan Loi
+ */
+@EqualsAndHashCode(of = { "includeControllers", "excludeControllers", "includePackages", "excludePackages",
+		"includeAnnotations", "excludeAnnotations", "includePaths", "excludePaths" })
+@ToString(of = { "includeControllers", "excludeControllers", "includePackages", "excludePackages",
+		"includeAnnotations", "excludeAnnotations", "includePaths", "excludePaths" })
+@Getter
+public final class WadlFilter {
+
+	/** Selects everything. */
+	public static final WadlFilter NONE = new Builder().build();
+
+	private static final char PACKAGE_SEPARATOR = '.';
+	private static final char PATH_SEPARATOR = '/';
+
+	private final Set<String> includeControllers;
+	private final Set<String> excludeControllers;
+	private final Set<String> includePackages;
+	private final Set<String> excludePackages;
+	private final Set<String> includeAnnotations;
+	private final Set<String> excludeAnnotations;
+	private final Set<String> includePaths;
+	private final Set<String> excludePaths;
+
+	private final PathTrie<String> includePathTrie;
+	private final PathTrie<String> excludePathTrie;
+
+	private WadlFilter(Builder builder) {
+		this.includeControllers = Collections.unmodifiableSet(new TreeSet<String>(builder.includeControllers));
+		this.excludeControllers = Collections.unmodifiableSet(new TreeSet<String>(builder.excludeControllers));
+		this.includePackages = Collections.unmodifiableSet(new TreeSet<String>(builder.includePackages));
+		this.excludePackages = Collections.unmodifiableSet(new TreeSet<String>(builder.excludePackages));
+		this.includeAnnotations = Collections.unmodifiableSet(new TreeSet<String>(builder.includeAnnotations));
+		this.excludeAnnotations = Collections.unmodifiableSet(new TreeSet<String>(builder.excludeAnnotations));
+		this.includePaths = Collections.unmodifiableSet(new TreeSet<String>(builder.includePaths));
+		this.excludePaths = Collections.unmodifiableSet(new TreeSet<String>(builder.excludePaths));
+
+		this.includePathTrie = createPathTrie(this.includePaths);
+		this.excludePathTrie = createPathTrie(this.excludePaths);
+	}
+
+	/**
+	 * Create a filter from the parameters of an HTTP request: any number of
+	 * <code>includeController</code>, <code>excludeController</code>,
+	 * <code>includePackage</code>, <code>excludePackage</code>,
+	 * <code>includeAnnotation</code>, <code>excludeAnnotation</code>,
+	 * <code>includePath</code> and <code>excludePath</code> values. Other
+	 * parameters are ignored.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @return the filter
+	 */
+	public static WadlFilter fromRequest(HttpServletRequest request) {
+		Builder builder = new Builder();
+		add(builder.includeControllers, request.getParameterValues("includeController"));
+		add(builder.excludeControllers, request.getParameterValues("excludeController"));
+		addPackages(builder.includePackages, request.getParameterValues("includePackage"));
+		addPackages(builder.excludePackages, request.getParameterValues("excludePackage"));
+		add(builder.includeAnnotations, request.getParameterValues("includeAnnotation"));
+		add(builder.excludeAnnotations, request.getParameterValues("excludeAnnotation"));
+		addPaths(builder.includePaths, request.getParameterValues("includePath"));
+		addPaths(builder.excludePaths, request.getParameterValues("excludePath"));
+		return builder.build();
+	}
+
+	/**
+	 * @return whether this filter selects everything
+	 */
+	public boolean isEmpty() {
+		return !hasIncludes() && this.excludeControllers.isEmpty() && this.excludePackages.isEmpty()
+				&& this.excludeAnnotations.isEmpty() && this.excludePaths.isEmpty();
+	}
+
+	private boolean hasIncludes() {
+		return !this.includeControllers.isEmpty() || !this.includePackages.isEmpty()
+				|| !this.includeAnnotations.isEmpty() || !this.includePaths.isEmpty();
+	}
+
+	/**
+	 * Check whether a path of a request mapping is in the view.
+	 *
+	 * @param descriptor the request mapping
+	 * @param path one of its paths
+	 * @return <code>true</code> if it is
+	 */
+	public boolean matches(HandlerMethodDescriptor descriptor, String path) {
+		if (isEmpty()) {
+			return true;
+		}
+
+		Class<?> controllerClass = descriptor.getBeanType();
+		if (this.excludeControllers.contains(controllerClass.getName())
+				|| containsPackageOf(this.excludePackages, controllerClass)
+				|| containsAny(this.excludeAnnotations, descriptor.getAnnotationTypes())
+				|| this.excludePathTrie.containsPrefixOf(path)) {
+			return false;
+		}
+
+		if (!hasIncludes()) {
+			return true;
+		}
+
+		return this.includeControllers.contains(controllerClass.getName())
+				|| containsPackageOf(this.includePackages, controllerClass)
+				|| containsAny(this.includeAnnotations, descriptor.getAnnotationTypes())
+				|| this.includePathTrie.containsPrefixOf(path);
+	}
+
+	/**
+	 * Check the package of a class and all its parent packages.
+	 */
+	private static boolean containsPackageOf(Set<String> packages, Class<?> clazz) {
+		if (packages.isEmpty()) {
+			return false;
+		}
+
+		String packageName = clazz.getName();
+		int end = packageName.lastIndexOf(PACKAGE_SEPARATOR);
+		while (end > 0) {
+			packageName = packageName.substring(0, end);
+			if (packages.contains(packageName)) {
+				return true;
+			}
+			end = packageName.lastIndexOf(PACKAGE_SEPARATOR);
+		}
+
+		return false;
+	}
+
+	private static boolean containsAny(Set<String> set, Set<String> values) {
+		if (set.isEmpty()) {
+			return false;
+		}
+
+		for (String value : values) {
+			if (set.contains(value)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static PathTrie<String> createPathTrie(Set<String> paths) {
+		PathTrie<String> pathTrie = new PathTrie<String>();
+		for (String path : paths) {
+			pathTrie.add(path, path);
+		}
+		return pathTrie;
+	}
+
+	private static void add(Set<String> set, String[] values) {
+		if (values != null) {
+			for (String value : values) {
+				if (StringUtils.isNotBlank(value)) {
+					set.add(value.trim());
+				}
+			}
+		}
+	}
+
+	private static void addPackages(Set<String> set, String[] values) {
+		if (values != null) {
+			for (String value : values) {
+				if (StringUtils.isNotBlank(value)) {
+					set.add(normalizePackage(value));
+				}
+			}
+		}
+	}
+
+	private static void addPaths(Set<String> set, String[] values) {
+		if (values != null) {
+			for (String value : values) {
+				if (value != null) {
+					set.add(normalizePath(value));
+				}
+			}
+		}
+	}
+
+	private static String normalizePackage(String packageName) {
+		return StringUtils.strip(packageName.trim(), String.valueOf(PACKAGE_SEPARATOR));
+	}
+
+	/**
+	 * e.g. <code>orders//{id}/</code> becomes <code>/orders/{id}</code>.
+	 */
+	private static String normalizePath(String path) {
+		String[] segments = StringUtils.split(path.trim(), PATH_SEPARATOR);
+		return PATH_SEPARATOR + StringUtils.join(segments, PATH_SEPARATOR);
+	}
+
+	/**
+	 * Builds a {@link WadlFilter}. Not thread-safe.
+	 */
+	public static class Builder {
+
+		private final Set<String> includeControllers = new TreeSet<String>();
+		private final Set<String> excludeControllers = new TreeSet<String>();
+		private final Set<String> includePackages = new TreeSet<String>();
+		private final Set<String> excludePackages = new TreeSet<String>();
+		private final Set<String> includeAnnotations = new TreeSet<String>();
+		private final Set<String> excludeAnnotations = new TreeSet<String>();
+		private final Set<String> includePaths = new TreeSet<String>();
+		private final Set<String> excludePaths = new TreeSet<String>();
+
+		public Builder includeController(Class<?> controllerClass) {
+			this.includeControllers.add(controllerClass.getName());
+			return this;
+		}
+
+		public Builder excludeController(Class<?> controllerClass) {
+			this.excludeControllers.add(controllerClass.getName());
+			return this;
+		}
+
+		public Builder includePackage(String packageName) {
+			this.includePackages.add(normalizePackage(packageName));
+			return this;
+		}
+
+		public Builder excludePackage(String packageName) {
+			this.excludePackages.add(normalizePackage(packageName));
+			return this;
+		}
+
+		public Builder includeAnnotation(Class<? extends Annotation> annotationType) {
+			this.includeAnnotations.add(annotationType.getName());
+			return this;
+		}
+
+		public Builder excludeAnnotation(Class<? extends Annotation> annotationType) {
+			this.excludeAnnotations.add(annotationType.getName());
+			return this;
+		}
+
+		public Builder includePath(String pathPrefix) {
+			this.includePaths.add(normalizePath(pathPrefix));
+			return this;
+		}
+
+		public Builder excludePath(String pathPrefix) {
+			this.excludePaths.add(normalizePath(pathPrefix));
+			return this;
+		}
+
+		public WadlFilter build() {
+			return new WadlFilter(this);
+		}
+	}
+}
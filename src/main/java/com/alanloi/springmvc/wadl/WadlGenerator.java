@@ -1,13 +1,24 @@
 package com.alanloi.springmvc.wadl;
 
+import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.xml.namespace.QName;
@@ -37,6 +48,9 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 
 import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
 import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationCounter;
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationListener;
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationPhase;
 
 /**
  * Generates a WadlApplication from Spring MVC request mappings.
@@ -46,7 +60,19 @@ import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
 @Log4j
 public class WadlGenerator {
 	
+	/** Request parameter naming the shard (controller class) of a sharded WADL. */
+	public static final String SHARD_PARAMETER = "shard";
+
 	private static final WadlTypeMapper DEFAULT_WADL_TYPE_MAPPER = new JsonBasedWadlTypeMapper();
+
+	private static final WadlGeneratorOptions DEFAULT_OPTIONS = new WadlGeneratorOptions();
+
+	/** Thread-safe, and caches the parameter names per class. */
+	private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER =
+			new LocalVariableTableParameterNameDiscoverer();
+
+	/** Don't bother handing out tiny chunks of work to the executor. */
+	private static final int MIN_PARALLEL_CHUNK_SIZE = 16;
 	
 	/**
 	 * Generates a WadlApplication from Spring MVC request mappings.
@@ -55,6 +81,9 @@ public class WadlGenerator {
 	 * 
 	 * <code>RequestMapping</code>
 	 *   Mapped to a WADL <code>application/resources/resource</code> element 
+	 *   for each URL pattern. Mappings sharing a path are merged into a single
+	 *   resource and sub-paths are nested as child <code>resource</code>
+	 *   elements.
 	 * 
 	 *   Parameters:
 	 *    - value: mapped to <code>resource/@path<code>
@@ -83,12 +112,109 @@ public class WadlGenerator {
 	 * @param applicationName name of the application
 	 * @param ignoreControllers list of controller classes to ignore
 	 * @param wadlTypeMapper custom WADL type mapper to use
+	 * @param options optional settings e.g. to generate in parallel
+	 * 
+	 * @return a WadlApplication describing the application's API
+	 */
+	public static WadlApplication generate(RequestMappingHandlerMapping handlerMapping,
+			HttpServletRequest request, String applicationName, List<Class<?>> ignoreControllers,
+			WadlTypeMapper wadlTypeMapper, WadlGeneratorOptions options) {
+		return generate(handlerMapping, getBaseUrl(request), applicationName, ignoreControllers, wadlTypeMapper,
+				options);
+	}
+
+	/**
+	 * Generates a WadlApplication from Spring MVC request mappings, for use
+	 * outside of a HTTP request e.g. at build time.
+	 * 
+	 * @param handlerMapping the Spring MVC request mappings
+	 * @param baseUrl the base URL of the resources (may be a placeholder)
+	 * @param applicationName name of the application
+	 * @param ignoreControllers list of controller classes to ignore
+	 * @param wadlTypeMapper custom WADL type mapper to use
+	 * @param options optional settings e.g. to generate in parallel
 	 * 
 	 * @return a WadlApplication describing the application's API
+	 * 
+	 * @see #generate(RequestMappingHandlerMapping, HttpServletRequest, String, List, WadlTypeMapper, WadlGeneratorOptions)
 	 */
+	public static WadlApplication generate(RequestMappingHandlerMapping handlerMapping, String baseUrl,
+			String applicationName, List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper,
+			WadlGeneratorOptions options) {
+		long start = (options.getListener() != null ? System.nanoTime() : 0);
+
+		HandlerMethodDescriptorIndex index = HandlerMethodDescriptorIndex.create(handlerMapping, ignoreControllers,
+				wadlTypeMapper, options);
+
+		return generate(index, WadlFilter.NONE, baseUrl, applicationName, options, null, start);
+	}
+
 	public static WadlApplication generate(RequestMappingHandlerMapping handlerMapping,
 			HttpServletRequest request, String applicationName, List<Class<?>> ignoreControllers,
 			WadlTypeMapper wadlTypeMapper) {
+		return generate(handlerMapping, request, applicationName, ignoreControllers, wadlTypeMapper,
+				DEFAULT_OPTIONS);
+	}
+
+	public static WadlApplication generate(RequestMappingHandlerMapping handlerMapping,
+			HttpServletRequest request, String applicationName, List<Class<?>> ignoreControllers) {
+		return generate(handlerMapping, request, applicationName, ignoreControllers, DEFAULT_WADL_TYPE_MAPPER);
+	}
+
+	/**
+	 * Generates a WadlApplication from a prebuilt index of the request
+	 * mappings. No reflection or type mapping is done, so this is much
+	 * cheaper than generating from the request mappings themselves.
+	 *
+	 * @param index the described request mappings
+	 * @param baseUrl base URL of the application's resources
+	 * @param applicationName name of the application
+	 * @param options optional settings
+	 *
+	 * @return a WadlApplication describing the application's API
+	 */
+	public static WadlApplication generate(HandlerMethodDescriptorIndex index, String baseUrl,
+			String applicationName, WadlGeneratorOptions options) {
+		return generate(index, WadlFilter.NONE, baseUrl, applicationName, options);
+	}
+
+	/**
+	 * Generates a partial WadlApplication of just the request mappings
+	 * selected by a filter, from a prebuilt index of the request mappings.
+	 *
+	 * @param index the described request mappings
+	 * @param filter selects the request mappings to include
+	 * @param baseUrl base URL of the application's resources
+	 * @param applicationName name of the application
+	 * @param options optional settings
+	 *
+	 * @return a WadlApplication describing the selected part of the application's API
+	 */
+	public static WadlApplication generate(HandlerMethodDescriptorIndex index, WadlFilter filter, String baseUrl,
+			String applicationName, WadlGeneratorOptions options) {
+		return generate(index, filter, baseUrl, applicationName, options, null,
+				(options.getListener() != null ? System.nanoTime() : 0));
+	}
+
+	/**
+	 * Generates a WadlApplication from a prebuilt index, reusing the WADL
+	 * methods of descriptors which have been mapped before, e.g. by a
+	 * previous generation from an index which shared those descriptors.
+	 *
+	 * @param wadlMethodsByDescriptor the WADL methods of the descriptors mapped so far; the newly mapped ones are
+	 *            added
+	 */
+	static WadlApplication generate(HandlerMethodDescriptorIndex index, String baseUrl, String applicationName,
+			WadlGeneratorOptions options, Map<HandlerMethodDescriptor, List<WadlMethod>> wadlMethodsByDescriptor) {
+		return generate(index, WadlFilter.NONE, baseUrl, applicationName, options, wadlMethodsByDescriptor,
+				(options.getListener() != null ? System.nanoTime() : 0));
+	}
+
+	private static WadlApplication generate(HandlerMethodDescriptorIndex index, WadlFilter filter, String baseUrl,
+			String applicationName, WadlGeneratorOptions options,
+			Map<HandlerMethodDescriptor, List<WadlMethod>> wadlMethodsByDescriptor, long start) {
+		WadlGenerationListener listener = options.getListener();
+		WadlInterner interner = new WadlInterner(options.isInterning());
 
 		WadlApplication result = new WadlApplication();
 
@@ -96,88 +222,425 @@ public class WadlGenerator {
 		result.getDoc().add(doc);
 
 		WadlResources wadlResources = new WadlResources();
-
-		String baseUrl = getBaseUrl(request);
 		wadlResources.setBase(baseUrl);
 
+		PathTrie<WadlMethod> pathTrie = new PathTrie<WadlMethod>();
+		for (HandlerMethodDescriptor descriptor : index.getDescriptors()) {
+			List<WadlMethod> wadlMethods = null;
+			for (String path : descriptor.getPaths()) {
+				if (filter.matches(descriptor, path)) {
+					if (wadlMethods == null) {
+						wadlMethods = getWadlMethods(descriptor, wadlMethodsByDescriptor, interner, listener,
+								options.isCanonical());
+						pathTrie.addAll(path, wadlMethods);
+					} else {
+						// a method id may only occur once, so the other paths refer to it
+						pathTrie.addAll(path, mapToWadlMethodReferences(descriptor));
+					}
+				}
+			}
+		}
+
+		List<WadlResource> resources = mapToWadlResources(pathTrie, listener);
+		if (options.isCanonical()) {
+			CanonicalOrder.sortResources(resources);
+		}
+		wadlResources.getResource().addAll(resources);
+
+		result.getResources().add(wadlResources);
+
+		if (listener != null) {
+			listener.generationCompleted(System.nanoTime() - start);
+		}
+
+		return result;
+	}
+
+	private static List<WadlMethod> getWadlMethods(HandlerMethodDescriptor descriptor,
+			Map<HandlerMethodDescriptor, List<WadlMethod>> wadlMethodsByDescriptor, WadlInterner interner,
+			WadlGenerationListener listener, boolean canonical) {
+		List<WadlMethod> wadlMethods = (wadlMethodsByDescriptor != null ? wadlMethodsByDescriptor.get(descriptor)
+				: null);
+		if (wadlMethods == null) {
+			wadlMethods = mapToWadlMethods(descriptor, interner, listener);
+			if (canonical) {
+				CanonicalOrder.sortMethods(wadlMethods);
+			}
+
+			if (wadlMethodsByDescriptor != null) {
+				wadlMethodsByDescriptor.put(descriptor, wadlMethods);
+			}
+		}
+
+		return wadlMethods;
+	}
+
+	/**
+	 * Generates a small index of a sharded WADL: for each controller a
+	 * <code>resources</code> element, documented with the controller class
+	 * name and a link to its shard, listing the paths of its resources (but
+	 * not their methods).
+	 *
+	 * The link is relative to the index document, e.g.
+	 * <code>?shard=com.example.OrderController</code>. Generate a shard with
+	 * {@link HandlerMethodDescriptorIndex#getShard(String)}.
+	 *
+	 * @param index the described request mappings
+	 * @param baseUrl base URL of the application's resources
+	 * @param applicationName name of the application
+	 *
+	 * @return a WadlApplication listing the shards
+	 */
+	public static WadlApplication generateShardIndex(HandlerMethodDescriptorIndex index, String baseUrl,
+			String applicationName) {
+		WadlApplication result = new WadlApplication();
+		result.getDoc().add(createWadlDoc(applicationName));
+
+		for (String controllerName : index.getControllerNames()) {
+			WadlResources wadlResources = new WadlResources();
+			wadlResources.setBase(baseUrl);
+
+			WadlDoc doc = createWadlDoc(controllerName);
+			doc.getContent().add(getShardLink(controllerName));
+			wadlResources.getDoc().add(doc);
+
+			Set<String> paths = new LinkedHashSet<String>();
+			for (HandlerMethodDescriptor descriptor : index.getShard(controllerName).getDescriptors()) {
+				paths.addAll(descriptor.getPaths());
+			}
+
+			for (String path : paths) {
+				WadlResource wadlResource = new WadlResource();
+				wadlResource.setPath(path);
+				wadlResources.getResource().add(wadlResource);
+			}
+
+			result.getResources().add(wadlResources);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get the link from a shard index to a shard, relative to the index.
+	 *
+	 * @param controllerName name of the controller class of the shard
+	 * @return the link
+	 */
+	public static String getShardLink(String controllerName) {
+		try {
+			return "?" + SHARD_PARAMETER + "=" + URLEncoder.encode(controllerName, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 not supported", e);
+		}
+	}
+
+	/**
+	 * Describe the request mappings which aren't ignored, in the order of the
+	 * handler mapping.
+	 */
+	static List<HandlerMethodDescriptor> describe(RequestMappingHandlerMapping handlerMapping,
+			List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper, WadlGenerationListener listener,
+			ExecutorService executor) {
+		return describe(handlerMapping, ignoreControllers, wadlTypeMapper, listener, executor, null);
+	}
+
+	/**
+	 * Describe the request mappings which aren't ignored, in the order of the
+	 * handler mapping, reusing the descriptors of a previous index for the
+	 * mappings which haven't changed.
+	 */
+	static List<HandlerMethodDescriptor> describe(RequestMappingHandlerMapping handlerMapping,
+			List<Class<?>> ignoreControllers, WadlTypeMapper wadlTypeMapper, WadlGenerationListener listener,
+			ExecutorService executor, HandlerMethodDescriptorIndex previous) {
+		long start = (listener != null ? System.nanoTime() : 0);
+
+		// null where the mapping still needs to be described
+		List<HandlerMethodDescriptor> descriptors = new ArrayList<HandlerMethodDescriptor>();
+
+		List<Map.Entry<RequestMappingInfo, HandlerMethod>> entries =
+				new ArrayList<Map.Entry<RequestMappingInfo, HandlerMethod>>();
+
+		Set<Class<?>> ignoredControllers = new HashSet<Class<?>>(ignoreControllers);
+
 		Map<RequestMappingInfo, HandlerMethod> handletMethods = handlerMapping.getHandlerMethods();
 		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handletMethods.entrySet()) {
-			RequestMappingInfo mappingInfo = entry.getKey();
-			HandlerMethod handlerMethod = entry.getValue();
-			
-			Class<?> controllerClass = handlerMethod.getBeanType();
-			if (ignoreControllers.contains(controllerClass)) {
-				if (log.isDebugEnabled()) {
-					log.debug("Ignoring controller class: " + controllerClass);
+			if (isIgnored(entry.getValue(), ignoredControllers)) {
+				if (listener != null) {
+					listener.counted(WadlGenerationCounter.IGNORED_CONTROLLERS, 1);
 				}
-				
+
 				continue;  // skip
 			}
 
-			WadlResource wadlResource = mapToWadlResource(mappingInfo, handlerMethod, wadlTypeMapper);
-			wadlResources.getResource().add(wadlResource);
+			HandlerMethodDescriptor descriptor = (previous != null ? previous.getDescriptor(entry.getKey()) : null);
+			if (descriptor != null && descriptor.describes(entry.getKey(), entry.getValue())) {
+				descriptors.add(descriptor);
+			} else {
+				descriptors.add(null);
+				entries.add(entry);
+			}
 		}
 
-		result.getResources().add(wadlResources);
+		if (listener != null) {
+			listener.phaseCompleted(WadlGenerationPhase.HANDLER_MAPPING_ITERATION, System.nanoTime() - start);
+		}
 
-		return result;
+		if (previous != null && log.isDebugEnabled()) {
+			log.debug("Reusing " + (descriptors.size() - entries.size()) + " of " + descriptors.size()
+					+ " request mapping descriptors");
+		}
+
+		if (entries.isEmpty()) {
+			return descriptors;
+		}
+
+		// the mapped types are interned and the generic types resolved once across all the descriptors
+		WadlInterner interner = new WadlInterner(true);
+		JavaTypeResolver typeResolver = new JavaTypeResolver();
+
+		List<HandlerMethodDescriptor> described;
+		if (executor != null) {
+			described = describe(entries, wadlTypeMapper, typeResolver, interner, listener, executor);
+		} else {
+			described = describe(entries, wadlTypeMapper, typeResolver, interner, listener);
+		}
+
+		if (described.size() == descriptors.size()) {
+			return described;
+		}
+
+		Iterator<HandlerMethodDescriptor> next = described.iterator();
+		for (int i = 0; i < descriptors.size(); i++) {
+			if (descriptors.get(i) == null) {
+				descriptors.set(i, next.next());
+			}
+		}
+
+		return descriptors;
 	}
 
-	public static WadlApplication generate(RequestMappingHandlerMapping handlerMapping,
-			HttpServletRequest request, String applicationName, List<Class<?>> ignoreControllers) {
-		return generate(handlerMapping, request, applicationName, ignoreControllers, DEFAULT_WADL_TYPE_MAPPER);
+	private static List<HandlerMethodDescriptor> describe(List<Map.Entry<RequestMappingInfo, HandlerMethod>> entries,
+			WadlTypeMapper wadlTypeMapper, JavaTypeResolver typeResolver, WadlInterner interner,
+			WadlGenerationListener listener) {
+		List<HandlerMethodDescriptor> descriptors = new ArrayList<HandlerMethodDescriptor>(entries.size());
+
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : entries) {
+			descriptors.add(describe(entry.getKey(), entry.getValue(), wadlTypeMapper, typeResolver, interner,
+					listener));
+		}
+
+		return descriptors;
+	}
+
+	/**
+	 * Describes the entries in chunks on the executor. The chunks are joined
+	 * in their original order so the result is the same as describing them
+	 * on the calling thread.
+	 */
+	private static List<HandlerMethodDescriptor> describe(List<Map.Entry<RequestMappingInfo, HandlerMethod>> entries,
+			final WadlTypeMapper wadlTypeMapper, final JavaTypeResolver typeResolver, final WadlInterner interner,
+			final WadlGenerationListener listener, ExecutorService executor) {
+		int chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE,
+				entries.size() / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+
+		List<Future<List<HandlerMethodDescriptor>>> chunks = new ArrayList<Future<List<HandlerMethodDescriptor>>>();
+		for (int from = 0; from < entries.size(); from += chunkSize) {
+			final List<Map.Entry<RequestMappingInfo, HandlerMethod>> chunk =
+					entries.subList(from, Math.min(from + chunkSize, entries.size()));
+
+			chunks.add(executor.submit(new Callable<List<HandlerMethodDescriptor>>() {
+				public List<HandlerMethodDescriptor> call() {
+					return describe(chunk, wadlTypeMapper, typeResolver, interner, listener);
+				}
+			}));
+		}
+
+		List<HandlerMethodDescriptor> descriptors = new ArrayList<HandlerMethodDescriptor>(entries.size());
+		try {
+			for (Future<List<HandlerMethodDescriptor>> chunk : chunks) {
+				descriptors.addAll(chunk.get());
+			}
+		} catch (InterruptedException e) {
+			cancelAll(chunks);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating WADL", e);
+		} catch (ExecutionException e) {
+			cancelAll(chunks);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Could not generate WADL", e.getCause());
+		}
+
+		return descriptors;
 	}
-	
-	private static WadlResource mapToWadlResource(RequestMappingInfo mappingInfo, HandlerMethod handlerMethod,
-			WadlTypeMapper wadlTypeMapper) {
-		WadlResource wadlResource = new WadlResource();
 
-		Set<String> pattern = mappingInfo.getPatternsCondition().getPatterns();
-		for (String uri : pattern) {
-			wadlResource.setPath(uri);
+	private static void cancelAll(List<? extends Future<?>> futures) {
+		for (Future<?> future : futures) {
+			future.cancel(true);
 		}
+	}
 
-		Set<MediaType> consumableMediaTypes = mappingInfo.getConsumesCondition().getConsumableMediaTypes();
-		Set<MediaType> producibleMediaTypes = mappingInfo.getProducesCondition().getProducibleMediaTypes();
-		Set<RequestMethod> httpMethods = mappingInfo.getMethodsCondition().getMethods();
+	static boolean isIgnored(HandlerMethod handlerMethod, Set<Class<?>> ignoreControllers) {
+		Class<?> controllerClass = handlerMethod.getBeanType();
+		if (ignoreControllers.contains(controllerClass)) {
+			if (log.isDebugEnabled()) {
+				log.debug("Ignoring controller class: " + controllerClass);
+			}
 
-		for (RequestMethod httpMethod : httpMethods) {
-			WadlMethod wadlMethod = mapToWadlMethod(httpMethod, handlerMethod.getMethod(), consumableMediaTypes,
-					producibleMediaTypes, wadlTypeMapper);
-			wadlResource.getMethodOrResource().add(wadlMethod);
+			return true;
 		}
 
-		return wadlResource;
+		return false;
 	}
 
-	private static WadlMethod mapToWadlMethod(RequestMethod httpMethod, Method method,
-			Set<MediaType> consumableMediaTypes, Set<MediaType> producibleMediaTypes,
-			WadlTypeMapper wadlTypeMapper) {
+	/**
+	 * Builds the (nested) WADL resources from the paths in the trie.
+	 */
+	private static List<WadlResource> mapToWadlResources(PathTrie<WadlMethod> pathTrie,
+			final WadlGenerationListener listener) {
+		final List<WadlResource> wadlResources = new ArrayList<WadlResource>();
+		final LinkedList<WadlResource> parents = new LinkedList<WadlResource>();
+
+		pathTrie.accept(new PathTrie.Visitor<WadlMethod, RuntimeException>() {
+
+			public void startResource(String path, List<WadlMethod> wadlMethods) {
+				WadlResource wadlResource = new WadlResource();
+				wadlResource.setPath(path);
+				wadlResource.getMethodOrResource().addAll(wadlMethods);
+
+				if (listener != null) {
+					listener.counted(WadlGenerationCounter.RESOURCES, 1);
+				}
+
+				if (parents.isEmpty()) {
+					wadlResources.add(wadlResource);
+				} else {
+					parents.getLast().getMethodOrResource().add(wadlResource);
+				}
+
+				parents.addLast(wadlResource);
+			}
+
+			public void endResource() {
+				parents.removeLast();
+			}
+		});
+
+		return wadlResources;
+	}
+
+	/**
+	 * Get all the URL patterns of a request mapping. A mapping without any
+	 * pattern is mapped to the root path.
+	 */
+	static Set<String> getResourcePaths(RequestMappingInfo mappingInfo) {
+		Set<String> patterns = mappingInfo.getPatternsCondition().getPatterns();
+		return (!patterns.isEmpty() ? patterns : Collections.singleton(""));
+	}
+
+	/**
+	 * Resolve everything about a request mapping that needs reflection or
+	 * type mapping.
+	 */
+	static HandlerMethodDescriptor describe(RequestMappingInfo mappingInfo, HandlerMethod handlerMethod,
+			WadlTypeMapper wadlTypeMapper, JavaTypeResolver typeResolver, WadlInterner interner,
+			WadlGenerationListener listener) {
+		Method method = handlerMethod.getMethod();
+
+		List<String> consumes = toStrings(mappingInfo.getConsumesCondition().getConsumableMediaTypes());
+		List<String> produces = toStrings(mappingInfo.getProducesCondition().getProducibleMediaTypes());
+
+		List<String> paramNames = getParameterNames(method, listener);
+		Type[] paramTypes = method.getGenericParameterTypes();
+		Annotation[][] paramAnnotations = method.getParameterAnnotations();
+		List<HandlerMethodDescriptor.Param> params = describeParams(paramAnnotations, paramNames, paramTypes,
+				handlerMethod.getBeanType(), wadlTypeMapper, typeResolver, interner, listener);
+
+		QName responseElement = null;
+		if (!produces.isEmpty()) {
+			JavaTypeResolver.ResolvedType returnType =
+					typeResolver.resolveReturnType(method.getGenericReturnType(), handlerMethod.getBeanType());
+			responseElement = interner.intern(getWadlType(wadlTypeMapper, returnType.getJavaType(), listener));
+		}
+
+		return new HandlerMethodDescriptor(mappingInfo, handlerMethod.getBeanType(), method,
+				getAnnotationTypes(handlerMethod), new ArrayList<String>(getResourcePaths(mappingInfo)),
+				new ArrayList<RequestMethod>(mappingInfo.getMethodsCondition().getMethods()), params, consumes,
+				produces, responseElement);
+	}
+
+	static List<WadlMethod> mapToWadlMethods(HandlerMethodDescriptor descriptor, WadlInterner interner,
+			WadlGenerationListener listener) {
+		List<WadlMethod> wadlMethods = new ArrayList<WadlMethod>();
+
+		for (RequestMethod httpMethod : descriptor.getHttpMethods()) {
+			WadlMethod wadlMethod = mapToWadlMethod(httpMethod, descriptor, interner, listener);
+			wadlMethods.add(wadlMethod);
+		}
+
+		if (listener != null) {
+			listener.counted(WadlGenerationCounter.METHODS, wadlMethods.size());
+		}
+
+		return wadlMethods;
+	}
+
+	/**
+	 * Map a request mapping to references (<code>&lt;method href="#id"/&gt;</code>)
+	 * to its WADL methods, for its paths other than the one the methods are
+	 * described under.
+	 */
+	static List<WadlMethod> mapToWadlMethodReferences(HandlerMethodDescriptor descriptor) {
+		List<WadlMethod> references = new ArrayList<WadlMethod>();
+		for (RequestMethod httpMethod : descriptor.getHttpMethods()) {
+			WadlMethod reference = new WadlMethod();
+			reference.setHref("#" + getWadlMethodId(descriptor, httpMethod));
+			references.add(reference);
+		}
+
+		return references;
+	}
+
+	/**
+	 * Get the id of a WADL method: the handler method qualified with its
+	 * controller class (see {@link HandlerMethodDescriptor#getMethodId()}),
+	 * followed by the HTTP method if it's mapped to more than one (an id may
+	 * only occur once in a WADL).
+	 */
+	static String getWadlMethodId(HandlerMethodDescriptor descriptor, RequestMethod httpMethod) {
+		if (descriptor.getHttpMethods().size() > 1) {
+			return descriptor.getMethodId() + "_" + httpMethod.name();
+		}
+
+		return descriptor.getMethodId();
+	}
+
+	private static WadlMethod mapToWadlMethod(RequestMethod httpMethod, HandlerMethodDescriptor descriptor,
+			WadlInterner interner, WadlGenerationListener listener) {
 		WadlMethod wadlMethod = new WadlMethod();
 
 		wadlMethod.setName(httpMethod.name());
-		wadlMethod.setId(method.getName());
+		wadlMethod.setId(getWadlMethodId(descriptor, httpMethod));
 
-		WadlDoc wadlDocMethod = createWadlDoc(method.getName());
+		WadlDoc wadlDocMethod = interner.getDoc(descriptor.getMethodName());
 		wadlMethod.getDoc().add(wadlDocMethod);
 
-		WadlRequest wadlRequest = mapToWadlRequest(method, consumableMediaTypes, wadlTypeMapper);
+		WadlRequest wadlRequest = mapToWadlRequest(descriptor, interner, listener);
 		wadlMethod.setRequest(wadlRequest);
 
-		WadlResponse wadlResponse = mapToWadlResponse(method, producibleMediaTypes, wadlTypeMapper);
+		WadlResponse wadlResponse = mapToWadlResponse(descriptor, interner, listener);
 		wadlMethod.getResponse().add(wadlResponse);
 
 		return wadlMethod;
 	}
 
-	private static WadlRequest mapToWadlRequest(Method method, Set<MediaType> consumableMediaTypes,
-			WadlTypeMapper wadlTypeMapper) {
+	private static WadlRequest mapToWadlRequest(HandlerMethodDescriptor descriptor, WadlInterner interner,
+			WadlGenerationListener listener) {
 		WadlRequest wadlRequest = new WadlRequest();
 
-		List<String> paramNames = getParameterNames(method);
-		Class<?>[] paramTypes = method.getParameterTypes();
-		Annotation[][] paramAnnotations = method.getParameterAnnotations();
-		List<WadlParam> wadlParams = mapToWadlParams(paramAnnotations, paramNames, paramTypes, wadlTypeMapper);
+		List<WadlParam> wadlParams = mapToWadlParams(descriptor.getParams(), interner, listener);
 
 		// if there's no params, there's no request!
 		if (wadlParams.isEmpty()) {
@@ -186,56 +649,67 @@ public class WadlGenerator {
 			wadlRequest.getParam().addAll(wadlParams);
 		}
 
-		if (!consumableMediaTypes.isEmpty()) {
-			List<WadlRepresentation> representations = mapToWadlRepresentations(consumableMediaTypes);
+		if (!descriptor.getConsumes().isEmpty()) {
+			List<WadlRepresentation> representations = mapToWadlRepresentations(descriptor.getConsumes(), null,
+					interner, listener);
 			wadlRequest.getRepresentation().addAll(representations);
 		}
 
 		return wadlRequest;
 	}
 
-	private static WadlResponse mapToWadlResponse(Method method, Set<MediaType> producibleMediaTypes,
-			WadlTypeMapper wadlTypeMapper) {
-		Class<?> returnType = method.getReturnType();
-		if (returnType == null) {
-			return null;  // early abort
-		}
-		
+	private static WadlResponse mapToWadlResponse(HandlerMethodDescriptor descriptor, WadlInterner interner,
+			WadlGenerationListener listener) {
 		WadlResponse wadlResponse = new WadlResponse();
-		
-		if (!producibleMediaTypes.isEmpty()) {
-			QName returnParamName = wadlTypeMapper.getWadlType(returnType);
-			List<WadlRepresentation> representations = mapToWadlRepresentations(producibleMediaTypes,
-					returnParamName);
+
+		if (!descriptor.getProduces().isEmpty()) {
+			List<WadlRepresentation> representations = mapToWadlRepresentations(descriptor.getProduces(),
+					descriptor.getResponseElement(), interner, listener);
 			wadlResponse.getRepresentation().addAll(representations);
 		}
 
 		return wadlResponse;
 	}
 
-	private static List<WadlRepresentation> mapToWadlRepresentations(Set<MediaType> mediaTypes) {
-		return mapToWadlRepresentations(mediaTypes, null);
-	}
+	private static List<WadlRepresentation> mapToWadlRepresentations(List<String> mediaTypes, QName element,
+			WadlInterner interner, WadlGenerationListener listener) {
+		long start = (listener != null ? System.nanoTime() : 0);
 
-	private static List<WadlRepresentation> mapToWadlRepresentations(Set<MediaType> mediaTypes, QName element) {
 		List<WadlRepresentation> representations = new ArrayList<WadlRepresentation>();
 
-		for (MediaType mediaType : mediaTypes) {
-			WadlRepresentation wadlRepresentation = new WadlRepresentation();
-			wadlRepresentation.setMediaType(mediaType.toString());
-			wadlRepresentation.setElement(element);
-			representations.add(wadlRepresentation);
+		for (String mediaType : mediaTypes) {
+			representations.add(interner.getRepresentation(mediaType, element));
+		}
+
+		if (listener != null) {
+			listener.phaseCompleted(WadlGenerationPhase.REPRESENTATION_BUILDING, System.nanoTime() - start);
 		}
 
 		return representations;
 	}
 
-	private static List<WadlParam> mapToWadlParams(Annotation[][] paramAnnotations, List<String> paramNames,
-			Class<?>[] paramTypes, WadlTypeMapper wadlTypeMapper) {
-		List<WadlParam> wadlParams = new ArrayList<WadlParam>();
+	private static List<WadlParam> mapToWadlParams(List<HandlerMethodDescriptor.Param> params,
+			WadlInterner interner, WadlGenerationListener listener) {
+		List<WadlParam> wadlParams = new ArrayList<WadlParam>(params.size());
+
+		for (HandlerMethodDescriptor.Param param : params) {
+			wadlParams.add(interner.getParam(param));
+		}
+
+		if (listener != null) {
+			listener.counted(WadlGenerationCounter.PARAMS, wadlParams.size());
+		}
+
+		return wadlParams;
+	}
+
+	private static List<HandlerMethodDescriptor.Param> describeParams(Annotation[][] paramAnnotations,
+			List<String> paramNames, Type[] paramTypes, Class<?> beanType, WadlTypeMapper wadlTypeMapper,
+			JavaTypeResolver typeResolver, WadlInterner interner, WadlGenerationListener listener) {
+		List<HandlerMethodDescriptor.Param> params = new ArrayList<HandlerMethodDescriptor.Param>();
 
 		if (paramAnnotations == null) {
-			return wadlParams; // early abort
+			return params; // early abort
 		}
 
 		if (paramAnnotations.length != paramNames.size()) {
@@ -259,50 +733,39 @@ public class WadlGenerator {
 			}
 
 			String paramName = paramNames.get(i);
-			QName paramType = wadlTypeMapper.getWadlType(paramTypes[i]);
+			JavaTypeResolver.ResolvedType resolvedType = typeResolver.resolveParameterType(paramTypes[i], beanType);
+			QName paramType = interner.intern(getWadlType(wadlTypeMapper, resolvedType.getJavaType(), listener));
 
 			for (Annotation annotation : annotations) {
 				if (annotation instanceof PathVariable) {
-					WadlParam waldParam = mapToWadlParam((PathVariable) annotation, paramName, paramType);
-					wadlParams.add(waldParam);
+					params.add(describeParam((PathVariable) annotation, paramName, paramType,
+							resolvedType.isRepeating()));
 
 				} else if (annotation instanceof RequestParam) {
-					WadlParam waldParam = mapToWadlParam((RequestParam) annotation, paramName, paramType);
-					wadlParams.add(waldParam);
+					params.add(describeParam((RequestParam) annotation, paramName, paramType,
+							resolvedType.isRepeating()));
 				}
 			}
 		}
 
-		return wadlParams;
+		return params;
 	}
 
-	private static WadlParam mapToWadlParam(PathVariable paramAnnotation, String paramName,
-			QName paramType) {
-		WadlParam wadlParam = new WadlParam();
+	private static HandlerMethodDescriptor.Param describeParam(PathVariable paramAnnotation, String paramName,
+			QName paramType, boolean repeating) {
 		String wadlParamName = getParameterName(paramAnnotation.value(), paramName);
-		wadlParam.setName(wadlParamName);
-		wadlParam.setType(paramType);
-		wadlParam.setStyle(WadlParamStyle.TEMPLATE);
-		wadlParam.setRequired(true);
-		return wadlParam;
+		return new HandlerMethodDescriptor.Param(wadlParamName, paramType, WadlParamStyle.TEMPLATE, true, repeating,
+				null);
 	}
 
-	private static WadlParam mapToWadlParam(RequestParam paramAnnotation, String paramName,
-			QName paramType) {
-		WadlParam wadlParam = new WadlParam();
-
+	private static HandlerMethodDescriptor.Param describeParam(RequestParam paramAnnotation, String paramName,
+			QName paramType, boolean repeating) {
 		String wadlParamName = getParameterName(paramAnnotation.value(), paramName);
-		wadlParam.setName(wadlParamName);
-		wadlParam.setType(paramType);
-		wadlParam.setStyle(WadlParamStyle.QUERY);
-		wadlParam.setRequired(paramAnnotation.required());
 
 		String defaultValue = cleanDefault(paramAnnotation.defaultValue());
-		if (StringUtils.isNotEmpty(defaultValue)) {
-			wadlParam.setDefault(defaultValue);
-		}
 
-		return wadlParam;
+		return new HandlerMethodDescriptor.Param(wadlParamName, paramType, WadlParamStyle.QUERY,
+				paramAnnotation.required(), repeating, (StringUtils.isNotEmpty(defaultValue) ? defaultValue : null));
 	}
 
 	/**
@@ -329,10 +792,58 @@ public class WadlGenerator {
 		}
 	}
 
-	private static List<String> getParameterNames(Method method) {
-		ParameterNameDiscoverer paramNameDiscoverer = new LocalVariableTableParameterNameDiscoverer();
-		String[] parameterNames = paramNameDiscoverer.getParameterNames(method);
-		return toList(parameterNames);
+	private static List<String> getParameterNames(Method method, WadlGenerationListener listener) {
+		long start = (listener != null ? System.nanoTime() : 0);
+
+		// recorded at compile time if the controller was compiled with the annotation processor
+		CompiledMappingIndex compiledIndex =
+				CompiledMappingIndex.forClassLoader(method.getDeclaringClass().getClassLoader());
+		List<String> parameterNames = compiledIndex.getParameterNames(method);
+		if (parameterNames == null) {
+			parameterNames = toList(PARAMETER_NAME_DISCOVERER.getParameterNames(method));
+		}
+
+		if (listener != null) {
+			listener.phaseCompleted(WadlGenerationPhase.PARAMETER_NAME_DISCOVERY, System.nanoTime() - start);
+		}
+
+		return parameterNames;
+	}
+
+	private static QName getWadlType(WadlTypeMapper wadlTypeMapper, Class<?> javaType,
+			WadlGenerationListener listener) {
+		if (listener == null) {
+			return wadlTypeMapper.getWadlType(javaType);
+		}
+
+		long start = System.nanoTime();
+		QName wadlType = wadlTypeMapper.getWadlType(javaType);
+		listener.phaseCompleted(WadlGenerationPhase.TYPE_MAPPING, System.nanoTime() - start);
+
+		if (wadlType == null) {
+			listener.counted(WadlGenerationCounter.TYPE_MAPPER_MISSES, 1);
+		}
+
+		return wadlType;
+	}
+
+	private static Set<String> getAnnotationTypes(HandlerMethod handlerMethod) {
+		Set<String> annotationTypes = new HashSet<String>();
+		for (Annotation annotation : handlerMethod.getBeanType().getAnnotations()) {
+			annotationTypes.add(annotation.annotationType().getName());
+		}
+		for (Annotation annotation : handlerMethod.getMethod().getAnnotations()) {
+			annotationTypes.add(annotation.annotationType().getName());
+		}
+		return annotationTypes;
+	}
+
+	private static List<String> toStrings(Set<MediaType> mediaTypes) {
+		List<String> strings = new ArrayList<String>(mediaTypes.size());
+		for (MediaType mediaType : mediaTypes) {
+			strings.add(mediaType.toString());
+		}
+		return strings;
 	}
 
 	private static WadlDoc createWadlDoc(String title) {
@@ -341,7 +852,43 @@ public class WadlGenerator {
 		return wadlDoc;
 	}
 
-	private static String getBaseUrl(HttpServletRequest request) {
+	/**
+	 * Get a copy of a WadlApplication from this generator with the base URL
+	 * of its resources set.
+	 *
+	 * The copy is shallow: only the <code>application</code> and
+	 * <code>resources</code> elements are new, the resources themselves are
+	 * shared. So a WadlApplication generated once without a base URL can be
+	 * used as a template for any number of hosts.
+	 *
+	 * @param template the generated WadlApplication
+	 * @param baseUrl the base URL of the resources
+	 * @return the copy
+	 */
+	public static WadlApplication withBaseUrl(WadlApplication template, String baseUrl) {
+		WadlApplication result = new WadlApplication();
+		result.getDoc().addAll(template.getDoc());
+		result.setGrammars(template.getGrammars());
+
+		for (WadlResources templateResources : template.getResources()) {
+			WadlResources wadlResources = new WadlResources();
+			wadlResources.setBase(baseUrl);
+			wadlResources.getDoc().addAll(templateResources.getDoc());
+			wadlResources.getResource().addAll(templateResources.getResource());
+			result.getResources().add(wadlResources);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get the base URL of the application (scheme, host, port and context
+	 * path) from a request.
+	 * 
+	 * @param request the HTTP request
+	 * @return the base URL
+	 */
+	public static String getBaseUrl(HttpServletRequest request) {
 		StringBuilder sb = new StringBuilder();
 		sb.append(request.getScheme()).append("://");
 		sb.append(request.getServerName()).append(":");
@@ -0,0 +1,52 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.concurrent.ExecutorService;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationListener;
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationMetrics;
+
+/**
+ * Optional settings for {@link WadlGenerator}.
+ *
+ * The defaults match the behaviour of the <code>generate</code> methods
+ * which don't take any options.
+ *
+ * @author Alan Loi
+ */
+@Getter
+@Setter
+public class WadlGeneratorOptions {
+
+	/**
+	 * Executor to map the request mappings on in parallel. If
+	 * <code>null</code> (the default) they are mapped on the calling thread.
+	 *
+	 * NOTE: the WadlTypeMapper is then called from several threads at once
+	 * so it must be thread-safe.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Listener for timings and counts, e.g. {@link WadlGenerationMetrics}. If
+	 * <code>null</code> (the default) nothing is timed or counted.
+	 */
+	private WadlGenerationListener listener;
+
+	/**
+	 * Whether identical params, representations, docs and QNames are shared
+	 * within a generated WadlApplication rather than duplicated (the
+	 * default). Shared objects must not be modified.
+	 */
+	private boolean interning = true;
+
+	/**
+	 * Whether to sort resources, methods, params and representations by
+	 * their content rather than keep the (map iteration) order of the
+	 * handler mapping, so every node running the same build generates
+	 * exactly the same WADL, with the same ETag. Off by default.
+	 */
+	private boolean canonical;
+}
@@ -0,0 +1,113 @@
+package com.alanloi.springmvc.wadl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.namespace.QName;
+
+import net.java.dev.wadl._2009._02.WadlDoc;
+import net.java.dev.wadl._2009._02.WadlParam;
+import net.java.dev.wadl._2009._02.WadlRepresentation;
+
+/**
+ * Hands out a single instance for each distinct param, representation, doc
+ * and QName, so e.g. the same <code>@PathVariable("id") Long</code> on
+ * hundreds of handler methods is only held once by a generated (and likely
+ * cached) WadlApplication.
+ *
+ * An interner lives for a single generation. It is thread-safe, so it can
+ * be shared by parallel workers. A disabled interner just creates a new
+ * instance every time.
+ *
+ * @author Alan Loi
+ */
+final class WadlInterner {
+
+	private final boolean enabled;
+
+	private final ConcurrentMap<QName, QName> qNames = new ConcurrentHashMap<QName, QName>();
+
+	private final ConcurrentMap<HandlerMethodDescriptor.Param, WadlParam> params =
+			new ConcurrentHashMap<HandlerMethodDescriptor.Param, WadlParam>();
+
+	private final ConcurrentMap<List<Object>, WadlRepresentation> representations =
+			new ConcurrentHashMap<List<Object>, WadlRepresentation>();
+
+	private final ConcurrentMap<String, WadlDoc> docs = new ConcurrentHashMap<String, WadlDoc>();
+
+	WadlInterner(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	QName intern(QName qName) {
+		if (qName == null || !this.enabled) {
+			return qName;
+		}
+
+		QName existing = this.qNames.putIfAbsent(qName, qName);
+		return (existing != null ? existing : qName);
+	}
+
+	WadlParam getParam(HandlerMethodDescriptor.Param param) {
+		WadlParam wadlParam = (this.enabled ? this.params.get(param) : null);
+		if (wadlParam == null) {
+			wadlParam = new WadlParam();
+			wadlParam.setName(param.getName());
+			wadlParam.setType(intern(param.getType()));
+			wadlParam.setStyle(param.getStyle());
+			wadlParam.setRequired(param.isRequired());
+			if (param.isRepeating()) {
+				wadlParam.setRepeating(true);
+			}
+			wadlParam.setDefault(param.getDefaultValue());
+
+			if (this.enabled) {
+				WadlParam existing = this.params.putIfAbsent(param, wadlParam);
+				if (existing != null) {
+					wadlParam = existing;
+				}
+			}
+		}
+
+		return wadlParam;
+	}
+
+	WadlRepresentation getRepresentation(String mediaType, QName element) {
+		List<Object> key = Arrays.<Object> asList(mediaType, element);
+
+		WadlRepresentation wadlRepresentation = (this.enabled ? this.representations.get(key) : null);
+		if (wadlRepresentation == null) {
+			wadlRepresentation = new WadlRepresentation();
+			wadlRepresentation.setMediaType(mediaType);
+			wadlRepresentation.setElement(intern(element));
+
+			if (this.enabled) {
+				WadlRepresentation existing = this.representations.putIfAbsent(key, wadlRepresentation);
+				if (existing != null) {
+					wadlRepresentation = existing;
+				}
+			}
+		}
+
+		return wadlRepresentation;
+	}
+
+	WadlDoc getDoc(String title) {
+		WadlDoc wadlDoc = (this.enabled ? this.docs.get(title) : null);
+		if (wadlDoc == null) {
+			wadlDoc = new WadlDoc();
+			wadlDoc.setTitle(title);
+
+			if (this.enabled) {
+				WadlDoc existing = this.docs.putIfAbsent(title, wadlDoc);
+				if (existing != null) {
+					wadlDoc = existing;
+				}
+			}
+		}
+
+		return wadlDoc;
+	}
+}
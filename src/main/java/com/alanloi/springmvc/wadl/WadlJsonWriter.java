@@ -0,0 +1,415 @@
+package com.alanloi.springmvc.wadl;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlDoc;
+import net.java.dev.wadl._2009._02.WadlMethod;
+import net.java.dev.wadl._2009._02.WadlParam;
+import net.java.dev.wadl._2009._02.WadlRepresentation;
+import net.java.dev.wadl._2009._02.WadlRequest;
+import net.java.dev.wadl._2009._02.WadlResource;
+import net.java.dev.wadl._2009._02.WadlResources;
+import net.java.dev.wadl._2009._02.WadlResponse;
+
+/**
+ * Writes a WadlApplication from {@link WadlGenerator} as UTF-8 encoded JSON,
+ * e.g. for browser based API explorers.
+ *
+ * The JSON mirrors the elements of the WADL schema: each element becomes an
+ * object with its attributes as members, and its child elements as arrays
+ * named after the element (<code>doc</code>, <code>resources</code>,
+ * <code>resource</code>, <code>method</code>, <code>param</code>,
+ * <code>representation</code>, <code>response</code>) or, for elements
+ * which occur at most once, an object (<code>request</code>). Methods and
+ * child resources of a resource are split into a <code>method</code> and a
+ * <code>resource</code> array. QNames are written as
+ * <code>{namespace}localPart</code>.
+ *
+ * The model is written straight to the stream as it's walked, without
+ * building an intermediate tree. Instances are stateless and thread-safe.
+ *
+ * @author Alan Loi
+ */
+public class WadlJsonWriter {
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Write a WadlApplication to a stream.
+	 *
+	 * @param application the WadlApplication
+	 * @param out the stream to write to (not closed)
+	 * @throws IOException if the stream could not be written to
+	 */
+	public void writeTo(WadlApplication application, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, ENCODING));
+		new JsonOutput(writer).writeApplication(application);
+		writer.flush();
+	}
+
+	/**
+	 * Write a WadlApplication to bytes.
+	 *
+	 * @param application the WadlApplication
+	 * @return the JSON bytes
+	 */
+	public byte[] toBytes(WadlApplication application) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		try {
+			writeTo(application, bytes);
+		} catch (IOException e) {
+			// can't happen with a ByteArrayOutputStream
+			throw new IllegalStateException("Could not write WADL as JSON", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Escape a value for use inside a JSON string, without the surrounding
+	 * quotes.
+	 *
+	 * @param value the value
+	 * @return the escaped value
+	 */
+	public static String escape(String value) {
+		StringBuilder result = null;
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			String replacement = getReplacement(c);
+			if (replacement != null && result == null) {
+				result = new StringBuilder(value.length() + 16).append(value, 0, i);
+			}
+
+			if (result != null) {
+				if (replacement != null) {
+					result.append(replacement);
+				} else {
+					result.append(c);
+				}
+			}
+		}
+
+		return (result != null ? result.toString() : value);
+	}
+
+	private static String getReplacement(char c) {
+		switch (c) {
+		case '"':
+			return "\\\"";
+		case '\\':
+			return "\\\\";
+		case '\n':
+			return "\\n";
+		case '\r':
+			return "\\r";
+		case '\t':
+			return "\\t";
+		case '\b':
+			return "\\b";
+		case '\f':
+			return "\\f";
+		default:
+			if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+				return "\\u" + HEX_DIGITS[(c >> 12) & 0xf] + HEX_DIGITS[(c >> 8) & 0xf]
+						+ HEX_DIGITS[(c >> 4) & 0xf] + HEX_DIGITS[c & 0xf];
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Walks the model, writing JSON as it goes. Only tracks whether the
+	 * current object or array needs a comma before its next member.
+	 */
+	private static class JsonOutput {
+
+		private final Writer writer;
+
+		/** Whether the object or array at each nesting depth already has a member. */
+		private boolean[] hasMembers = new boolean[16];
+		private int depth;
+
+		JsonOutput(Writer writer) {
+			this.writer = writer;
+		}
+
+		void writeApplication(WadlApplication application) throws IOException {
+			begin('{');
+			writeDocs(application.getDoc());
+
+			if (!application.getResources().isEmpty()) {
+				beginArray("resources");
+				for (WadlResources wadlResources : application.getResources()) {
+					beginObject();
+					writeString("base", wadlResources.getBase());
+					writeDocs(wadlResources.getDoc());
+					writeResources(wadlResources.getResource());
+					endObject();
+				}
+				endArray();
+			}
+
+			endObject();
+		}
+
+		private void writeResources(List<WadlResource> wadlResources) throws IOException {
+			if (wadlResources.isEmpty()) {
+				return;
+			}
+
+			beginArray("resource");
+			for (WadlResource wadlResource : wadlResources) {
+				writeResource(wadlResource);
+			}
+			endArray();
+		}
+
+		private void writeResource(WadlResource wadlResource) throws IOException {
+			beginObject();
+			writeString("id", wadlResource.getId());
+			writeString("path", wadlResource.getPath());
+			writeDocs(wadlResource.getDoc());
+			writeParams(wadlResource.getParam());
+
+			boolean hasMethods = false;
+			boolean hasResources = false;
+			for (Object child : wadlResource.getMethodOrResource()) {
+				hasMethods |= (child instanceof WadlMethod);
+				hasResources |= (child instanceof WadlResource);
+			}
+
+			if (hasMethods) {
+				beginArray("method");
+				for (Object child : wadlResource.getMethodOrResource()) {
+					if (child instanceof WadlMethod) {
+						writeMethod((WadlMethod) child);
+					}
+				}
+				endArray();
+			}
+
+			if (hasResources) {
+				beginArray("resource");
+				for (Object child : wadlResource.getMethodOrResource()) {
+					if (child instanceof WadlResource) {
+						writeResource((WadlResource) child);
+					}
+				}
+				endArray();
+			}
+
+			endObject();
+		}
+
+		private void writeMethod(WadlMethod wadlMethod) throws IOException {
+			beginObject();
+			writeString("id", wadlMethod.getId());
+			writeString("name", wadlMethod.getName());
+			writeString("href", wadlMethod.getHref());
+			writeDocs(wadlMethod.getDoc());
+
+			WadlRequest wadlRequest = wadlMethod.getRequest();
+			if (wadlRequest != null) {
+				name("request");
+				begin('{');
+				writeDocs(wadlRequest.getDoc());
+				writeParams(wadlRequest.getParam());
+				writeRepresentations(wadlRequest.getRepresentation());
+				endObject();
+			}
+
+			if (!wadlMethod.getResponse().isEmpty()) {
+				beginArray("response");
+				for (WadlResponse wadlResponse : wadlMethod.getResponse()) {
+					beginObject();
+					if (!wadlResponse.getStatus().isEmpty()) {
+						beginArray("status");
+						for (Long status : wadlResponse.getStatus()) {
+							element();
+							this.writer.write(String.valueOf(status));
+						}
+						endArray();
+					}
+					writeDocs(wadlResponse.getDoc());
+					writeParams(wadlResponse.getParam());
+					writeRepresentations(wadlResponse.getRepresentation());
+					endObject();
+				}
+				endArray();
+			}
+
+			endObject();
+		}
+
+		private void writeParams(List<WadlParam> wadlParams) throws IOException {
+			if (wadlParams.isEmpty()) {
+				return;
+			}
+
+			beginArray("param");
+			for (WadlParam wadlParam : wadlParams) {
+				beginObject();
+				writeString("id", wadlParam.getId());
+				writeString("name", wadlParam.getName());
+				writeString("style", (wadlParam.getStyle() != null ? wadlParam.getStyle().value() : null));
+				writeQName("type", wadlParam.getType());
+				writeString("default", wadlParam.getDefault());
+				writeBoolean("required", wadlParam.isRequired());
+				writeBoolean("repeating", wadlParam.isRepeating());
+				writeString("fixed", wadlParam.getFixed());
+				writeString("path", wadlParam.getPath());
+				writeString("href", wadlParam.getHref());
+				writeDocs(wadlParam.getDoc());
+				endObject();
+			}
+			endArray();
+		}
+
+		private void writeRepresentations(List<WadlRepresentation> wadlRepresentations) throws IOException {
+			if (wadlRepresentations.isEmpty()) {
+				return;
+			}
+
+			beginArray("representation");
+			for (WadlRepresentation wadlRepresentation : wadlRepresentations) {
+				beginObject();
+				writeString("id", wadlRepresentation.getId());
+				writeString("mediaType", wadlRepresentation.getMediaType());
+				writeQName("element", wadlRepresentation.getElement());
+				writeString("href", wadlRepresentation.getHref());
+				writeDocs(wadlRepresentation.getDoc());
+				writeParams(wadlRepresentation.getParam());
+				endObject();
+			}
+			endArray();
+		}
+
+		/**
+		 * Docs have mixed content - only its text is written.
+		 */
+		private void writeDocs(List<WadlDoc> wadlDocs) throws IOException {
+			if (wadlDocs.isEmpty()) {
+				return;
+			}
+
+			beginArray("doc");
+			for (WadlDoc wadlDoc : wadlDocs) {
+				beginObject();
+				writeString("title", wadlDoc.getTitle());
+
+				StringBuilder text = new StringBuilder();
+				for (Object content : wadlDoc.getContent()) {
+					if (content instanceof String) {
+						text.append(content);
+					}
+				}
+				if (text.length() > 0) {
+					writeString("content", text.toString());
+				}
+
+				endObject();
+			}
+			endArray();
+		}
+
+		private void writeQName(String name, QName value) throws IOException {
+			writeString(name, (value != null ? value.toString() : null));
+		}
+
+		/**
+		 * Write a member, unless the value is <code>null</code>.
+		 */
+		private void writeString(String name, String value) throws IOException {
+			if (value != null) {
+				name(name);
+				writeString(value);
+			}
+		}
+
+		/**
+		 * Write a member, unless the value is the schema default of <code>false</code>.
+		 */
+		private void writeBoolean(String name, boolean value) throws IOException {
+			if (value) {
+				name(name);
+				this.writer.write("true");
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			this.writer.write('"');
+			this.writer.write(escape(value));
+			this.writer.write('"');
+		}
+
+		/**
+		 * Start a member of the current object, up to its value.
+		 */
+		private void name(String name) throws IOException {
+			element();
+			writeString(name);
+			this.writer.write(':');
+		}
+
+		/**
+		 * Separate a member or array element from the previous one.
+		 */
+		private void element() throws IOException {
+			if (this.hasMembers[this.depth]) {
+				this.writer.write(',');
+			}
+			this.hasMembers[this.depth] = true;
+		}
+
+		private void beginArray(String name) throws IOException {
+			name(name);
+			begin('[');
+		}
+
+		private void endArray() throws IOException {
+			end(']');
+		}
+
+		/**
+		 * Begin an object as an element of the current array.
+		 */
+		private void beginObject() throws IOException {
+			element();
+			begin('{');
+		}
+
+		private void endObject() throws IOException {
+			end('}');
+		}
+
+		private void begin(char c) throws IOException {
+			this.writer.write(c);
+			this.depth++;
+			if (this.depth == this.hasMembers.length) {
+				boolean[] grown = new boolean[this.hasMembers.length * 2];
+				System.arraycopy(this.hasMembers, 0, grown, 0, this.hasMembers.length);
+				this.hasMembers = grown;
+			}
+			this.hasMembers[this.depth] = false;
+		}
+
+		private void end(char c) throws IOException {
+			this.depth--;
+			this.writer.write(c);
+		}
+	}
+}
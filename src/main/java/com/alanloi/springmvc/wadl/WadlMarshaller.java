@@ -0,0 +1,168 @@
+package com.alanloi.springmvc.wadl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+/**
+ * Marshals a WadlApplication from {@link WadlGenerator} to UTF-8 encoded
+ * XML.
+ *
+ * The (expensive) JAXBContext is created once, on first use, and shared by
+ * all instances. Marshallers aren't thread-safe, so each instance keeps a
+ * pool of idle ones which are configured once when created and handed to
+ * one thread at a time. Instances are thread-safe and meant to be shared.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class WadlMarshaller {
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+
+	/** Format the output with line feeds and indentation. */
+	@Getter
+	private final boolean formattedOutput;
+
+	/** Value of the <code>xsi:schemaLocation</code> attribute, if any. */
+	@Getter
+	private final String schemaLocation;
+
+	/** Marshallers beyond this many idle ones are discarded. */
+	private final BlockingQueue<Marshaller> idleMarshallers;
+
+	public WadlMarshaller() {
+		this(false, null);
+	}
+
+	public WadlMarshaller(boolean formattedOutput, String schemaLocation) {
+		this(formattedOutput, schemaLocation, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * @param formattedOutput whether to format the output with line feeds and indentation
+	 * @param schemaLocation value of the <code>xsi:schemaLocation</code> attribute (optional)
+	 * @param maxIdleMarshallers maximum number of idle marshallers to keep
+	 */
+	public WadlMarshaller(boolean formattedOutput, String schemaLocation, int maxIdleMarshallers) {
+		this.formattedOutput = formattedOutput;
+		this.schemaLocation = schemaLocation;
+		this.idleMarshallers = new ArrayBlockingQueue<Marshaller>(maxIdleMarshallers);
+	}
+
+	/**
+	 * Marshal a WadlApplication to a stream.
+	 *
+	 * @param application the WadlApplication
+	 * @param out the stream to write to (not closed)
+	 * @throws IOException if the stream could not be written to
+	 */
+	public void writeTo(WadlApplication application, OutputStream out) throws IOException {
+		Marshaller marshaller = borrowMarshaller();
+		try {
+			marshaller.marshal(application, out);
+		} catch (JAXBException e) {
+			if (e.getLinkedException() instanceof IOException) {
+				throw (IOException) e.getLinkedException();
+			}
+			throw new IllegalStateException("Could not marshal WADL", e);
+		} finally {
+			this.idleMarshallers.offer(marshaller);
+		}
+	}
+
+	/**
+	 * Marshal a WadlApplication to bytes.
+	 *
+	 * @param application the WadlApplication
+	 * @return the XML bytes
+	 */
+	public byte[] toBytes(WadlApplication application) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		try {
+			writeTo(application, bytes);
+		} catch (IOException e) {
+			// can't happen with a ByteArrayOutputStream
+			throw new IllegalStateException("Could not marshal WADL", e);
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Marshalled WADL document of " + bytes.size() + " bytes");
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private Marshaller borrowMarshaller() {
+		Marshaller marshaller = this.idleMarshallers.poll();
+		if (marshaller != null) {
+			return marshaller;
+		}
+
+		try {
+			marshaller = getContext().createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, ENCODING);
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, this.formattedOutput);
+			if (this.schemaLocation != null) {
+				marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, this.schemaLocation);
+			}
+			return marshaller;
+		} catch (JAXBException e) {
+			throw new IllegalStateException("Could not create JAXB marshaller for WADL", e);
+		}
+	}
+
+	/**
+	 * Create a marshaller which writes elements of the WADL model without
+	 * starting a document, e.g. to write <code>method</code> elements into a
+	 * document written with an XMLStreamWriter.
+	 *
+	 * @return a new marshaller
+	 */
+	static Marshaller createFragmentMarshaller() {
+		try {
+			Marshaller marshaller = getContext().createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+			return marshaller;
+		} catch (JAXBException e) {
+			throw new IllegalStateException("Could not create JAXB marshaller for WADL", e);
+		}
+	}
+
+	/**
+	 * Get the JAXBContext of the WADL model, creating it on first use.
+	 *
+	 * @return the JAXBContext
+	 */
+	public static JAXBContext getContext() {
+		return JaxbContextHolder.CONTEXT;
+	}
+
+	/**
+	 * Lazily creates the (expensive, thread-safe) JAXBContext.
+	 */
+	private static class JaxbContextHolder {
+
+		static final JAXBContext CONTEXT = createContext();
+
+		private static JAXBContext createContext() {
+			try {
+				return JAXBContext.newInstance(WadlApplication.class);
+			} catch (JAXBException e) {
+				throw new IllegalStateException("Could not create JAXBContext for WADL", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.alanloi.springmvc.wadl;
+
+import java.io.IOException;
+import java.net.URL;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.util.JAXBSource;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Validates a WadlApplication from {@link WadlGenerator} against the bundled
+ * WADL schema, e.g. to catch a WadlTypeMapper producing invalid types.
+ *
+ * The schema (<code>wadl.xsd</code> and the <code>xml.xsd</code> it
+ * imports) is compiled once, on first use, and shared by all instances. The
+ * WadlApplication is validated as it is, through a JAXBSource, without
+ * marshalling it to XML first.
+ *
+ * If created to validate {@link #isOnlyWhenChanged() only when changed},
+ * {@link #validate(WadlApplication, String)} skips a WADL with the same
+ * fingerprint as the last valid one, so validation is cheap enough to be
+ * left enabled in production. Instances are thread-safe.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class WadlValidator {
+
+	private static final String SCHEMA_DIRECTORY = "/schemas/wadl/";
+
+	/** Imported schemas first. */
+	private static final String[] SCHEMA_FILES = { "xml.xsd", "wadl.xsd" };
+
+	/** Skip a WADL with the same fingerprint as the last valid one. */
+	@Getter
+	private final boolean onlyWhenChanged;
+
+	private volatile String validatedFingerprint;
+
+	public WadlValidator() {
+		this(false);
+	}
+
+	/**
+	 * @param onlyWhenChanged whether to skip a WADL with the same fingerprint
+	 *            as the last valid one
+	 */
+	public WadlValidator(boolean onlyWhenChanged) {
+		this.onlyWhenChanged = onlyWhenChanged;
+	}
+
+	/**
+	 * Validate a WadlApplication.
+	 *
+	 * @param application the WadlApplication
+	 * @throws IllegalStateException if the WadlApplication is not valid
+	 */
+	public void validate(WadlApplication application) {
+		long start = System.currentTimeMillis();
+
+		// validators aren't thread-safe, but cheap to create from the compiled schema
+		Validator validator = getSchema().newValidator();
+		try {
+			validator.validate(new JAXBSource(WadlMarshaller.getContext(), application));
+		} catch (SAXException e) {
+			throw new IllegalStateException("Generated WADL is not valid: " + getValidationError(e), e);
+		} catch (JAXBException e) {
+			throw new IllegalStateException("Could not validate WADL", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not validate WADL", e);
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Validated WADL in " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	/**
+	 * Validate a WadlApplication, unless validating only when changed and
+	 * the last valid one had the same fingerprint.
+	 *
+	 * @param application the WadlApplication
+	 * @param fingerprint identifies the content of the WadlApplication, e.g.
+	 *            the fingerprint of its serialized template
+	 * @return whether it was validated
+	 * @throws IllegalStateException if the WadlApplication is not valid
+	 */
+	public boolean validate(WadlApplication application, String fingerprint) {
+		if (this.onlyWhenChanged && fingerprint.equals(this.validatedFingerprint)) {
+			return false;
+		}
+
+		validate(application);
+		this.validatedFingerprint = fingerprint;
+		return true;
+	}
+
+	/**
+	 * The JAXBSource wraps the validator's error in its own exceptions.
+	 *
+	 * @return the message of the innermost exception which has one
+	 */
+	private static String getValidationError(Throwable e) {
+		String message = null;
+		for (Throwable cause = e; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+			if (cause.getMessage() != null) {
+				message = cause.getMessage();
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * Get the compiled WADL schema, compiling it on first use.
+	 *
+	 * @return the (thread-safe) schema
+	 */
+	public static Schema getSchema() {
+		return SchemaHolder.SCHEMA;
+	}
+
+	/**
+	 * Lazily compiles the (expensive, thread-safe) schema.
+	 */
+	private static class SchemaHolder {
+
+		static final Schema SCHEMA = createSchema();
+
+		private static Schema createSchema() {
+			Source[] sources = new Source[SCHEMA_FILES.length];
+			for (int i = 0; i < SCHEMA_FILES.length; i++) {
+				URL url = WadlValidator.class.getResource(SCHEMA_DIRECTORY + SCHEMA_FILES[i]);
+				if (url == null) {
+					throw new IllegalStateException("WADL schema not found: " + SCHEMA_DIRECTORY + SCHEMA_FILES[i]);
+				}
+				sources[i] = new StreamSource(url.toExternalForm());
+			}
+
+			try {
+				return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(sources);
+			} catch (SAXException e) {
+				throw new IllegalStateException("Could not compile WADL schema", e);
+			}
+		}
+	}
+}
@@ -1,7 +1,11 @@
 package com.alanloi.springmvc.wadl.mapper;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.namespace.QName;
 
@@ -12,6 +16,12 @@ import org.apache.commons.lang.ClassUtils;
 /**
  * Abstract base class for WadlTypeMapper.
  * 
+ * Thread-safe: the bindings are only read after construction and resolved
+ * types are cached in a concurrent map. The map holds its classes strongly,
+ * so only classes visible to the mapper's own class loader are cached: a
+ * mapper in a shared class loader (e.g. the static default mapper of
+ * WadlGenerator) doesn't pin the class loader of a web application.
+ * 
  * @author Alan Loi
  */
 @Log4j
@@ -19,8 +29,13 @@ public abstract class AbstractWadlTypeMapper implements WadlTypeMapper {
 
 	private static final String WADL_NAMESPACE = "http://wadl.dev.java.net/2009/02";
 
+	/** Marker for cached lookups which could not be mapped. */
+	private static final Object NOT_MAPPED = new Object();
+
 	private final List<JavaWadlTypePair> javaWadlTypeBindings;
 
+	private final ConcurrentMap<Class<?>, Object> resolvedWadlTypes = new ConcurrentHashMap<Class<?>, Object>();
+
 	public AbstractWadlTypeMapper() {
 		this.javaWadlTypeBindings = createJavaWadlTypeBindings();
 	}
@@ -32,10 +47,45 @@ public abstract class AbstractWadlTypeMapper implements WadlTypeMapper {
 	 */
 	protected abstract List<JavaWadlTypePair> createJavaWadlTypeBindings();
 
+	/**
+	 * @return the Java to WADL type bindings, in the order they're matched
+	 *         in, e.g. to start a {@link RegistryWadlTypeMapper} from
+	 */
+	public List<JavaWadlTypePair> getJavaWadlTypeBindings() {
+		return Collections.unmodifiableList(this.javaWadlTypeBindings);
+	}
+
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * The result is cached per class (including a <code>null</code> result)
+	 * so repeated lookups don't walk the class hierarchy again. Classes of a
+	 * class loader the mapper can't see are resolved every time instead.
 	 */
 	public QName getWadlType(Class<?> javaType) {
+		Object wadlType = this.resolvedWadlTypes.get(javaType);
+
+		if (wadlType == null) {
+			QName resolved = resolveWadlType(javaType);
+			wadlType = (resolved != null ? resolved : NOT_MAPPED);
+			if (isCacheSafe(javaType, getClass().getClassLoader())) {
+				this.resolvedWadlTypes.putIfAbsent(javaType, wadlType);
+			}
+		}
+
+		return (wadlType != NOT_MAPPED ? (QName) wadlType : null);
+	}
+
+	/**
+	 * Resolve the WADL type of a Java type without using the cache.
+	 * 
+	 * The first binding whose Java type matches the class, one of its super
+	 * classes or one of its interfaces wins.
+	 * 
+	 * @param javaType the java type.
+	 * @return the WADL type or <code>null</code> if it could not be mapped.
+	 */
+	protected QName resolveWadlType(Class<?> javaType) {
 
 		// if the param type is an array - get the real class
 		Class<?> componentType = javaType.getComponentType();
@@ -44,7 +94,7 @@ public abstract class AbstractWadlTypeMapper implements WadlTypeMapper {
 		}
 
 		// add all the super classes and interfaces too
-		List<Class<?>> javaTypes = new ArrayList<Class<?>>();
+		Set<Class<?>> javaTypes = new HashSet<Class<?>>();
 		javaTypes.add(javaType);
 		javaTypes.addAll(getAllSuperClassesAndInterfaces(javaType));
 
@@ -109,6 +159,32 @@ public abstract class AbstractWadlTypeMapper implements WadlTypeMapper {
 		return new QName(WADL_NAMESPACE, localPart);
 	}
 	
+	/**
+	 * @return the number of cached classes
+	 */
+	int getCacheSize() {
+		return this.resolvedWadlTypes.size();
+	}
+
+	/**
+	 * Check whether a class is loaded by a mapper's class loader or one of
+	 * its parents, so caching it can't outlive its class loader.
+	 */
+	static boolean isCacheSafe(Class<?> javaType, ClassLoader mapperClassLoader) {
+		ClassLoader target = javaType.getClassLoader();
+		if (target == null) {
+			return true;  // bootstrap class loader
+		}
+
+		for (ClassLoader loader = mapperClassLoader; loader != null; loader = loader.getParent()) {
+			if (loader == target) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	@SuppressWarnings("unchecked")
 	private static List<Class<?>> getAllSuperClassesAndInterfaces(Class<?> clazz) {
 		List<Class<?>> fullList = ClassUtils.getAllSuperclasses(clazz);
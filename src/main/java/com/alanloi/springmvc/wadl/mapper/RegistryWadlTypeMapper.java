@@ -0,0 +1,252 @@
+package com.alanloi.springmvc.wadl.mapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * A WadlTypeMapper whose bindings can be added and removed at runtime, e.g.
+ * by several modules registering their domain types (<code>Money</code>,
+ * <code>UUID</code>, ID wrappers) on top of the JSON bindings:
+ *
+ * <pre>
+ * RegistryWadlTypeMapper mapper = new RegistryWadlTypeMapper(
+ * 		new JsonBasedWadlTypeMapper().getJavaWadlTypeBindings());
+ * mapper.register(UUID.class, new QName(NAMESPACE, "uuid"));
+ * </pre>
+ *
+ * Unlike {@link AbstractWadlTypeMapper}, where the first matching binding in
+ * the list wins, the binding closest to the class in its hierarchy wins: the
+ * class itself, then its super class and interfaces, then theirs and so on.
+ * At the same distance the super class wins over the interfaces, and the
+ * interfaces are taken in the order they're declared. Interfaces don't match
+ * a binding for <code>Object</code>, and arrays are mapped by their
+ * component type.
+ *
+ * The bindings are an immutable snapshot which is replaced (copy-on-write)
+ * on every change, so lookups don't lock. Each snapshot has its own cache of
+ * resolved types, so a change invalidates all of them at once, and its own
+ * {@link #getVersion() version}. As in {@link AbstractWadlTypeMapper}, only
+ * classes visible to the mapper's own class loader are cached, so a mapper
+ * in a shared class loader doesn't pin the class loader of a web
+ * application.
+ *
+ * NOTE: WADLs already generated (and cached, e.g. by CachingWadlGenerator)
+ * keep the types they were generated with until they're generated again.
+ * Regenerating compares the version, so all the request mappings are
+ * described again if the bindings have changed.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class RegistryWadlTypeMapper implements WadlTypeMapper {
+
+	/** Marker for cached lookups which could not be mapped. */
+	private static final Object NOT_MAPPED = new Object();
+
+	private final AtomicReference<Registry> registry;
+
+	/** Only the classes of this class loader (or its parents) are cached. */
+	private final ClassLoader classLoader = getClass().getClassLoader();
+
+	/**
+	 * Create a mapper without any bindings.
+	 */
+	public RegistryWadlTypeMapper() {
+		this(Collections.<JavaWadlTypePair>emptyList());
+	}
+
+	/**
+	 * Create a mapper with initial bindings. If a Java type is bound more
+	 * than once, the first binding is used.
+	 *
+	 * @param bindings the Java to WADL type bindings
+	 */
+	public RegistryWadlTypeMapper(List<JavaWadlTypePair> bindings) {
+		Map<Class<?>, QName> initial = new LinkedHashMap<Class<?>, QName>();
+		for (JavaWadlTypePair binding : bindings) {
+			if (!initial.containsKey(binding.getJavaType())) {
+				initial.put(binding.getJavaType(), binding.getWadlType());
+			}
+		}
+		this.registry = new AtomicReference<Registry>(new Registry(initial, 0));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The result is cached per class until the bindings change. Classes of
+	 * a class loader the mapper can't see are resolved every time instead.
+	 */
+	public QName getWadlType(Class<?> javaType) {
+		return this.registry.get().getWadlType(javaType, this.classLoader);
+	}
+
+	/**
+	 * Bind a Java type, replacing any existing binding of it.
+	 *
+	 * @param javaType the Java type
+	 * @param wadlType the WADL type
+	 */
+	public void register(Class<?> javaType, QName wadlType) {
+		registerAll(Collections.singletonList(new JavaWadlTypePair(javaType, wadlType)));
+	}
+
+	/**
+	 * Bind several Java types at once, replacing any existing bindings of
+	 * them. Lookups either see all of them or none.
+	 *
+	 * @param bindings the Java to WADL type bindings
+	 */
+	public void registerAll(List<JavaWadlTypePair> bindings) {
+		Registry current;
+		Registry updated;
+		do {
+			current = this.registry.get();
+
+			Map<Class<?>, QName> changed = new LinkedHashMap<Class<?>, QName>(current.bindings);
+			for (JavaWadlTypePair binding : bindings) {
+				changed.put(binding.getJavaType(), binding.getWadlType());
+			}
+			updated = new Registry(changed, current.version + 1);
+		} while (!this.registry.compareAndSet(current, updated));
+
+		if (log.isDebugEnabled()) {
+			log.debug("Registered Java-WADL data type bindings: " + bindings);
+		}
+	}
+
+	/**
+	 * Remove the binding of a Java type.
+	 *
+	 * @param javaType the Java type
+	 * @return <code>true</code> if it was bound
+	 */
+	public boolean unregister(Class<?> javaType) {
+		Registry current;
+		Registry updated;
+		do {
+			current = this.registry.get();
+			if (!current.bindings.containsKey(javaType)) {
+				return false;
+			}
+
+			Map<Class<?>, QName> changed = new LinkedHashMap<Class<?>, QName>(current.bindings);
+			changed.remove(javaType);
+			updated = new Registry(changed, current.version + 1);
+		} while (!this.registry.compareAndSet(current, updated));
+
+		return true;
+	}
+
+	/**
+	 * @return a number which changes whenever the bindings change, e.g. to
+	 *         tell whether types mapped earlier are still current
+	 */
+	public long getVersion() {
+		return this.registry.get().version;
+	}
+
+	/**
+	 * @return the number of classes cached for the current bindings
+	 */
+	int getCacheSize() {
+		return this.registry.get().resolvedWadlTypes.size();
+	}
+
+	/**
+	 * @return the current bindings, in the order they were first registered
+	 */
+	public List<JavaWadlTypePair> getJavaWadlTypeBindings() {
+		Map<Class<?>, QName> bindings = this.registry.get().bindings;
+
+		List<JavaWadlTypePair> result = new ArrayList<JavaWadlTypePair>(bindings.size());
+		for (Map.Entry<Class<?>, QName> binding : bindings.entrySet()) {
+			result.add(new JavaWadlTypePair(binding.getKey(), binding.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * An immutable snapshot of the bindings, with the types resolved from
+	 * them so far.
+	 */
+	private static final class Registry {
+
+		private final Map<Class<?>, QName> bindings;
+
+		private final long version;
+
+		private final ConcurrentMap<Class<?>, Object> resolvedWadlTypes = new ConcurrentHashMap<Class<?>, Object>();
+
+		Registry(Map<Class<?>, QName> bindings, long version) {
+			this.bindings = bindings;
+			this.version = version;
+		}
+
+		QName getWadlType(Class<?> javaType, ClassLoader mapperClassLoader) {
+			Object wadlType = this.resolvedWadlTypes.get(javaType);
+
+			if (wadlType == null) {
+				QName resolved = resolveWadlType(javaType);
+				wadlType = (resolved != null ? resolved : NOT_MAPPED);
+				if (AbstractWadlTypeMapper.isCacheSafe(javaType, mapperClassLoader)) {
+					this.resolvedWadlTypes.putIfAbsent(javaType, wadlType);
+				}
+			}
+
+			return (wadlType != NOT_MAPPED ? (QName) wadlType : null);
+		}
+
+		/**
+		 * Walk the class hierarchy breadth first, so the closest binding is
+		 * found first.
+		 */
+		private QName resolveWadlType(Class<?> javaType) {
+			while (javaType.isArray()) {
+				javaType = javaType.getComponentType();
+			}
+
+			LinkedList<Class<?>> queue = new LinkedList<Class<?>>();
+			Set<Class<?>> visited = new HashSet<Class<?>>();
+			queue.add(javaType);
+
+			while (!queue.isEmpty()) {
+				Class<?> type = queue.removeFirst();
+				if (!visited.add(type)) {
+					continue;
+				}
+
+				QName wadlType = this.bindings.get(type);
+				if (wadlType != null) {
+					return wadlType;
+				}
+
+				if (type.getSuperclass() != null) {
+					queue.add(type.getSuperclass());
+				}
+				for (Class<?> anInterface : type.getInterfaces()) {
+					queue.add(anInterface);
+				}
+			}
+
+			if (log.isDebugEnabled()) {
+				log.debug("Could not map class '" + javaType + "' to a WADL param type.");
+			}
+
+			return null;
+		}
+	}
+}
@@ -5,6 +5,11 @@ import javax.xml.namespace.QName;
 /**
  * Interface for mapping between WADL and Java types. 
  * 
+ * Implementations must be thread-safe: a single instance is shared by
+ * concurrent WADL requests and, when generating in parallel, is called from
+ * several threads during one generation. They should also be deterministic,
+ * i.e. always return the same WADL type for the same Java type.
+ * 
  * @author Alan Loi
  */
 public interface WadlTypeMapper {
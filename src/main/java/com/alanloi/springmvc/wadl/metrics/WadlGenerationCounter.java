@@ -0,0 +1,24 @@
+package com.alanloi.springmvc.wadl.metrics;
+
+/**
+ * The things counted during a WADL generation.
+ * 
+ * @author Alan Loi
+ */
+public enum WadlGenerationCounter {
+
+	/** WADL resources generated. */
+	RESOURCES,
+
+	/** WADL methods generated. */
+	METHODS,
+
+	/** WADL params generated. */
+	PARAMS,
+
+	/** Java types the WadlTypeMapper could not map. */
+	TYPE_MAPPER_MISSES,
+
+	/** Handler methods skipped because their controller is ignored. */
+	IGNORED_CONTROLLERS
+}
@@ -0,0 +1,47 @@
+package com.alanloi.springmvc.wadl.metrics;
+
+/**
+ * Receives timings and counts from WADL generations.
+ * 
+ * Register one through <code>WadlGeneratorOptions.setListener</code>. When
+ * no listener is registered nothing is timed or counted at all.
+ * 
+ * Implementations must be thread-safe: concurrent generations (and parallel
+ * generation) call the listener from several threads at once. They should
+ * also be fast as they are called for every handler method.
+ * 
+ * @author Alan Loi
+ */
+public interface WadlGenerationListener {
+
+	/**
+	 * Called each time a phase completes. Phases may complete many times
+	 * during one generation e.g. once per handler method.
+	 * 
+	 * @param phase the phase
+	 * @param durationNanos how long the phase took in nanoseconds
+	 */
+	void phaseCompleted(WadlGenerationPhase phase, long durationNanos);
+
+	/**
+	 * Called when something is counted.
+	 * 
+	 * @param counter what was counted
+	 * @param count the count to add
+	 */
+	void counted(WadlGenerationCounter counter, int count);
+
+	/**
+	 * Called once a WADL generation has completed.
+	 * 
+	 * @param durationNanos how long the generation took in nanoseconds
+	 */
+	void generationCompleted(long durationNanos);
+
+	/**
+	 * Called when a cached WADL is looked up.
+	 * 
+	 * @param hit whether the WADL was found in the cache
+	 */
+	void cacheAccessed(boolean hit);
+}
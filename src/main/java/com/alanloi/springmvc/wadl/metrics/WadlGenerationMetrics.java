@@ -0,0 +1,173 @@
+package com.alanloi.springmvc.wadl.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Default {@link WadlGenerationListener} which accumulates the timings and
+ * counts and exposes them as a JMX MBean.
+ *
+ * Times and counts are totals since creation (or the last reset), apart
+ * from the last generation duration.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class WadlGenerationMetrics implements WadlGenerationListener, WadlGenerationMetricsMBean {
+
+	public static final String DEFAULT_OBJECT_NAME = "com.alanloi.springmvc.wadl:type=WadlGenerationMetrics";
+
+	private final AtomicLongArray phaseNanos = new AtomicLongArray(WadlGenerationPhase.values().length);
+	private final AtomicLongArray counts = new AtomicLongArray(WadlGenerationCounter.values().length);
+
+	private final AtomicLong generationCount = new AtomicLong();
+	private final AtomicLong totalGenerationNanos = new AtomicLong();
+	private volatile long lastGenerationNanos;
+
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+
+	/**
+	 * Register this as an MBean on the platform MBean server under
+	 * {@link #DEFAULT_OBJECT_NAME}.
+	 *
+	 * @return the name registered under
+	 * @throws JMException if it could not be registered
+	 */
+	public ObjectName registerMBean() throws JMException {
+		return registerMBean(ManagementFactory.getPlatformMBeanServer(), new ObjectName(DEFAULT_OBJECT_NAME));
+	}
+
+	/**
+	 * Register this as an MBean.
+	 *
+	 * @param mbeanServer the MBean server to register with
+	 * @param objectName the name to register under
+	 * @return the name registered under
+	 * @throws JMException if it could not be registered
+	 */
+	public ObjectName registerMBean(MBeanServer mbeanServer, ObjectName objectName) throws JMException {
+		ObjectName registered = mbeanServer.registerMBean(this, objectName).getObjectName();
+
+		if (log.isInfoEnabled()) {
+			log.info("Registered WADL generation metrics MBean: " + registered);
+		}
+
+		return registered;
+	}
+
+	public void phaseCompleted(WadlGenerationPhase phase, long durationNanos) {
+		this.phaseNanos.addAndGet(phase.ordinal(), durationNanos);
+	}
+
+	public void counted(WadlGenerationCounter counter, int count) {
+		this.counts.addAndGet(counter.ordinal(), count);
+	}
+
+	public void generationCompleted(long durationNanos) {
+		this.generationCount.incrementAndGet();
+		this.totalGenerationNanos.addAndGet(durationNanos);
+		this.lastGenerationNanos = durationNanos;
+	}
+
+	public void cacheAccessed(boolean hit) {
+		(hit ? this.cacheHits : this.cacheMisses).incrementAndGet();
+	}
+
+	public long getGenerationCount() {
+		return this.generationCount.get();
+	}
+
+	public long getLastGenerationMillis() {
+		return toMillis(this.lastGenerationNanos);
+	}
+
+	public long getTotalGenerationMillis() {
+		return toMillis(this.totalGenerationNanos.get());
+	}
+
+	public long getHandlerMappingIterationMillis() {
+		return getPhaseMillis(WadlGenerationPhase.HANDLER_MAPPING_ITERATION);
+	}
+
+	public long getParameterNameDiscoveryMillis() {
+		return getPhaseMillis(WadlGenerationPhase.PARAMETER_NAME_DISCOVERY);
+	}
+
+	public long getTypeMappingMillis() {
+		return getPhaseMillis(WadlGenerationPhase.TYPE_MAPPING);
+	}
+
+	public long getRepresentationBuildingMillis() {
+		return getPhaseMillis(WadlGenerationPhase.REPRESENTATION_BUILDING);
+	}
+
+	public long getResourceCount() {
+		return getCount(WadlGenerationCounter.RESOURCES);
+	}
+
+	public long getMethodCount() {
+		return getCount(WadlGenerationCounter.METHODS);
+	}
+
+	public long getParamCount() {
+		return getCount(WadlGenerationCounter.PARAMS);
+	}
+
+	public long getTypeMapperMissCount() {
+		return getCount(WadlGenerationCounter.TYPE_MAPPER_MISSES);
+	}
+
+	public long getIgnoredControllerCount() {
+		return getCount(WadlGenerationCounter.IGNORED_CONTROLLERS);
+	}
+
+	public long getCacheHitCount() {
+		return this.cacheHits.get();
+	}
+
+	public long getCacheMissCount() {
+		return this.cacheMisses.get();
+	}
+
+	public double getCacheHitRate() {
+		long hits = this.cacheHits.get();
+		long lookups = hits + this.cacheMisses.get();
+		return (lookups > 0 ? (double) hits / lookups : 0d);
+	}
+
+	public void reset() {
+		for (int i = 0; i < this.phaseNanos.length(); i++) {
+			this.phaseNanos.set(i, 0);
+		}
+		for (int i = 0; i < this.counts.length(); i++) {
+			this.counts.set(i, 0);
+		}
+
+		this.generationCount.set(0);
+		this.totalGenerationNanos.set(0);
+		this.lastGenerationNanos = 0;
+		this.cacheHits.set(0);
+		this.cacheMisses.set(0);
+	}
+
+	public long getPhaseMillis(WadlGenerationPhase phase) {
+		return toMillis(this.phaseNanos.get(phase.ordinal()));
+	}
+
+	public long getCount(WadlGenerationCounter counter) {
+		return this.counts.get(counter.ordinal());
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+}
@@ -0,0 +1,47 @@
+package com.alanloi.springmvc.wadl.metrics;
+
+/**
+ * JMX management interface of {@link WadlGenerationMetrics}.
+ * 
+ * @author Alan Loi
+ */
+public interface WadlGenerationMetricsMBean {
+
+	long getGenerationCount();
+
+	long getLastGenerationMillis();
+
+	long getTotalGenerationMillis();
+
+	long getHandlerMappingIterationMillis();
+
+	long getParameterNameDiscoveryMillis();
+
+	long getTypeMappingMillis();
+
+	long getRepresentationBuildingMillis();
+
+	long getResourceCount();
+
+	long getMethodCount();
+
+	long getParamCount();
+
+	long getTypeMapperMissCount();
+
+	long getIgnoredControllerCount();
+
+	long getCacheHitCount();
+
+	long getCacheMissCount();
+
+	/**
+	 * @return cache hits / cache lookups, or 0 if there haven't been any lookups
+	 */
+	double getCacheHitRate();
+
+	/**
+	 * Reset all metrics to zero.
+	 */
+	void reset();
+}
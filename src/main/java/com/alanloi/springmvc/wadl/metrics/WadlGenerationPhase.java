@@ -0,0 +1,21 @@
+package com.alanloi.springmvc.wadl.metrics;
+
+/**
+ * The timed phases of a WADL generation.
+ * 
+ * @author Alan Loi
+ */
+public enum WadlGenerationPhase {
+
+	/** Walking the handler methods of the handler mapping. */
+	HANDLER_MAPPING_ITERATION,
+
+	/** Discovering the parameter names of the handler methods. */
+	PARAMETER_NAME_DISCOVERY,
+
+	/** Mapping Java types to WADL types. */
+	TYPE_MAPPING,
+
+	/** Building the request/response representations. */
+	REPRESENTATION_BUILDING
+}
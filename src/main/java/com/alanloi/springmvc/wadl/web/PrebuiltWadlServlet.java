@@ -0,0 +1,101 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.alanloi.springmvc.wadl.WadlGenerator;
+
+/**
+ * Serves a WADL which was generated at build time (e.g. by the
+ * springmvc-wadlgen-maven-plugin) from the classpath, so no WADL is
+ * generated at runtime.
+ *
+ * The {@link WadlDocumentTemplate#BASE_URL_PLACEHOLDER} in the WADL is
+ * replaced with the base URL of the request, and the document of a base
+ * URL is compressed once it's requested again (see
+ * {@link WadlDocumentTemplate}).
+ *
+ * Init parameters:
+ *  - resource: classpath location of the WADL
+ *    (default: <code>META-INF/wadl/application.wadl</code>). If the WADL
+ *    has no placeholder (it was generated for a fixed base URL), a gzip
+ *    copy with a <code>.gz</code> suffix is served if present.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class PrebuiltWadlServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String DEFAULT_RESOURCE = "META-INF/wadl/application.wadl";
+
+	private transient WadlDocumentTemplate template;
+
+	@Override
+	public void init() throws ServletException {
+		String resource = StringUtils.defaultIfEmpty(getInitParameter("resource"), DEFAULT_RESOURCE);
+
+		byte[] content = readResource(resource);
+		if (content == null) {
+			throw new ServletException("WADL not found on classpath: " + resource);
+		}
+
+		this.template = WadlDocumentTemplate.create(content, WadlDocumentService.WADL_CONTENT_TYPE);
+		if (!this.template.hasPlaceholder()) {
+			byte[] gzippedContent = readResource(resource + ".gz");
+			if (gzippedContent != null) {
+				this.template = WadlDocumentTemplate.create(content, gzippedContent,
+						WadlDocumentService.WADL_CONTENT_TYPE);
+			}
+		}
+
+		if (log.isInfoEnabled()) {
+			log.info("Serving prebuilt WADL from classpath: " + resource);
+		}
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		WadlDocument document = this.template.render(WadlGenerator.getBaseUrl(request));
+		WadlDocumentWriter.write(document, request, response);
+	}
+
+	private static byte[] readResource(String resource) throws ServletException {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		if (classLoader == null) {
+			classLoader = PrebuiltWadlServlet.class.getClassLoader();
+		}
+
+		InputStream in = classLoader.getResourceAsStream(resource);
+		if (in == null) {
+			return null;
+		}
+
+		try {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					bytes.write(buffer, 0, read);
+				}
+				return bytes.toByteArray();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new ServletException("Could not read WADL from classpath: " + resource, e);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.Getter;
+
+/**
+ * A serialized WADL document ready to be written to a HTTP response.
+ *
+ * Holds the serialized bytes, a precompressed gzip copy and a strong ETag
+ * derived from a hash of the content, so serving the document is just a
+ * memory copy. A document rendered from a {@link WadlDocumentTemplate} may
+ * have no gzip copy yet, and is then served uncompressed.
+ *
+ * NOTE: the byte arrays are shared and must not be modified.
+ *
+ * @author Alan Loi
+ */
+@Getter
+public class WadlDocument {
+
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final byte[] content;
+	private final byte[] gzippedContent;
+	private final String contentType;
+	private final String etag;
+
+	private WadlDocument(byte[] content, byte[] gzippedContent, String contentType, String etag) {
+		this.content = content;
+		this.gzippedContent = gzippedContent;
+		this.contentType = contentType;
+		this.etag = etag;
+	}
+
+	/**
+	 * Create a document, compressing and hashing the content once up front.
+	 *
+	 * @param content the serialized document
+	 * @param contentType the HTTP content type of the document
+	 * @return the document
+	 */
+	public static WadlDocument create(byte[] content, String contentType) {
+		return create(content, gzip(content), contentType);
+	}
+
+	/**
+	 * Create a document from content which has already been compressed, e.g.
+	 * at build time.
+	 *
+	 * @param content the serialized document
+	 * @param gzippedContent the gzip compressed serialized document
+	 * @param contentType the HTTP content type of the document
+	 * @return the document
+	 */
+	public static WadlDocument create(byte[] content, byte[] gzippedContent, String contentType) {
+		String etag = "\"" + hash(content) + "\"";
+		return new WadlDocument(content, gzippedContent, contentType, etag);
+	}
+
+	/**
+	 * Create a document with a known ETag.
+	 *
+	 * @param content the serialized document
+	 * @param gzippedContent the gzip compressed serialized document, or
+	 *            <code>null</code> to only serve it uncompressed
+	 * @param contentType the HTTP content type of the document
+	 * @param etag the ETag of the uncompressed document
+	 * @return the document
+	 */
+	static WadlDocument create(byte[] content, byte[] gzippedContent, String contentType, String etag) {
+		return new WadlDocument(content, gzippedContent, contentType, etag);
+	}
+
+	/**
+	 * Get the ETag of the gzip encoded variant.
+	 *
+	 * Different encodings of the same content must have different strong
+	 * ETags, so the gzip variant gets a suffix.
+	 *
+	 * @return the ETag of the gzip encoded variant
+	 */
+	public String getGzipEtag() {
+		return toGzipEtag(this.etag);
+	}
+
+	static String toGzipEtag(String etag) {
+		return etag.substring(0, etag.length() - 1) + "-gzip\"";
+	}
+
+	/**
+	 * Hash the content with SHA-256.
+	 *
+	 * @param content the content to hash
+	 * @return the hex encoded hash
+	 */
+	static String hash(byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Hash algorithm not available: " + HASH_ALGORITHM, e);
+		}
+
+		return toHex(digest.digest(content));
+	}
+
+	static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	static byte[] gzip(byte[] content) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4 + 64);
+			GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+			gzip.write(content);
+			gzip.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			// can't happen with an in-memory stream
+			throw new IllegalStateException("Could not gzip WADL document", e);
+		}
+	}
+}
@@ -0,0 +1,494 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import com.alanloi.springmvc.wadl.BoundedLruCache;
+import com.alanloi.springmvc.wadl.CachingWadlGenerator;
+import com.alanloi.springmvc.wadl.GenerationCoordinator;
+import com.alanloi.springmvc.wadl.HandlerMethodDescriptorIndex;
+import com.alanloi.springmvc.wadl.WadlFilter;
+import com.alanloi.springmvc.wadl.WadlGenerator;
+import com.alanloi.springmvc.wadl.WadlJsonWriter;
+import com.alanloi.springmvc.wadl.WadlMarshaller;
+import com.alanloi.springmvc.wadl.WadlValidator;
+
+/**
+ * Serves the WADL from a {@link CachingWadlGenerator} as pre-serialized
+ * bytes.
+ *
+ * The generator's template WadlApplication is marshalled only once, with a
+ * placeholder for the base URL, and kept as a {@link WadlDocumentTemplate}
+ * until the generator produces a new template, e.g. after a context
+ * refresh. The document for each base URL (with a gzip copy and ETag) is
+ * then just a splice of the template's bytes.
+ *
+ * Concurrent callers share a single marshalling. If the generator has a
+ * revalidation executor, a new template is marshalled on it while callers
+ * keep getting the previous document.
+ *
+ * Partial WADLs selected by a {@link WadlFilter} are marshalled on their own
+ * and the most recently used ones are kept. So are the index and shards of
+ * a sharded WADL, see {@link #serveSharded(HttpServletRequest, HttpServletResponse)}.
+ * Each of them is single-flighted too.
+ *
+ * The WADL can also be served as JSON, see {@link WadlJsonWriter}, which is
+ * cached and single-flighted the same way as the XML.
+ *
+ * While a {@link WadlSnapshot} is set (see {@link WadlWarmUp}) the full WADL
+ * is served from it instead, without generating or marshalling anything.
+ *
+ * With a {@link #setValidator(WadlValidator) validator} each new template is
+ * validated once marshalled. An invalid WADL is logged and still served.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class WadlDocumentService {
+
+	public static final String WADL_CONTENT_TYPE = "application/vnd.sun.wadl+xml";
+
+	public static final String WADL_JSON_CONTENT_TYPE = "application/json";
+
+	private static final String MARSHAL_KEY = "template";
+
+	private static final String JSON_MARSHAL_KEY = "jsonTemplate";
+
+	private static final String SHARD_INDEX_MARSHAL_KEY = "shardIndex";
+
+	private static final String SHARD_MARSHAL_KEY_PREFIX = "shard:";
+
+	private static final int MAX_CACHED_FILTERS = 32;
+
+	@Getter
+	private final CachingWadlGenerator generator;
+
+	@Getter
+	private final WadlMarshaller marshaller;
+
+	private volatile CachedTemplate cached;
+
+	/**
+	 * Only one marshalling at a time per key (the full WADL per format, each
+	 * filter, the shard index and each shard), whichever template it's for.
+	 */
+	private final GenerationCoordinator<Object, CachedTemplate> marshalling =
+			new GenerationCoordinator<Object, CachedTemplate>();
+
+	private final BoundedLruCache<WadlFilter, CachedTemplate> filtered =
+			new BoundedLruCache<WadlFilter, CachedTemplate>(MAX_CACHED_FILTERS);
+
+	private final WadlJsonWriter jsonWriter = new WadlJsonWriter();
+
+	private volatile CachedTemplate jsonCached;
+
+	private volatile CachedTemplate shardIndex;
+
+	private final ConcurrentMap<String, CachedTemplate> shards = new ConcurrentHashMap<String, CachedTemplate>();
+
+	/** The index whose controllers the shards were last pruned to. */
+	private volatile HandlerMethodDescriptorIndex shardsIndex;
+
+	/** Serves the full WADL instead of the generator, if set. */
+	@Getter
+	@Setter
+	private volatile WadlSnapshot snapshot;
+
+	/**
+	 * Validates each new template, if set. Create it to validate only when
+	 * changed to skip templates with the same content as the last one.
+	 */
+	@Getter
+	@Setter
+	private volatile WadlValidator validator;
+
+	public WadlDocumentService(CachingWadlGenerator generator, WadlMarshaller marshaller) {
+		this.generator = generator;
+		this.marshaller = marshaller;
+	}
+
+	public WadlDocumentService(CachingWadlGenerator generator) {
+		this(generator, new WadlMarshaller());
+	}
+
+	/**
+	 * Write the WADL to the response, answering with a 304 if the client
+	 * already has the current version.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param response the HTTP response
+	 * @throws IOException if the response could not be written
+	 */
+	public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		WadlSnapshot current = this.snapshot;
+		if (current != null) {
+			current.write(request, response);
+			return;
+		}
+
+		WadlDocumentWriter.write(getDocument(request), request, response);
+	}
+
+	/**
+	 * Write the part of the WADL selected by a filter to the response,
+	 * answering with a 304 if the client already has the current version.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param response the HTTP response
+	 * @param filter selects the request mappings to include, e.g.
+	 *            {@link WadlFilter#fromRequest(HttpServletRequest)}
+	 * @throws IOException if the response could not be written
+	 */
+	public void serve(HttpServletRequest request, HttpServletResponse response, WadlFilter filter)
+			throws IOException {
+		WadlDocumentWriter.write(getDocument(request, filter), request, response);
+	}
+
+	/**
+	 * Write the WADL as JSON to the response, answering with a 304 if the
+	 * client already has the current version.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param response the HTTP response
+	 * @throws IOException if the response could not be written
+	 */
+	public void serveJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		WadlDocumentWriter.write(getJsonDocument(request), request, response);
+	}
+
+	/**
+	 * Get the WADL serialized as JSON for the base URL of the given request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @return the serialized WADL
+	 */
+	public WadlDocument getJsonDocument(HttpServletRequest request) {
+		return getJsonDocumentTemplate().render(WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Get the WADL serialized as JSON with a placeholder for the base URL.
+	 *
+	 * @return the serialized WADL template
+	 */
+	public WadlDocumentTemplate getJsonDocumentTemplate() {
+		final WadlApplication template = this.generator.getTemplate();
+
+		CachedTemplate current = this.jsonCached;
+		if (current != null && current.getApplication() == template) {
+			return current.getDocumentTemplate();
+		}
+
+		Callable<CachedTemplate> builder = new Callable<CachedTemplate>() {
+			public CachedTemplate call() {
+				return marshalJsonTemplate(template);
+			}
+		};
+
+		Executor executor = this.generator.getRevalidationExecutor();
+		if (current != null && executor != null) {
+			// stale-while-revalidate
+			this.marshalling.submit(JSON_MARSHAL_KEY, builder, executor);
+			return current.getDocumentTemplate();
+		}
+
+		CachedTemplate marshalled = this.marshalling.get(JSON_MARSHAL_KEY, builder);
+		if (marshalled.getApplication() != template) {
+			// joined a caller which was marshalling a previous template
+			marshalled = marshalJsonTemplate(template);
+		}
+
+		return marshalled.getDocumentTemplate();
+	}
+
+	private CachedTemplate marshalJsonTemplate(WadlApplication template) {
+		byte[] content = this.jsonWriter.toBytes(WadlGenerator.withBaseUrl(template,
+				WadlDocumentTemplate.BASE_URL_PLACEHOLDER));
+
+		CachedTemplate result = new CachedTemplate(template, WadlDocumentTemplate.createJson(content,
+				WADL_JSON_CONTENT_TYPE));
+		this.jsonCached = result;
+		return result;
+	}
+
+	/**
+	 * Write the shard named by the <code>shard</code> request parameter to
+	 * the response, or the index of the shards if there is no such
+	 * parameter. Answers with a 404 if there is no such shard.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param response the HTTP response
+	 * @throws IOException if the response could not be written
+	 */
+	public void serveSharded(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String controllerName = request.getParameter(WadlGenerator.SHARD_PARAMETER);
+		if (controllerName == null) {
+			WadlDocumentWriter.write(getShardIndexDocument(request), request, response);
+			return;
+		}
+
+		WadlDocument document = getShardDocument(request, controllerName);
+		if (document == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		WadlDocumentWriter.write(document, request, response);
+	}
+
+	/**
+	 * Get the serialized index of the sharded WADL for the base URL of the
+	 * given request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @return the serialized shard index
+	 */
+	public WadlDocument getShardIndexDocument(HttpServletRequest request) {
+		pruneShards();
+
+		final WadlApplication application = this.generator.getShardIndex();
+
+		CachedTemplate current = this.shardIndex;
+		if (current == null || current.getApplication() != application) {
+			current = marshal(SHARD_INDEX_MARSHAL_KEY, application, new Callable<CachedTemplate>() {
+				public CachedTemplate call() {
+					CachedTemplate result = new CachedTemplate(application, marshal(application));
+					WadlDocumentService.this.shardIndex = result;
+					return result;
+				}
+			});
+		}
+
+		return current.getDocumentTemplate().render(WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Get the serialized shard of one controller for the base URL of the
+	 * given request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param controllerName name of the controller class
+	 * @return the serialized shard, or <code>null</code> if there is no such
+	 *         controller
+	 */
+	public WadlDocument getShardDocument(HttpServletRequest request, final String controllerName) {
+		pruneShards();
+
+		final WadlApplication application = this.generator.getShard(controllerName);
+		if (application == null) {
+			this.shards.remove(controllerName);
+			return null;
+		}
+
+		CachedTemplate current = this.shards.get(controllerName);
+		if (current == null || current.getApplication() != application) {
+			current = marshal(SHARD_MARSHAL_KEY_PREFIX + controllerName, application, new Callable<CachedTemplate>() {
+				public CachedTemplate call() {
+					CachedTemplate result = new CachedTemplate(application, marshal(application));
+					WadlDocumentService.this.shards.put(controllerName, result);
+					return result;
+				}
+			});
+		}
+
+		return current.getDocumentTemplate().render(WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Drop the shards of the controllers which are gone once the generator
+	 * has a new index, e.g. after a context refresh.
+	 */
+	private void pruneShards() {
+		HandlerMethodDescriptorIndex index = this.generator.getIndex();
+		if (index == this.shardsIndex) {
+			return;
+		}
+
+		this.shardsIndex = index;
+		this.shards.keySet().retainAll(index.getControllerNames());
+	}
+
+	/**
+	 * @return the names of the controllers whose shards are cached
+	 */
+	Set<String> getCachedShards() {
+		return Collections.unmodifiableSet(this.shards.keySet());
+	}
+
+	/**
+	 * Get the serialized WADL for the base URL of the given request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @return the serialized WADL
+	 */
+	public WadlDocument getDocument(HttpServletRequest request) {
+		return getDocumentTemplate().render(WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Get the part of the serialized WADL selected by a filter for the base
+	 * URL of the given request.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param filter selects the request mappings to include
+	 * @return the serialized (partial) WADL
+	 */
+	public WadlDocument getDocument(HttpServletRequest request, WadlFilter filter) {
+		return getDocumentTemplate(filter).render(WadlGenerator.getBaseUrl(request));
+	}
+
+	/**
+	 * Get the part of the serialized WADL selected by a filter, with a
+	 * placeholder for the base URL.
+	 *
+	 * @param filter selects the request mappings to include
+	 * @return the serialized (partial) WADL template
+	 */
+	public WadlDocumentTemplate getDocumentTemplate(final WadlFilter filter) {
+		if (filter.isEmpty()) {
+			return getDocumentTemplate();
+		}
+
+		final WadlApplication template = this.generator.getTemplate(filter);
+
+		CachedTemplate current = this.filtered.get(filter);
+		if (current == null || current.getApplication() != template) {
+			current = marshal(filter, template, new Callable<CachedTemplate>() {
+				public CachedTemplate call() {
+					CachedTemplate result = new CachedTemplate(template, marshal(template));
+					WadlDocumentService.this.filtered.put(filter, result);
+					return result;
+				}
+			});
+		}
+
+		return current.getDocumentTemplate();
+	}
+
+	/**
+	 * Get the serialized WADL with a placeholder for the base URL.
+	 *
+	 * @return the serialized WADL template
+	 */
+	public WadlDocumentTemplate getDocumentTemplate() {
+		WadlSnapshot current = this.snapshot;
+		if (current != null) {
+			return current.getDocumentTemplate();
+		}
+
+		return getGeneratedDocumentTemplate();
+	}
+
+	/**
+	 * Get the serialized WADL of the generator with a placeholder for the
+	 * base URL, even if a snapshot is set.
+	 *
+	 * @return the serialized WADL template
+	 */
+	public WadlDocumentTemplate getGeneratedDocumentTemplate() {
+		final WadlApplication template = this.generator.getTemplate();
+
+		CachedTemplate current = this.cached;
+		if (current != null && current.getApplication() == template) {
+			return current.getDocumentTemplate();
+		}
+
+		Callable<CachedTemplate> builder = new Callable<CachedTemplate>() {
+			public CachedTemplate call() {
+				return marshalTemplate(template);
+			}
+		};
+
+		Executor executor = this.generator.getRevalidationExecutor();
+		if (current != null && executor != null) {
+			// stale-while-revalidate
+			this.marshalling.submit(MARSHAL_KEY, builder, executor);
+			return current.getDocumentTemplate();
+		}
+
+		CachedTemplate marshalled = this.marshalling.get(MARSHAL_KEY, builder);
+		if (marshalled.getApplication() != template) {
+			// joined a caller which was marshalling a previous template
+			marshalled = marshalTemplate(template);
+		}
+
+		return marshalled.getDocumentTemplate();
+	}
+
+	/**
+	 * @return whether a serialized WADL is of the generator's current
+	 *         template, rather than a stale one served while revalidating
+	 */
+	boolean isCurrent(WadlDocumentTemplate documentTemplate) {
+		CachedTemplate current = this.cached;
+		return current != null && current.getDocumentTemplate() == documentTemplate
+				&& current.getApplication() == this.generator.getTemplate() && !this.generator.isRevalidating();
+	}
+
+	private CachedTemplate marshalTemplate(WadlApplication template) {
+		CachedTemplate result = new CachedTemplate(template, marshal(template));
+		validate(result);
+		this.cached = result;
+		return result;
+	}
+
+	private void validate(CachedTemplate marshalled) {
+		WadlValidator current = this.validator;
+		if (current == null) {
+			return;
+		}
+
+		try {
+			current.validate(marshalled.getApplication(), marshalled.getDocumentTemplate().getFingerprint());
+		} catch (IllegalStateException e) {
+			log.error("Serving a WADL which failed validation", e);
+		}
+	}
+
+	/**
+	 * Marshal a template which isn't cached yet, sharing the marshalling with
+	 * concurrent callers for the same key.
+	 */
+	private CachedTemplate marshal(Object key, WadlApplication template, Callable<CachedTemplate> builder) {
+		CachedTemplate marshalled = this.marshalling.get(key, builder);
+		if (marshalled.getApplication() != template) {
+			// joined a caller which was marshalling a previous template
+			marshalled = new CachedTemplate(template, marshal(template));
+		}
+
+		return marshalled;
+	}
+
+	private WadlDocumentTemplate marshal(WadlApplication template) {
+		byte[] content = this.marshaller.toBytes(WadlGenerator.withBaseUrl(template,
+				WadlDocumentTemplate.BASE_URL_PLACEHOLDER));
+
+		return WadlDocumentTemplate.create(content, WADL_CONTENT_TYPE);
+	}
+
+	/**
+	 * A serialized template along with the WadlApplication it was created
+	 * from.
+	 */
+	@RequiredArgsConstructor
+	@Getter
+	private static class CachedTemplate {
+
+		private final WadlApplication application;
+		private final WadlDocumentTemplate documentTemplate;
+	}
+}
@@ -0,0 +1,257 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+import com.alanloi.springmvc.wadl.BoundedLruCache;
+import com.alanloi.springmvc.wadl.WadlJsonWriter;
+
+/**
+ * A serialized WADL document where the base URL is a placeholder, so the
+ * expensive generation and marshalling is done once regardless of the host
+ * the WADL is requested through.
+ *
+ * Rendering a document for a base URL just splices the escaped base URL
+ * between the byte ranges around the placeholder. The base URL comes from
+ * the Host header, which the client controls, so the first rendering for a
+ * base URL isn't compressed and its ETag is derived from the fingerprint
+ * rather than from a hash of the content. The documents of the most
+ * recently used base URLs are cached, and compressed once they're requested
+ * again or {@link #prepare(String) prepared}.
+ *
+ * The {@link #getFingerprint() fingerprint} identifies the content
+ * regardless of the base URL. Generated with
+ * {@link com.alanloi.springmvc.wadl.WadlGeneratorOptions#setCanonical(boolean) canonical}
+ * ordering it is the same on every node running the same build.
+ *
+ * @author Alan Loi
+ */
+public class WadlDocumentTemplate {
+
+	/** Placeholder for the base URL in a serialized WADL. */
+	public static final String BASE_URL_PLACEHOLDER = "${wadl.baseUrl}";
+
+	private static final String ENCODING = "UTF-8";
+
+	/** The base URL comes from the Host header, so only cache the most recently used ones. */
+	private static final int MAX_CACHED_DOCUMENTS = 16;
+
+	@Getter
+	private final byte[] content;
+
+	@Getter
+	private final String contentType;
+
+	/** Whether the base URL is escaped for JSON strings rather than XML. */
+	private final boolean json;
+
+	/** Offsets of the placeholders in the content. */
+	private final int[] placeholderOffsets;
+
+	private final int placeholderLength;
+
+	/** Only set if the content has no placeholder. */
+	private final WadlDocument staticDocument;
+
+	private final BoundedLruCache<String, WadlDocument> documents =
+			new BoundedLruCache<String, WadlDocument>(MAX_CACHED_DOCUMENTS);
+
+	/** Hashed on first use. */
+	private volatile String fingerprint;
+
+	private WadlDocumentTemplate(byte[] content, byte[] gzippedContent, String contentType, boolean json) {
+		this.content = content;
+		this.contentType = contentType;
+		this.json = json;
+
+		byte[] placeholder = toBytes(BASE_URL_PLACEHOLDER);
+		this.placeholderLength = placeholder.length;
+		this.placeholderOffsets = indexesOf(content, placeholder);
+
+		if (this.placeholderOffsets.length > 0) {
+			this.staticDocument = null;
+		} else if (gzippedContent != null) {
+			this.staticDocument = WadlDocument.create(content, gzippedContent, contentType);
+		} else {
+			this.staticDocument = WadlDocument.create(content, contentType);
+		}
+	}
+
+	/**
+	 * Create a template from a serialized WADL containing
+	 * {@link #BASE_URL_PLACEHOLDER}.
+	 *
+	 * @param content the serialized WADL
+	 * @param contentType the HTTP content type of the WADL
+	 * @return the template
+	 */
+	public static WadlDocumentTemplate create(byte[] content, String contentType) {
+		return new WadlDocumentTemplate(content, null, contentType, false);
+	}
+
+	/**
+	 * Create a template from a serialized WADL and its gzip compressed copy.
+	 * The compressed copy is only used if there's no placeholder to replace.
+	 *
+	 * @param content the serialized WADL
+	 * @param gzippedContent the gzip compressed serialized WADL (optional)
+	 * @param contentType the HTTP content type of the WADL
+	 * @return the template
+	 */
+	public static WadlDocumentTemplate create(byte[] content, byte[] gzippedContent, String contentType) {
+		return new WadlDocumentTemplate(content, gzippedContent, contentType, false);
+	}
+
+	/**
+	 * Create a template from a WADL serialized as JSON (see
+	 * {@link WadlJsonWriter}) containing {@link #BASE_URL_PLACEHOLDER}.
+	 *
+	 * @param content the serialized WADL
+	 * @param contentType the HTTP content type of the WADL
+	 * @return the template
+	 */
+	public static WadlDocumentTemplate createJson(byte[] content, String contentType) {
+		return new WadlDocumentTemplate(content, null, contentType, true);
+	}
+
+	/**
+	 * @return whether the content contains {@link #BASE_URL_PLACEHOLDER},
+	 *         i.e. is rendered per base URL
+	 */
+	public boolean hasPlaceholder() {
+		return this.staticDocument == null;
+	}
+
+	/**
+	 * Get the document for a base URL.
+	 *
+	 * @param baseUrl the base URL to substitute for the placeholder
+	 * @return the document
+	 */
+	public WadlDocument render(String baseUrl) {
+		if (this.staticDocument != null) {
+			return this.staticDocument;
+		}
+
+		WadlDocument document = this.documents.get(baseUrl);
+		if (document == null) {
+			// possibly a made up Host header: serve it uncompressed
+			document = WadlDocument.create(splice(baseUrl), null, this.contentType, getEtag(baseUrl));
+			this.documents.put(baseUrl, document);
+
+		} else if (document.getGzippedContent() == null) {
+			document = compress(document);
+			this.documents.put(baseUrl, document);
+		}
+
+		return document;
+	}
+
+	/**
+	 * Render and compress the document for a base URL ahead of the requests,
+	 * e.g. for the known host names of the application.
+	 *
+	 * @param baseUrl the base URL to substitute for the placeholder
+	 * @return the document, with a gzip compressed copy
+	 */
+	public WadlDocument prepare(String baseUrl) {
+		WadlDocument document = render(baseUrl);
+		if (document.getGzippedContent() == null) {
+			document = compress(document);
+			this.documents.put(baseUrl, document);
+		}
+
+		return document;
+	}
+
+	/**
+	 * Get the ETag of the document for a base URL, derived from the
+	 * fingerprint and the base URL so the rendered content isn't hashed.
+	 *
+	 * @param baseUrl the base URL
+	 * @return the ETag of the uncompressed document
+	 */
+	public String getEtag(String baseUrl) {
+		return "\"" + WadlDocument.hash(toBytes(getFingerprint() + ' ' + baseUrl)) + "\"";
+	}
+
+	/**
+	 * Get the SHA-256 hash of the content, with the placeholder rather than
+	 * a base URL.
+	 *
+	 * @return the hex encoded hash
+	 */
+	public String getFingerprint() {
+		String result = this.fingerprint;
+		if (result == null) {
+			result = WadlDocument.hash(this.content);
+			this.fingerprint = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Replace the placeholders with the (XML or JSON escaped) base URL.
+	 *
+	 * @param baseUrl the base URL
+	 * @return the serialized WADL with the base URL
+	 */
+	public byte[] splice(String baseUrl) {
+		byte[] replacement = toBytes(this.json ? WadlJsonWriter.escape(baseUrl) : StringEscapeUtils.escapeXml(baseUrl));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.content.length + this.placeholderOffsets.length
+				* (replacement.length - this.placeholderLength));
+
+		int from = 0;
+		for (int offset : this.placeholderOffsets) {
+			bytes.write(this.content, from, offset - from);
+			bytes.write(replacement, 0, replacement.length);
+			from = offset + this.placeholderLength;
+		}
+		bytes.write(this.content, from, this.content.length - from);
+
+		return bytes.toByteArray();
+	}
+
+	private static WadlDocument compress(WadlDocument document) {
+		return WadlDocument.create(document.getContent(), WadlDocument.gzip(document.getContent()),
+				document.getContentType(), document.getEtag());
+	}
+
+	private static int[] indexesOf(byte[] content, byte[] pattern) {
+		List<Integer> indexes = new ArrayList<Integer>(1);
+
+		outer:
+		for (int i = 0; i <= content.length - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (content[i + j] != pattern[j]) {
+					continue outer;
+				}
+			}
+
+			indexes.add(i);
+			i += pattern.length - 1;
+		}
+
+		int[] result = new int[indexes.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = indexes.get(i);
+		}
+		return result;
+	}
+
+	private static byte[] toBytes(String value) {
+		try {
+			return value.getBytes(ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Writes a {@link WadlDocument} to a HTTP response.
+ *
+ * Supports conditional requests (<code>If-None-Match</code> is answered with
+ * a 304) and serves the precompressed copy, if there is one, when the client
+ * accepts gzip.
+ *
+ * @author Alan Loi
+ */
+public final class WadlDocumentWriter {
+
+	private static final String GZIP = "gzip";
+
+	private WadlDocumentWriter() {
+	}
+
+	/**
+	 * Write the document to the response.
+	 *
+	 * @param document the document to write
+	 * @param request the HTTP request
+	 * @param response the HTTP response
+	 * @throws IOException if the response could not be written
+	 */
+	public static void write(WadlDocument document, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		boolean gzip = (document.getGzippedContent() != null && acceptsGzip(request.getHeader("Accept-Encoding")));
+		String etag = (gzip ? document.getGzipEtag() : document.getEtag());
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Vary", "Accept-Encoding");
+
+		if (isNotModified(request.getHeader("If-None-Match"), etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		byte[] body = (gzip ? document.getGzippedContent() : document.getContent());
+
+		response.setContentType(document.getContentType());
+		response.setContentLength(body.length);
+		if (gzip) {
+			response.setHeader("Content-Encoding", GZIP);
+		}
+
+		if (!"HEAD".equals(request.getMethod())) {
+			response.getOutputStream().write(body);
+		}
+	}
+
+	/**
+	 * Write a document stored in files to the response, e.g. from a
+	 * {@link WadlSnapshot}. The files are transferred by their channel rather
+	 * than read into a byte array first.
+	 *
+	 * @param content the file with the serialized document
+	 * @param gzippedContent the file with the gzip compressed serialized document
+	 * @param contentType the HTTP content type of the document
+	 * @param etag the ETag of the uncompressed document
+	 * @param request the HTTP request
+	 * @param response the HTTP response
+	 * @throws IOException if the files could not be read or the response could not be written
+	 */
+	public static void write(File content, File gzippedContent, String contentType, String etag,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+		String selectedEtag = (gzip ? WadlDocument.toGzipEtag(etag) : etag);
+
+		response.setHeader("ETag", selectedEtag);
+		response.setHeader("Vary", "Accept-Encoding");
+
+		if (isNotModified(request.getHeader("If-None-Match"), selectedEtag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		File body = (gzip ? gzippedContent : content);
+
+		response.setContentType(contentType);
+		response.setContentLength((int) body.length());
+		if (gzip) {
+			response.setHeader("Content-Encoding", GZIP);
+		}
+
+		if (!"HEAD".equals(request.getMethod())) {
+			transfer(body, response.getOutputStream());
+		}
+	}
+
+	private static void transfer(File file, OutputStream out) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			WritableByteChannel target = Channels.newChannel(out);
+
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				position += channel.transferTo(position, size - position, target);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Check whether any of the entity tags in an <code>If-None-Match</code>
+	 * header matches the ETag of the selected variant (weak comparison). The
+	 * ETag of the other encoding does not match: the client has not stored
+	 * the variant it would be told to reuse.
+	 */
+	static boolean isNotModified(String ifNoneMatch, String etag) {
+		if (StringUtils.isBlank(ifNoneMatch)) {
+			return false;
+		}
+
+		for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+			tag = tag.trim();
+			if ("*".equals(tag)) {
+				return true;
+			}
+
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+
+			if (tag.equals(etag)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Check whether an <code>Accept-Encoding</code> header allows gzip.
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (StringUtils.isBlank(acceptEncoding)) {
+			return false;
+		}
+
+		for (String coding : StringUtils.split(acceptEncoding, ',')) {
+			String[] parts = StringUtils.split(coding, ';');
+			if (parts.length == 0) {
+				continue;  // skip
+			}
+
+			String name = parts[0].trim();
+			if (!GZIP.equalsIgnoreCase(name) && !"*".equals(name)) {
+				continue;  // skip
+			}
+
+			return !hasZeroQuality(parts);
+		}
+
+		return false;
+	}
+
+	private static boolean hasZeroQuality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String param = StringUtils.deleteWhitespace(parts[i]);
+			if (param.startsWith("q=")) {
+				try {
+					return Float.parseFloat(param.substring(2)) <= 0f;
+				} catch (NumberFormatException e) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,100 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.Getter;
+
+import com.alanloi.springmvc.wadl.WadlGenerator;
+
+/**
+ * A serialized WADL loaded from a {@link WadlSnapshotStore}.
+ *
+ * The documents rendered for the base URLs known when the snapshot was
+ * saved stay on disk and are streamed from their files. Any other base URL
+ * is rendered from the template, which is kept in memory, as is a document
+ * whose files have been removed (e.g. by another node sharing the snapshot
+ * directory).
+ *
+ * @author Alan Loi
+ */
+public class WadlSnapshot {
+
+	/** Fingerprint of the application the WADL was generated for. */
+	@Getter
+	private final String fingerprint;
+
+	@Getter
+	private final WadlDocumentTemplate documentTemplate;
+
+	/** The rendered documents by key of their base URL. */
+	private final Map<String, Document> documents;
+
+	WadlSnapshot(String fingerprint, WadlDocumentTemplate documentTemplate, Map<String, Document> documents) {
+		this.fingerprint = fingerprint;
+		this.documentTemplate = documentTemplate;
+		this.documents = documents;
+	}
+
+	/**
+	 * Write the WADL for the base URL of the request to the response,
+	 * answering with a 304 if the client already has it.
+	 *
+	 * @param request the HTTP request to retrieve the WADL
+	 * @param response the HTTP response
+	 * @throws IOException if the snapshot could not be read or the response could not be written
+	 */
+	public void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String baseUrl = WadlGenerator.getBaseUrl(request);
+
+		Document document = this.documents.get(WadlSnapshotStore.getKey(baseUrl));
+		if (document == null || !document.exists()) {
+			WadlDocumentWriter.write(this.documentTemplate.render(baseUrl), request, response);
+			return;
+		}
+
+		try {
+			// the same ETag as the document has in memory
+			WadlDocumentWriter.write(document.content, document.gzippedContent,
+					this.documentTemplate.getContentType(), this.documentTemplate.getEtag(baseUrl), request, response);
+		} catch (FileNotFoundException e) {
+			// removed since it was checked, but nothing has been sent yet
+			if (response.isCommitted()) {
+				throw e;
+			}
+
+			response.reset();
+			WadlDocumentWriter.write(this.documentTemplate.render(baseUrl), request, response);
+		}
+	}
+
+	/**
+	 * @return whether the document for a base URL is streamed from disk
+	 */
+	boolean isStored(String baseUrl) {
+		return this.documents.containsKey(WadlSnapshotStore.getKey(baseUrl));
+	}
+
+	/**
+	 * The files of a document rendered for a base URL.
+	 */
+	static final class Document {
+
+		private final File content;
+		private final File gzippedContent;
+
+		Document(File content, File gzippedContent) {
+			this.content = content;
+			this.gzippedContent = gzippedContent;
+		}
+
+		boolean exists() {
+			return this.content.isFile() && this.gzippedContent.isFile();
+		}
+	}
+}
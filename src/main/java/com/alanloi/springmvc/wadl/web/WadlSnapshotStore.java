@@ -0,0 +1,410 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+import com.alanloi.springmvc.wadl.CachingWadlGenerator;
+import com.alanloi.springmvc.wadl.WadlGenerator;
+import com.alanloi.springmvc.wadl.mapper.AbstractWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.JavaWadlTypePair;
+import com.alanloi.springmvc.wadl.mapper.RegistryWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+
+/**
+ * Keeps the serialized WADL in a local directory, so a node restarted with
+ * the same build (or another replica of it sharing a volume) serves it
+ * without generating it again. See {@link WadlWarmUp#setSnapshotStore}.
+ *
+ * Each snapshot is a subdirectory named after the
+ * {@link #getFingerprint(CachingWadlGenerator) fingerprint} of the
+ * application, holding the template and the documents (plus gzip copies)
+ * rendered for the known base URLs. A snapshot is written to a temporary
+ * directory which is then renamed, so a snapshot directory is always
+ * complete.
+ *
+ * Other replicas sharing the directory may still be serving the snapshots
+ * of other fingerprints (e.g. of the previous build during a rolling
+ * deployment), so a snapshot is only removed once it hasn't been loaded for
+ * the {@link #setRetentionMillis retention period}. A replica whose snapshot
+ * was removed anyway renders its documents from the template it holds in
+ * memory.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class WadlSnapshotStore {
+
+	/** Changed whenever the layout of a snapshot changes. */
+	private static final String FORMAT_VERSION = "1";
+
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final String TEMPLATE_FILE = "template.wadl";
+
+	private static final String DOCUMENT_SUFFIX = ".wadl";
+
+	private static final String GZIP_SUFFIX = ".wadl.gz";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Length of a hex encoded SHA-256 hash, the name of a snapshot directory. */
+	private static final int FINGERPRINT_LENGTH = 64;
+
+	private static final long DEFAULT_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+	@Getter
+	private final File directory;
+
+	/**
+	 * How long after it was last saved or loaded (by any node sharing the
+	 * directory) the snapshot of another fingerprint is removed when a new
+	 * snapshot is saved. A week by default.
+	 */
+	@Getter
+	@Setter
+	private long retentionMillis = DEFAULT_RETENTION_MILLIS;
+
+	public WadlSnapshotStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Fingerprint the generated WADL without generating it: a hash of the
+	 * library version, the generator's settings, the current bindings of the
+	 * type mapper, the request mappings and the class files of the
+	 * controllers and of the parameter and return types of their handler
+	 * methods.
+	 *
+	 * NOTE: types only reached through type arguments (e.g. the element type
+	 * of a <code>List</code>) aren't part of it, nor is a custom type
+	 * mapper's state other than its bindings, so a change to how they're
+	 * mapped alone needs a new directory.
+	 *
+	 * @param generator the generator of the WADL
+	 * @return the hex encoded fingerprint
+	 */
+	public String getFingerprint(CachingWadlGenerator generator) {
+		MessageDigest digest = createDigest();
+
+		update(digest, FORMAT_VERSION);
+		Package libraryPackage = WadlGenerator.class.getPackage();
+		update(digest, String.valueOf(libraryPackage != null ? libraryPackage.getImplementationVersion() : null));
+		updateWithClassFile(digest, WadlGenerator.class);
+
+		update(digest, generator.getApplicationName());
+		updateWithTypeMapper(digest, generator.getWadlTypeMapper());
+		update(digest, String.valueOf(generator.getOptions().isCanonical()));
+		for (Class<?> controllerClass : generator.getIgnoreControllers()) {
+			update(digest, controllerClass.getName());
+		}
+
+		// sorted, so the order of the handler mapping doesn't matter
+		List<String> mappings = new ArrayList<String>();
+		Map<String, Class<?>> classes = new TreeMap<String, Class<?>>();
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : generator.getHandlerMapping().getHandlerMethods()
+				.entrySet()) {
+			mappings.add(entry.getKey() + " " + entry.getValue());
+			addClass(classes, entry.getValue().getBeanType());
+
+			Method method = entry.getValue().getMethod();
+			addClass(classes, method.getReturnType());
+			for (Class<?> parameterType : method.getParameterTypes()) {
+				addClass(classes, parameterType);
+			}
+		}
+		Collections.sort(mappings);
+
+		for (String mapping : mappings) {
+			update(digest, mapping);
+		}
+		for (Class<?> clazz : classes.values()) {
+			updateWithClassFile(digest, clazz);
+		}
+
+		return WadlDocument.toHex(digest.digest());
+	}
+
+	/**
+	 * Load the snapshot of a fingerprint.
+	 *
+	 * @param fingerprint the fingerprint of the application
+	 * @return the snapshot, or <code>null</code> if there is none (or it
+	 *         could not be read)
+	 */
+	public WadlSnapshot load(String fingerprint) {
+		File snapshotDirectory = new File(this.directory, fingerprint);
+		File templateFile = new File(snapshotDirectory, TEMPLATE_FILE);
+		if (!templateFile.isFile()) {
+			return null;
+		}
+
+		try {
+			WadlDocumentTemplate template = WadlDocumentTemplate.create(readFile(templateFile),
+					WadlDocumentService.WADL_CONTENT_TYPE);
+
+			Map<String, WadlSnapshot.Document> documents = new HashMap<String, WadlSnapshot.Document>();
+			File[] files = snapshotDirectory.listFiles();
+			for (File file : (files != null ? files : new File[0])) {
+				String name = file.getName();
+				if (!name.endsWith(DOCUMENT_SUFFIX) || name.equals(TEMPLATE_FILE)) {
+					continue;  // skip
+				}
+
+				String key = name.substring(0, name.length() - DOCUMENT_SUFFIX.length());
+				File gzippedFile = new File(snapshotDirectory, key + GZIP_SUFFIX);
+				if (gzippedFile.isFile()) {
+					documents.put(key, new WadlSnapshot.Document(file, gzippedFile));
+				}
+			}
+
+			if (log.isInfoEnabled()) {
+				log.info("Loaded WADL snapshot " + snapshotDirectory + " with " + documents.size()
+						+ " rendered documents");
+			}
+
+			// still in use, so it's kept for another retention period
+			if (!snapshotDirectory.setLastModified(System.currentTimeMillis())) {
+				log.debug("Could not touch WADL snapshot " + snapshotDirectory);
+			}
+
+			return new WadlSnapshot(fingerprint, template, documents);
+		} catch (IOException e) {
+			log.warn("Could not load WADL snapshot " + snapshotDirectory + " - the WADL will be generated", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Save a snapshot, unless there already is one for the fingerprint, and
+	 * remove the snapshots of other fingerprints which haven't been used for
+	 * the retention period.
+	 *
+	 * @param fingerprint the fingerprint of the application
+	 * @param template the serialized WADL
+	 * @param baseUrls base URLs to also store rendered documents for
+	 * @return the saved snapshot
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public WadlSnapshot save(String fingerprint, WadlDocumentTemplate template, List<String> baseUrls)
+			throws IOException {
+		File snapshotDirectory = new File(this.directory, fingerprint);
+
+		if (!snapshotDirectory.isDirectory()) {
+			if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+				throw new IOException("Could not create WADL snapshot directory: " + this.directory);
+			}
+
+			File temp = File.createTempFile(fingerprint + ".", TEMP_SUFFIX, this.directory);
+			if (!temp.delete() || !temp.mkdir()) {
+				throw new IOException("Could not create temporary WADL snapshot directory: " + temp);
+			}
+
+			try {
+				writeFile(new File(temp, TEMPLATE_FILE), template.getContent());
+				for (String baseUrl : baseUrls) {
+					WadlDocument document = template.prepare(baseUrl);
+					String key = getKey(baseUrl);
+					writeFile(new File(temp, key + DOCUMENT_SUFFIX), document.getContent());
+					writeFile(new File(temp, key + GZIP_SUFFIX), document.getGzippedContent());
+				}
+
+				// another node sharing the directory may have just saved the same snapshot
+				if (!temp.renameTo(snapshotDirectory) && !snapshotDirectory.isDirectory()) {
+					throw new IOException("Could not rename " + temp + " to " + snapshotDirectory);
+				}
+			} finally {
+				delete(temp);
+			}
+
+			if (log.isInfoEnabled()) {
+				log.info("Saved WADL snapshot " + snapshotDirectory);
+			}
+		}
+
+		deleteExpiredSnapshots(fingerprint);
+
+		WadlSnapshot snapshot = load(fingerprint);
+		if (snapshot == null) {
+			throw new IOException("Could not load saved WADL snapshot: " + snapshotDirectory);
+		}
+		return snapshot;
+	}
+
+	private void deleteExpiredSnapshots(String fingerprint) {
+		File[] files = this.directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		long expired = System.currentTimeMillis() - this.retentionMillis;
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory() && name.length() == FINGERPRINT_LENGTH && !name.equals(fingerprint)
+					&& file.lastModified() < expired && new File(file, TEMPLATE_FILE).isFile()) {
+				if (log.isInfoEnabled()) {
+					log.info("Removing unused WADL snapshot " + file);
+				}
+
+				delete(file);
+			}
+		}
+	}
+
+	/**
+	 * @return the name of the files of the document rendered for a base URL
+	 */
+	static String getKey(String baseUrl) {
+		try {
+			return WadlDocument.hash(baseUrl.getBytes(ENCODING));
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Add a class of the application, i.e. not a primitive nor a JDK class,
+	 * whose class files only change with the JDK.
+	 */
+	private static void addClass(Map<String, Class<?>> classes, Class<?> clazz) {
+		while (clazz.isArray()) {
+			clazz = clazz.getComponentType();
+		}
+
+		if (!clazz.isPrimitive() && clazz.getClassLoader() != null) {
+			classes.put(clazz.getName(), clazz);
+		}
+	}
+
+	/**
+	 * The type mapper's class, and its bindings if it has any: those of a
+	 * {@link RegistryWadlTypeMapper} change at runtime.
+	 */
+	private static void updateWithTypeMapper(MessageDigest digest, WadlTypeMapper wadlTypeMapper) {
+		updateWithClassFile(digest, wadlTypeMapper.getClass());
+
+		List<JavaWadlTypePair> bindings = null;
+		if (wadlTypeMapper instanceof RegistryWadlTypeMapper) {
+			bindings = ((RegistryWadlTypeMapper) wadlTypeMapper).getJavaWadlTypeBindings();
+		} else if (wadlTypeMapper instanceof AbstractWadlTypeMapper) {
+			bindings = ((AbstractWadlTypeMapper) wadlTypeMapper).getJavaWadlTypeBindings();
+		}
+
+		if (bindings != null) {
+			for (JavaWadlTypePair binding : bindings) {
+				update(digest, binding.getJavaType().getName() + " " + binding.getWadlType());
+			}
+		}
+	}
+
+	private static void updateWithClassFile(MessageDigest digest, Class<?> clazz) {
+		update(digest, clazz.getName());
+
+		InputStream in = clazz.getResourceAsStream("/" + clazz.getName().replace('.', '/') + ".class");
+		if (in == null) {
+			return;
+		}
+
+		try {
+			try {
+				update(digest, in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read class file of " + clazz.getName(), e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		try {
+			digest.update(value.getBytes(ENCODING));
+			digest.update((byte) 0);
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, InputStream in) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Hash algorithm not available: " + HASH_ALGORITHM, e);
+		}
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static void writeFile(File file, byte[] content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+
+		if (file.exists() && !file.delete()) {
+			log.warn("Could not delete " + file);
+		}
+	}
+}
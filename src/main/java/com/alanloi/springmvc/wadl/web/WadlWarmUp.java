@@ -0,0 +1,210 @@
+package com.alanloi.springmvc.wadl.web;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+
+import com.alanloi.springmvc.wadl.CachingWadlGenerator;
+
+/**
+ * Generates and serializes the WADL in the background as soon as the
+ * application context has been refreshed, so the first request for it
+ * doesn't pay for the reflection, JAXBContext creation and marshalling.
+ *
+ * Opt-in: register it as a bean alongside the {@link WadlDocumentService}.
+ * The context refresh is never held up - the work is handed to the
+ * {@link #setExecutor(Executor) executor}, or a daemon thread if there is
+ * none. That includes indexing the request mappings, as long as the
+ * generator is configured not to do it on the refresh, see
+ * {@link CachingWadlGenerator#setIndexOnRefresh(boolean)}; a warning is
+ * logged otherwise. Its progress is reported by {@link #getStatus()}, e.g.
+ * for a readiness or health check.
+ *
+ * With a {@link #setSnapshotStore(WadlSnapshotStore) snapshot store} the
+ * WADL is saved to disk once generated, and a later warm-up of the same
+ * application (e.g. after a restart) serves the saved snapshot instead of
+ * generating the WADL at all, or even indexing the request mappings. No
+ * snapshot is saved while the generator's revalidation executor still
+ * serves the previous WADL. The snapshot is dropped as soon as the context
+ * is refreshed, so until the warm-up has loaded or saved the snapshot of the
+ * refreshed context, requests are served by the generator like any other
+ * request after an invalidation.
+ *
+ * @author Alan Loi
+ */
+@Log4j
+public class WadlWarmUp implements ApplicationListener<ContextRefreshedEvent>, Ordered {
+
+	public enum Status {
+		NOT_STARTED, WARMING_UP, READY, FAILED
+	}
+
+	@Getter
+	private final WadlDocumentService documentService;
+
+	/**
+	 * Executor to warm up on. If <code>null</code> (the default) a new
+	 * daemon thread is started for each warm-up.
+	 */
+	@Getter
+	@Setter
+	private Executor executor;
+
+	/**
+	 * Base URLs (e.g. of the load balancer) to render the documents for up
+	 * front, including their gzip copies and ETags.
+	 */
+	@Getter
+	@Setter
+	private List<String> baseUrls = Collections.emptyList();
+
+	/**
+	 * Where to save and load snapshots of the WADL. If <code>null</code>
+	 * (the default) the WADL is always generated.
+	 */
+	@Getter
+	@Setter
+	private WadlSnapshotStore snapshotStore;
+
+	@Getter
+	private volatile Status status = Status.NOT_STARTED;
+
+	/** Why the last warm-up failed, if it did. */
+	@Getter
+	private volatile Throwable failure;
+
+	public WadlWarmUp(WadlDocumentService documentService) {
+		this.documentService = documentService;
+	}
+
+	/**
+	 * Runs after the generator, which has a higher precedence, so its cache
+	 * has already been invalidated for the refresh.
+	 */
+	public int getOrder() {
+		return Ordered.LOWEST_PRECEDENCE;
+	}
+
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		this.status = Status.WARMING_UP;
+
+		// the snapshot may be of the request mappings from before the refresh
+		this.documentService.setSnapshot(null);
+
+		if (this.documentService.getGenerator().isIndexOnRefresh()) {
+			log.warn("The WADL generator indexes the request mappings while the context is refreshed - "
+					+ "set its indexOnRefresh to false to index them on the warm-up thread instead");
+		}
+
+		Runnable warmUp = new Runnable() {
+			public void run() {
+				warmUp();
+			}
+		};
+
+		if (this.executor != null) {
+			this.executor.execute(warmUp);
+		} else {
+			Thread thread = new Thread(warmUp, "wadl-warm-up");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Generate and serialize the WADL on the calling thread.
+	 */
+	public void warmUp() {
+		this.status = Status.WARMING_UP;
+		long start = System.currentTimeMillis();
+
+		try {
+			CachingWadlGenerator generator = this.documentService.getGenerator();
+
+			String fingerprint = null;
+			if (this.snapshotStore != null) {
+				fingerprint = this.snapshotStore.getFingerprint(generator);
+
+				WadlSnapshot snapshot = this.snapshotStore.load(fingerprint);
+				this.documentService.setSnapshot(snapshot);
+				if (snapshot != null) {
+					this.failure = null;
+					this.status = Status.READY;
+					return;
+				}
+			}
+
+			// go again if the cache was invalidated meanwhile
+			WadlApplication template;
+			WadlDocumentTemplate documentTemplate;
+			do {
+				template = generator.getTemplate();
+
+				documentTemplate = this.documentService.getGeneratedDocumentTemplate();
+				for (String baseUrl : this.baseUrls) {
+					documentTemplate.prepare(baseUrl);
+				}
+			} while (template != generator.getTemplate());
+
+			if (this.snapshotStore != null) {
+				// the generator invalidated its cache before this warm-up started, see getOrder()
+				if (this.documentService.isCurrent(documentTemplate)) {
+					saveSnapshot(fingerprint, documentTemplate);
+				} else if (log.isDebugEnabled()) {
+					// a stale WADL must not be saved under the new fingerprint
+					log.debug("Not saving WADL snapshot as the WADL is still being revalidated");
+				}
+			}
+
+			this.failure = null;
+			this.status = Status.READY;
+
+			if (log.isInfoEnabled()) {
+				log.info("Warmed up WADL in " + (System.currentTimeMillis() - start) + " ms");
+			}
+		} catch (RuntimeException e) {
+			this.failure = e;
+			this.status = Status.FAILED;
+			log.error("Could not warm up WADL - it will be generated on the first request", e);
+		}
+	}
+
+	private void saveSnapshot(String fingerprint, WadlDocumentTemplate documentTemplate) {
+		try {
+			this.documentService.setSnapshot(this.snapshotStore.save(fingerprint, documentTemplate, this.baseUrls));
+		} catch (IOException e) {
+			// still served from memory
+			log.warn("Could not save WADL snapshot to " + this.snapshotStore.getDirectory(), e);
+		}
+	}
+
+	/**
+	 * @return whether the WADL has been generated and serialized
+	 */
+	public boolean isReady() {
+		return this.status == Status.READY;
+	}
+
+	/**
+	 * Health check hook which fails unless the WADL is ready.
+	 *
+	 * @throws IllegalStateException if the WADL isn't ready (with the cause
+	 *             of the failure, if it failed)
+	 */
+	public void checkReady() {
+		Status current = this.status;
+		if (current != Status.READY) {
+			throw new IllegalStateException("WADL is not ready: " + current, this.failure);
+		}
+	}
+}
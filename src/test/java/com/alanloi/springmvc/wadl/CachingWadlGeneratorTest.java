@@ -0,0 +1,230 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlResource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.sample.SampleCustomerController;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+import com.alanloi.springmvc.wadl.sample.SampleOrderController;
+
+/**
+ * Tests for CachingWadlGenerator.
+ *
+ * @author Alan Loi
+ */
+public class CachingWadlGeneratorTest {
+
+	private RequestMappingHandlerMapping handlerMapping;
+	private CachingWadlGenerator generator;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() {
+		this.handlerMapping = mock(RequestMappingHandlerMapping.class);
+		when(this.handlerMapping.getHandlerMethods()).thenReturn(
+				Collections.<RequestMappingInfo, HandlerMethod> emptyMap());
+
+		this.generator = new CachingWadlGenerator(this.handlerMapping, "test", null);
+
+		this.request = new MockHttpServletRequest("GET", "/wadl");
+		this.request.setServerName("localhost");
+		this.request.setServerPort(8080);
+		this.request.setContextPath("/app");
+	}
+
+	@Test
+	public void testGenerateReturnsCachedInstance() {
+		WadlApplication first = this.generator.generate(this.request);
+		WadlApplication second = this.generator.generate(this.request);
+
+		assertSame(first, second);
+		assertEquals("http://localhost:8080/app", first.getResources().get(0).getBase());
+		verify(this.handlerMapping, times(1)).getHandlerMethods();
+	}
+
+	@Test
+	public void testGenerateCachesPerBaseUrl() {
+		WadlApplication first = this.generator.generate(this.request);
+
+		this.request.setServerName("otherhost");
+		WadlApplication second = this.generator.generate(this.request);
+
+		assertNotSame(first, second);
+		assertEquals("http://otherhost:8080/app", second.getResources().get(0).getBase());
+
+		// the request mappings are only indexed once
+		verify(this.handlerMapping, times(1)).getHandlerMethods();
+	}
+
+	@Test
+	public void testGenerateEvictsLeastRecentlyUsedBaseUrl() {
+		WadlApplication live = this.generator.generate(this.request);
+
+		MockHttpServletRequest other = new MockHttpServletRequest("GET", "/wadl");
+		other.setServerName("host0");
+		WadlApplication first = this.generator.generate(other);
+
+		for (int i = 1; i < 100; i++) {
+			other.setServerName("host" + i);
+			this.generator.generate(other);
+			assertSame(live, this.generator.generate(this.request));
+		}
+
+		// hosts seen after the cache filled up are still cached
+		assertSame(this.generator.generate(other), this.generator.generate(other));
+
+		other.setServerName("host0");
+		assertNotSame(first, this.generator.generate(other));
+	}
+
+	@Test
+	public void testGenerateSharesTemplateBetweenBaseUrls() {
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+
+		WadlApplication first = generator.generate(this.request);
+		this.request.setServerName("otherhost");
+		WadlApplication second = generator.generate(this.request);
+
+		assertNull(generator.getTemplate().getResources().get(0).getBase());
+		assertEquals("http://otherhost:8080/app", second.getResources().get(0).getBase());
+		assertSame(first.getResources().get(0).getResource().get(0),
+				second.getResources().get(0).getResource().get(0));
+	}
+
+	@Test
+	public void testInvalidate() {
+		WadlApplication first = this.generator.generate(this.request);
+		this.generator.invalidate();
+		WadlApplication second = this.generator.generate(this.request);
+
+		assertNotSame(first, second);
+		verify(this.handlerMapping, times(2)).getHandlerMethods();
+	}
+
+	@Test
+	public void testContextRefreshedEventInvalidates() {
+		WadlApplication first = this.generator.generate(this.request);
+		this.generator.onApplicationEvent(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+		WadlApplication second = this.generator.generate(this.request);
+
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void testInvalidateWithRevalidationExecutorServesStale() {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		this.generator.setRevalidationExecutor(new Executor() {
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+
+		WadlApplication first = this.generator.generate(this.request);
+		this.generator.invalidate();
+
+		assertTrue(this.generator.isRevalidating());
+		assertSame(first, this.generator.generate(this.request));
+
+		tasks.get(0).run();
+
+		assertFalse(this.generator.isRevalidating());
+		assertNotSame(first, this.generator.generate(this.request));
+		verify(this.handlerMapping, times(2)).getHandlerMethods();
+	}
+
+	@Test
+	public void testShardsAreCachedSeparately() {
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+
+		WadlApplication orders = generator.getShard(SampleOrderController.class.getName());
+		assertSame(orders, generator.getShard(SampleOrderController.class.getName()));
+		assertNotSame(orders, generator.getShard(SampleCustomerController.class.getName()));
+		assertNull(generator.getShard("com.example.MissingController"));
+
+		assertSame(generator.getShardIndex(), generator.getShardIndex());
+		assertEquals("http://localhost:8080/app",
+				generator.generateShard(this.request, SampleOrderController.class.getName()).getResources().get(0)
+						.getBase());
+	}
+
+	@Test
+	public void testContextRefreshOnlyRegeneratesChangedControllers() {
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = SampleHandlerMappings.createHandlerMethods();
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(handlerMethods),
+				"test", null);
+
+		WadlApplication orders = generator.getShard(SampleOrderController.class.getName());
+		WadlApplication customers = generator.getShard(SampleCustomerController.class.getName());
+		WadlApplication template = generator.getTemplate();
+
+		handlerMethods.remove(SampleHandlerMappings.mapping(new String[] { "/customers/{customerId}/orders" },
+				RequestMethod.GET, null, "application/json"));
+		generator.onApplicationEvent(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+
+		assertSame(orders, generator.getShard(SampleOrderController.class.getName()));
+		assertNotSame(customers, generator.getShard(SampleCustomerController.class.getName()));
+
+		// the resources are rebuilt, but the methods of unchanged mappings are reused
+		WadlResource before = template.getResources().get(0).getResource().get(0);
+		WadlResource after = generator.getTemplate().getResources().get(0).getResource().get(0);
+		assertNotSame(before, after);
+		assertSame(before.getMethodOrResource().get(0), after.getMethodOrResource().get(0));
+		assertEquals(3, generator.getTemplate().getResources().get(0).getResource().size());
+	}
+
+	@Test
+	public void testInvalidateRegeneratesEverything() {
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+
+		WadlApplication orders = generator.getShard(SampleOrderController.class.getName());
+		generator.invalidate();
+
+		assertNotSame(orders, generator.getShard(SampleOrderController.class.getName()));
+	}
+
+	@Test
+	public void testContextRefreshedEventBuildsIndex() {
+		this.generator.onApplicationEvent(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+		verify(this.handlerMapping, times(1)).getHandlerMethods();
+
+		this.generator.generate(this.request);
+		verify(this.handlerMapping, times(1)).getHandlerMethods();
+	}
+
+	@Test
+	public void testContextRefreshedEventWithoutIndexOnRefresh() {
+		this.generator.setIndexOnRefresh(false);
+		this.generator.onApplicationEvent(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+		verify(this.handlerMapping, times(0)).getHandlerMethods();
+
+		this.generator.generate(this.request);
+		verify(this.handlerMapping, times(1)).getHandlerMethods();
+	}
+}
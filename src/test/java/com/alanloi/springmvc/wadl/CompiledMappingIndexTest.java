@@ -0,0 +1,94 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.alanloi.springmvc.wadl.sample.SampleOrderController;
+
+/**
+ * Tests for CompiledMappingIndex.
+ *
+ * @author Alan Loi
+ */
+public class CompiledMappingIndexTest {
+
+	private static final String INDEX = CompiledMappingIndex.HEADER + "\n"
+			+ "M\tcom.alanloi.springmvc.wadl.sample.SampleOrderController\tdeleteOrder\tvoid\t\t\n"
+			+ "P\torderId\tjava.lang.Long\tPathVariable\t\ttrue\t\n"
+			+ "M\tcom.alanloi.springmvc.wadl.sample.SampleOrderController\tfindOrders\tjava.util.List\t\t"
+			+ "application/json,text/plain;q=0.5\\,level=1\n"
+			+ "P\tquery\tjava.lang.String\tRequestParam\tq\ttrue\t\\n\\t\\t\\n\n"
+			+ "P\tpage\tjava.lang.Integer\tRequestParam\tpage\ttrue\t1\n"
+			+ "X\tfrom a later version\n"
+			+ "M\tcom.example.Controller\tfind\tjava.lang.String\t\t\n"
+			+ "P\tids\tlong[][]\t-\t\t\t\n";
+
+	@Test
+	public void testRead() throws IOException {
+		Map<String, List<String>> parameterNames = new HashMap<String, List<String>>();
+		assertTrue(CompiledMappingIndex.read(new ByteArrayInputStream(INDEX.getBytes("UTF-8")), parameterNames));
+
+		assertEquals(3, parameterNames.size());
+		assertEquals(Arrays.asList("orderId"),
+				parameterNames.get("com.alanloi.springmvc.wadl.sample.SampleOrderController#deleteOrder("
+						+ "java.lang.Long)"));
+		assertEquals(Arrays.asList("query", "page"),
+				parameterNames.get("com.alanloi.springmvc.wadl.sample.SampleOrderController#findOrders("
+						+ "java.lang.String,java.lang.Integer)"));
+		assertEquals(Arrays.asList("ids"), parameterNames.get("com.example.Controller#find(long[][])"));
+	}
+
+	@Test
+	public void testReadUnknownFormat() throws IOException {
+		Map<String, List<String>> parameterNames = new HashMap<String, List<String>>();
+		assertFalse(CompiledMappingIndex.read(new ByteArrayInputStream("#other 2\n".getBytes("UTF-8")),
+				parameterNames));
+		assertTrue(parameterNames.isEmpty());
+	}
+
+	@Test
+	public void testGetParameterNames() throws Exception {
+		Map<String, List<String>> parameterNames = new HashMap<String, List<String>>();
+		CompiledMappingIndex.read(new ByteArrayInputStream(INDEX.getBytes("UTF-8")), parameterNames);
+		CompiledMappingIndex index = new CompiledMappingIndex(parameterNames);
+
+		Method deleteOrder = SampleOrderController.class.getMethod("deleteOrder", Long.class);
+		assertEquals(Arrays.asList("orderId"), index.getParameterNames(deleteOrder));
+
+		Method getOrder = SampleOrderController.class.getMethod("getOrder", Long.class);
+		assertNull(index.getParameterNames(getOrder));
+	}
+
+	@Test
+	public void testForClassLoader() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		CompiledMappingIndex index = CompiledMappingIndex.forClassLoader(classLoader);
+		assertSame(index, CompiledMappingIndex.forClassLoader(classLoader));
+		assertSame(index, CompiledMappingIndex.forClassLoader(classLoader));
+	}
+
+	@Test
+	public void testGetKey() throws Exception {
+		Method method = String.class.getMethod("valueOf", char[].class, int.class, int.class);
+		assertEquals("java.lang.String#valueOf(char[],int,int)", CompiledMappingIndex.getKey(method));
+	}
+
+	@Test
+	public void testUnescape() {
+		assertEquals("a\tb\nc,d\\e", CompiledMappingIndex.unescape("a\\tb\\nc\\,d\\\\e"));
+		assertEquals("plain", CompiledMappingIndex.unescape("plain"));
+	}
+}
@@ -0,0 +1,149 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for GenerationCoordinator.
+ *
+ * @author Alan Loi
+ */
+public class GenerationCoordinatorTest {
+
+	private static final int CALLERS = 8;
+
+	private ExecutorService executor;
+	private GenerationCoordinator<String, Object> coordinator;
+
+	@Before
+	public void setUp() {
+		this.executor = Executors.newFixedThreadPool(CALLERS);
+		this.coordinator = new GenerationCoordinator<String, Object>();
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentCallersShareOneBuild() throws Exception {
+		final AtomicInteger builds = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch entered = new CountDownLatch(CALLERS - 1);
+		final List<Thread> callers = Collections.synchronizedList(new ArrayList<Thread>());
+
+		final Callable<Object> builder = new Callable<Object>() {
+			public Object call() throws Exception {
+				builds.incrementAndGet();
+				started.countDown();
+				release.await(10, TimeUnit.SECONDS);
+				return new Object();
+			}
+		};
+
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		results.add(this.executor.submit(new Callable<Object>() {
+			public Object call() {
+				return coordinator.get("key", builder);
+			}
+		}));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertTrue(this.coordinator.isInFlight("key"));
+
+		for (int i = 1; i < CALLERS; i++) {
+			results.add(this.executor.submit(new Callable<Object>() {
+				public Object call() {
+					callers.add(Thread.currentThread());
+					entered.countDown();
+					return coordinator.get("key", builder);
+				}
+			}));
+		}
+
+		// only release the build once every later caller is waiting for it
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+		awaitWaiting(callers);
+		assertTrue(this.coordinator.isInFlight("key"));
+		release.countDown();
+
+		Object expected = results.get(0).get();
+		for (Future<Object> result : results) {
+			assertSame(expected, result.get());
+		}
+		assertEquals(1, builds.get());
+		assertFalse(this.coordinator.isInFlight("key"));
+	}
+
+	@Test
+	public void testFailureIsRethrown() {
+		try {
+			this.coordinator.get("key", new Callable<Object>() {
+				public Object call() {
+					throw new UnsupportedOperationException();
+				}
+			});
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		// the failed build isn't kept
+		assertEquals("ok", this.coordinator.get("key", new Callable<Object>() {
+			public Object call() {
+				return "ok";
+			}
+		}));
+	}
+
+	@Test
+	public void testSubmitReturnsRunningBuild() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<Object> builder = new Callable<Object>() {
+			public Object call() throws Exception {
+				release.await(10, TimeUnit.SECONDS);
+				return "built";
+			}
+		};
+
+		Future<Object> first = this.coordinator.submit("key", builder, this.executor);
+		Future<Object> second = this.coordinator.submit("key", builder, this.executor);
+		release.countDown();
+
+		assertSame(first, second);
+		assertEquals("built", first.get());
+	}
+
+	/**
+	 * Wait until the threads are parked, which the callers only are while
+	 * waiting for the running build.
+	 */
+	private static void awaitWaiting(List<Thread> threads) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		for (Thread thread : threads) {
+			while (thread.getState() != Thread.State.WAITING) {
+				assertTrue("Caller isn't waiting for the build", System.currentTimeMillis() < deadline);
+				Thread.sleep(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for JavaTypeResolver.
+ *
+ * @author Alan Loi
+ */
+public class JavaTypeResolverTest {
+
+	private final JavaTypeResolver typeResolver = new JavaTypeResolver();
+
+	@Test
+	public void testPrimitivesAreBoxed() throws Exception {
+		Method method = CrudController.class.getMethod("count", long.class, int[].class);
+
+		assertResolved(Long.class, false, resolveParameterType(method, 0, CrudController.class));
+		assertResolved(Integer.class, true, resolveParameterType(method, 1, CrudController.class));
+		assertResolved(Integer.class, false,
+				this.typeResolver.resolveReturnType(method.getGenericReturnType(), CrudController.class));
+	}
+
+	@Test
+	public void testCollectionParametersAreRepeating() throws Exception {
+		Method method = CrudController.class.getMethod("findByIds", List.class, Set.class, List.class);
+
+		assertResolved(Long.class, true, resolveParameterType(method, 0, CrudController.class));
+		assertResolved(Number.class, true, resolveParameterType(method, 1, CrudController.class));
+
+		// raw collections stay as they are
+		assertResolved(List.class, false, resolveParameterType(method, 2, CrudController.class));
+
+		// a collection is the type of the whole response
+		assertResolved(List.class, false,
+				this.typeResolver.resolveReturnType(method.getGenericReturnType(), CrudController.class));
+	}
+
+	@Test
+	public void testTypeVariablesAreResolvedAgainstController() throws Exception {
+		Method method = CrudController.class.getMethod("find", Object.class, List.class, Object[].class);
+
+		assertResolved(Long.class, false, resolveParameterType(method, 0, OrderController.class));
+		assertResolved(String.class, true, resolveParameterType(method, 1, OrderController.class));
+		assertResolved(Long.class, true, resolveParameterType(method, 2, OrderController.class));
+		assertResolved(String.class, false,
+				this.typeResolver.resolveReturnType(method.getGenericReturnType(), OrderController.class));
+
+		// unbound type variables are mapped as their bound
+		assertResolved(Object.class, false, resolveParameterType(method, 0, CrudController.class));
+	}
+
+	@Test
+	public void testResolvedTypesAreCached() throws Exception {
+		Method method = CrudController.class.getMethod("findByIds", List.class, Set.class, List.class);
+
+		JavaTypeResolver.ResolvedType resolved = resolveParameterType(method, 0, OrderController.class);
+		int cacheSize = this.typeResolver.getCacheSize();
+
+		assertSame(resolved, resolveParameterType(method, 0, OrderController.class));
+		assertEquals(cacheSize, this.typeResolver.getCacheSize());
+	}
+
+	@Test
+	public void testCacheIsPerResolver() throws Exception {
+		Method method = CrudController.class.getMethod("findByIds", List.class, Set.class, List.class);
+
+		JavaTypeResolver.ResolvedType resolved = resolveParameterType(method, 0, OrderController.class);
+		JavaTypeResolver otherResolver = new JavaTypeResolver();
+
+		assertEquals(0, otherResolver.getCacheSize());
+		assertNotSame(resolved, otherResolver.resolveParameterType(method.getGenericParameterTypes()[0],
+				OrderController.class));
+		assertEquals(resolved, otherResolver.resolveParameterType(method.getGenericParameterTypes()[0],
+				OrderController.class));
+	}
+
+	private JavaTypeResolver.ResolvedType resolveParameterType(Method method, int index,
+			Class<?> contextClass) {
+		Type type = method.getGenericParameterTypes()[index];
+		return this.typeResolver.resolveParameterType(type, contextClass);
+	}
+
+	private static void assertResolved(Class<?> javaType, boolean repeating, JavaTypeResolver.ResolvedType resolved) {
+		assertEquals(javaType, resolved.getJavaType());
+		if (repeating) {
+			assertTrue(resolved.isRepeating());
+		} else {
+			assertFalse(resolved.isRepeating());
+		}
+	}
+
+	static class CrudController<ID, T> {
+
+		public T find(ID id, List<T> names, ID[] ids) {
+			return null;
+		}
+
+		@SuppressWarnings("rawtypes")
+		public List<String> findByIds(List<Long> ids, Set<? extends Number> numbers, List raw) {
+			return null;
+		}
+
+		public int count(long since, int[] statuses) {
+			return 0;
+		}
+	}
+
+	static class OrderController extends CrudController<Long, String> {
+	}
+}
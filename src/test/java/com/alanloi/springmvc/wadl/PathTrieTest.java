@@ -0,0 +1,82 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for PathTrie.
+ *
+ * @author Alan Loi
+ */
+public class PathTrieTest {
+
+	private PathTrie<String> pathTrie;
+
+	@Before
+	public void setUp() {
+		this.pathTrie = new PathTrie<String>();
+		this.pathTrie.add("/orders/{id}", "GET order");
+		this.pathTrie.add("/orders", "GET orders");
+		this.pathTrie.add("/orders/{id}", "PUT order");
+		this.pathTrie.add("/customers/{customerId}/orders", "GET customer orders");
+		this.pathTrie.add("/", "GET root");
+	}
+
+	@Test
+	public void testGet() {
+		assertEquals(Arrays.asList("GET order", "PUT order"), this.pathTrie.get("/orders/{id}"));
+		assertEquals(Arrays.asList("GET orders"), this.pathTrie.get("orders/"));
+		assertEquals(Arrays.asList("GET root"), this.pathTrie.get(""));
+		assertTrue(this.pathTrie.get("/customers").isEmpty());
+		assertTrue(this.pathTrie.get("/unknown").isEmpty());
+	}
+
+	@Test
+	public void testContainsPrefix() {
+		assertTrue(this.pathTrie.containsPrefix("/customers"));
+		assertTrue(this.pathTrie.containsPrefix("/customers/{customerId}"));
+		assertFalse(this.pathTrie.containsPrefix("/customers/{id}"));
+	}
+
+	@Test
+	public void testContainsPrefixOf() {
+		PathTrie<String> prefixes = new PathTrie<String>();
+		prefixes.add("/orders", "/orders");
+
+		assertTrue(prefixes.containsPrefixOf("/orders"));
+		assertTrue(prefixes.containsPrefixOf("/orders/{id}"));
+		assertFalse(prefixes.containsPrefixOf("/ordersArchive"));
+		assertFalse(prefixes.containsPrefixOf("/customers/{customerId}/orders"));
+		assertFalse(prefixes.containsPrefixOf("/"));
+
+		// everything is below the root
+		assertTrue(this.pathTrie.containsPrefixOf("/customers"));
+	}
+
+	@Test
+	public void testAccept() {
+		final StringBuilder sb = new StringBuilder();
+
+		this.pathTrie.accept(new PathTrie.Visitor<String, RuntimeException>() {
+
+			public void startResource(String path, List<String> values) {
+				sb.append("(").append(path).append(values);
+			}
+
+			public void endResource() {
+				sb.append(")");
+			}
+		});
+
+		assertEquals("(/[GET root])"
+				+ "(/orders[GET orders]({id}[GET order, PUT order]))"
+				+ "(/customers/{customerId}/orders[GET customer orders])", sb.toString());
+	}
+}
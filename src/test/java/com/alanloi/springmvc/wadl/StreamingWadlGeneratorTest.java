@@ -0,0 +1,100 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+import com.alanloi.springmvc.wadl.sample.SampleCustomerController;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+import com.alanloi.springmvc.wadl.sample.SampleOrderController;
+
+/**
+ * Tests for StreamingWadlGenerator.
+ *
+ * @author Alan Loi
+ */
+public class StreamingWadlGeneratorTest {
+
+	private RequestMappingHandlerMapping handlerMapping;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() {
+		this.handlerMapping = SampleHandlerMappings.create();
+		this.request = new MockHttpServletRequest("GET", "/wadl");
+	}
+
+	@Test
+	public void testGenerateMatchesWadlGenerator() throws Exception {
+		assertStreamingMatchesWadlGenerator(Collections.<Class<?>> emptyList());
+	}
+
+	@Test
+	public void testGenerateWithIgnoredController() throws Exception {
+		assertStreamingMatchesWadlGenerator(Collections.<Class<?>> singletonList(SampleCustomerController.class));
+	}
+
+	@Test
+	public void testGenerateWritesEachTopLevelResourceBeforeDescribingTheNext() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final List<String> writtenWhenMapped = new ArrayList<String>();
+		final WadlTypeMapper wadlTypeMapper = new JsonBasedWadlTypeMapper();
+
+		StreamingWadlGenerator.generate(this.handlerMapping, this.request, "test", Collections.<Class<?>> emptyList(),
+				new WadlTypeMapper() {
+					public QName getWadlType(Class<?> javaType) {
+						writtenWhenMapped.add(new String(out.toByteArray(), Charset.forName("UTF-8")));
+						return wadlTypeMapper.getWadlType(javaType);
+					}
+				}, out);
+
+		// the /orders mappings are described before anything of them is written...
+		String first = writtenWhenMapped.get(0);
+		assertTrue(first.contains("<resources"));
+		assertFalse(first.contains("<resource "));
+
+		// ...and written before the /customers mappings are described
+		boolean ordersWrittenFirst = false;
+		for (String written : writtenWhenMapped) {
+			if (written.contains(SampleOrderController.class.getName() + ".findOrders")
+					&& !written.contains("path=\"/customers\"")) {
+				ordersWrittenFirst = true;
+			}
+		}
+		assertTrue(ordersWrittenFirst);
+	}
+
+	private void assertStreamingMatchesWadlGenerator(List<Class<?>> ignoreControllers) throws Exception {
+		WadlApplication expected = WadlGenerator.generate(this.handlerMapping, this.request, "test",
+				ignoreControllers);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamingWadlGenerator.generate(this.handlerMapping, this.request, "test", ignoreControllers, out);
+
+		Unmarshaller unmarshaller = JAXBContext.newInstance(WadlApplication.class).createUnmarshaller();
+		WadlApplication actual = (WadlApplication) unmarshaller.unmarshal(new ByteArrayInputStream(out
+				.toByteArray()));
+
+		assertEquals(expected, actual);
+	}
+}
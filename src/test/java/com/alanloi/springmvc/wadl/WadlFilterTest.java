@@ -0,0 +1,150 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlMethod;
+import net.java.dev.wadl._2009._02.WadlResource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.sample.SampleCustomerController;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+import com.alanloi.springmvc.wadl.sample.SampleOrderController;
+
+/**
+ * Tests for WadlFilter.
+ *
+ * @author Alan Loi
+ */
+public class WadlFilterTest {
+
+	private HandlerMethodDescriptorIndex index;
+	private WadlGeneratorOptions options;
+
+	@Before
+	public void setUp() {
+		this.options = new WadlGeneratorOptions();
+		this.index = HandlerMethodDescriptorIndex.create(SampleHandlerMappings.create(),
+				Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), this.options);
+	}
+
+	@Test
+	public void testEmptyFilterSelectsEverything() {
+		assertTrue(WadlFilter.NONE.isEmpty());
+		assertEquals(WadlGenerator.generate(this.index, "http://localhost:80", "test", this.options),
+				WadlGenerator.generate(this.index, WadlFilter.NONE, "http://localhost:80", "test", this.options));
+	}
+
+	@Test
+	public void testIncludeController() {
+		WadlFilter filter = new WadlFilter.Builder().includeController(SampleOrderController.class).build();
+
+		assertEquals(Collections.singletonList("/orders"), getResourcePaths(filter));
+	}
+
+	@Test
+	public void testExcludeController() {
+		WadlFilter filter = new WadlFilter.Builder().excludeController(SampleOrderController.class).build();
+
+		assertEquals(Arrays.asList("/customers", "/clients"), getResourcePaths(filter));
+	}
+
+	@Test
+	public void testIncludeParentPackage() {
+		WadlFilter filter = new WadlFilter.Builder().includePackage("com.alanloi.springmvc.wadl.").build();
+		assertEquals(3, getResourcePaths(filter).size());
+
+		filter = new WadlFilter.Builder().includePackage("com.alanloi.springmvc.wadl.mapper").build();
+		assertTrue(getResourcePaths(filter).isEmpty());
+	}
+
+	@Test
+	public void testIncludeAnnotation() {
+		WadlFilter filter = new WadlFilter.Builder().includeAnnotation(ResponseBody.class).build();
+		WadlApplication application = WadlGenerator.generate(this.index, filter, null, "test", this.options);
+
+		WadlResource orders = application.getResources().get(0).getResource().get(0);
+		assertEquals("/orders", orders.getPath());
+
+		// updateOrder and deleteOrder don't have a response body
+		WadlResource order = (WadlResource) orders.getMethodOrResource().get(1);
+		assertEquals(1, order.getMethodOrResource().size());
+		assertEquals("GET", ((WadlMethod) order.getMethodOrResource().get(0)).getName());
+	}
+
+	@Test
+	public void testPathPrefixes() {
+		WadlFilter filter = new WadlFilter.Builder().includePath("customers/").excludePath("/customers/{customerId}")
+				.build();
+		WadlApplication application = WadlGenerator.generate(this.index, filter, null, "test", this.options);
+
+		List<WadlResource> resources = application.getResources().get(0).getResource();
+		assertEquals(1, resources.size());
+		assertEquals("/customers", resources.get(0).getPath());
+		assertEquals(1, resources.get(0).getMethodOrResource().size());
+	}
+
+	@Test
+	public void testExcludeWinsOverInclude() {
+		WadlFilter filter = new WadlFilter.Builder().includeController(SampleCustomerController.class)
+				.excludePath("/clients").build();
+
+		assertEquals(Collections.singletonList("/customers"), getResourcePaths(filter));
+	}
+
+	@Test
+	public void testFromRequestNormalizes() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wadl");
+		request.addParameter("includePath", new String[] { "orders//", " /customers" });
+		request.addParameter("excludePackage", "com.example.");
+		request.addParameter("other", "ignored");
+
+		WadlFilter expected = new WadlFilter.Builder().includePath("/orders").includePath("/customers")
+				.excludePackage("com.example").build();
+		WadlFilter filter = WadlFilter.fromRequest(request);
+
+		assertEquals(expected, filter);
+		assertEquals(expected.hashCode(), filter.hashCode());
+		assertFalse(filter.isEmpty());
+		assertTrue(WadlFilter.fromRequest(new MockHttpServletRequest()).isEmpty());
+	}
+
+	@Test
+	public void testCachingWadlGeneratorCachesFilteredTemplates() {
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+
+		WadlFilter filter = new WadlFilter.Builder().includePath("/orders").build();
+		WadlFilter equalFilter = new WadlFilter.Builder().includePath("orders/").build();
+
+		WadlApplication template = generator.getTemplate(filter);
+		assertSame(template, generator.getTemplate(equalFilter));
+		assertSame(generator.getTemplate(), generator.getTemplate(WadlFilter.NONE));
+
+		generator.invalidate();
+		assertNotSame(template, generator.getTemplate(filter));
+	}
+
+	private List<String> getResourcePaths(WadlFilter filter) {
+		WadlApplication application = WadlGenerator.generate(this.index, filter, null, "test", this.options);
+
+		List<String> paths = new ArrayList<String>();
+		for (WadlResource resource : application.getResources().get(0).getResource()) {
+			paths.add(resource.getPath());
+		}
+		return paths;
+	}
+}
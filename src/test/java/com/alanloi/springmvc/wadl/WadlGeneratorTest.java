@@ -0,0 +1,450 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.QName;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlMethod;
+import net.java.dev.wadl._2009._02.WadlResource;
+import net.java.dev.wadl._2009._02.WadlResources;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.condition.PatternsRequestCondition;
+import org.springframework.web.servlet.mvc.condition.RequestMethodsRequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.RegistryWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.WadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.XmlBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.metrics.WadlGenerationMetrics;
+import com.alanloi.springmvc.wadl.sample.SampleCustomerController;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+import com.alanloi.springmvc.wadl.sample.SampleOrderController;
+
+/**
+ * Tests for WadlGenerator.
+ *
+ * @author Alan Loi
+ */
+public class WadlGeneratorTest {
+
+	private static final int THREADS = 4;
+
+	private ExecutorService executor;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() {
+		this.executor = Executors.newFixedThreadPool(THREADS);
+		this.request = new MockHttpServletRequest("GET", "/wadl");
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void testGenerateMergesResourcesByPath() {
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(), this.request, "test",
+				Collections.<Class<?>> emptyList());
+
+		List<WadlResource> resources = application.getResources().get(0).getResource();
+		assertEquals(3, resources.size());
+
+		WadlResource orders = resources.get(0);
+		assertEquals("/orders", orders.getPath());
+		assertEquals(2, orders.getMethodOrResource().size());
+		assertEquals("GET", ((WadlMethod) orders.getMethodOrResource().get(0)).getName());
+
+		WadlResource order = (WadlResource) orders.getMethodOrResource().get(1);
+		assertEquals("{id}", order.getPath());
+		assertEquals(3, order.getMethodOrResource().size());
+		assertEquals("GET", ((WadlMethod) order.getMethodOrResource().get(0)).getName());
+		assertEquals("PUT", ((WadlMethod) order.getMethodOrResource().get(1)).getName());
+		assertEquals("DELETE", ((WadlMethod) order.getMethodOrResource().get(2)).getName());
+
+		WadlResource customers = resources.get(1);
+		assertEquals("/customers", customers.getPath());
+		assertEquals("{customerId}/orders", ((WadlResource) customers.getMethodOrResource().get(1)).getPath());
+
+		// every pattern of a mapping is emitted, referring to the methods under the first one
+		assertEquals("com.alanloi.springmvc.wadl.sample.SampleCustomerController.findCustomers",
+				((WadlMethod) customers.getMethodOrResource().get(0)).getId());
+		WadlResource clients = resources.get(2);
+		assertEquals("/clients", clients.getPath());
+		WadlMethod reference = (WadlMethod) clients.getMethodOrResource().get(0);
+		assertEquals("#com.alanloi.springmvc.wadl.sample.SampleCustomerController.findCustomers",
+				reference.getHref());
+		assertNull(reference.getId());
+		assertNull(reference.getName());
+	}
+
+	@Test
+	public void testGenerateMultiplePatternsIsValid() {
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(), this.request, "test",
+				Collections.<Class<?>> emptyList());
+
+		new WadlValidator().validate(application);
+	}
+
+	@Test
+	public void testMethodIdsOfMultipleHttpMethodsAreUnique() {
+		RequestMappingInfo mappingInfo = new RequestMappingInfo(new PatternsRequestCondition("/orders/{id}",
+				"/orders/{id}/copy"), new RequestMethodsRequestCondition(RequestMethod.PUT, RequestMethod.POST), null,
+				null, null, null, null);
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+		handlerMethods.put(mappingInfo, SampleHandlerMappings.handlerMethod(new SampleOrderController(),
+				"updateOrder", Long.class, Boolean.class));
+
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(handlerMethods),
+				this.request, "test", Collections.<Class<?>> emptyList());
+
+		new WadlValidator().validate(application);
+
+		WadlResource order = application.getResources().get(0).getResource().get(0);
+		Set<String> ids = new HashSet<String>();
+		ids.add(((WadlMethod) order.getMethodOrResource().get(0)).getId());
+		ids.add(((WadlMethod) order.getMethodOrResource().get(1)).getId());
+		assertEquals(new HashSet<String>(Arrays.asList(
+				"com.alanloi.springmvc.wadl.sample.SampleOrderController.updateOrder_PUT",
+				"com.alanloi.springmvc.wadl.sample.SampleOrderController.updateOrder_POST")), ids);
+	}
+
+	@Test
+	public void testMethodIdsOfSameNamedMethodsAreUnique() {
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+		handlerMethods.put(SampleHandlerMappings.mapping(new String[] { "/books", "/novels" }, RequestMethod.GET,
+				null, "application/json"), SampleHandlerMappings.handlerMethod(new BookController(), "list"));
+		handlerMethods.put(SampleHandlerMappings.mapping(new String[] { "/authors", "/writers" }, RequestMethod.GET,
+				null, "application/json"), SampleHandlerMappings.handlerMethod(new AuthorController(), "list"));
+		handlerMethods.put(SampleHandlerMappings.mapping(new String[] { "/authors/{id}" }, RequestMethod.GET, null,
+				"application/json"), SampleHandlerMappings.handlerMethod(new AuthorController(), "list", Long.class));
+
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(handlerMethods),
+				this.request, "test", Collections.<Class<?>> emptyList());
+
+		// two controllers with a list method, one of them overloaded
+		new WadlValidator().validate(application);
+
+		List<WadlResource> resources = application.getResources().get(0).getResource();
+		String prefix = WadlGeneratorTest.class.getName() + ".";
+		assertEquals(prefix + "BookController.list",
+				((WadlMethod) resources.get(0).getMethodOrResource().get(0)).getId());
+		assertEquals("#" + prefix + "BookController.list",
+				((WadlMethod) resources.get(1).getMethodOrResource().get(0)).getHref());
+
+		WadlResource authors = resources.get(2);
+		assertEquals(prefix + "AuthorController.list",
+				((WadlMethod) authors.getMethodOrResource().get(0)).getId());
+		WadlResource author = (WadlResource) authors.getMethodOrResource().get(1);
+		assertEquals(prefix + "AuthorController.list-Long", ((WadlMethod) author.getMethodOrResource().get(0)).getId());
+		assertEquals("#" + prefix + "AuthorController.list",
+				((WadlMethod) resources.get(3).getMethodOrResource().get(0)).getHref());
+	}
+
+	@Test
+	public void testParallelGenerateMatchesSequential() {
+		RequestMappingHandlerMapping handlerMapping = SampleHandlerMappings.create(createManyHandlerMethods(500));
+		WadlTypeMapper wadlTypeMapper = new XmlBasedWadlTypeMapper();
+
+		WadlApplication sequential = WadlGenerator.generate(handlerMapping, this.request, "test",
+				Collections.<Class<?>> emptyList(), wadlTypeMapper);
+
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+		options.setExecutor(this.executor);
+		WadlApplication parallel = WadlGenerator.generate(handlerMapping, this.request, "test",
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testGenerateFromIndexMatchesHandlerMapping() {
+		RequestMappingHandlerMapping handlerMapping = SampleHandlerMappings.create();
+		WadlTypeMapper wadlTypeMapper = new JsonBasedWadlTypeMapper();
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+
+		HandlerMethodDescriptorIndex index = HandlerMethodDescriptorIndex.create(handlerMapping,
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+		assertEquals(6, index.size());
+
+		WadlApplication expected = WadlGenerator.generate(handlerMapping, "http://localhost:80", "test",
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+
+		assertEquals(expected, WadlGenerator.generate(index, "http://localhost:80", "test", options));
+		assertEquals(expected, WadlGenerator.generate(index, "http://localhost:80", "test", options));
+	}
+
+	@Test
+	public void testGenerateShardIndexAndShards() {
+		HandlerMethodDescriptorIndex index = HandlerMethodDescriptorIndex.create(SampleHandlerMappings.create(),
+				Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), new WadlGeneratorOptions());
+
+		WadlApplication shardIndex = WadlGenerator.generateShardIndex(index, "http://localhost:80", "test");
+		assertEquals(2, shardIndex.getResources().size());
+
+		WadlResources orders = shardIndex.getResources().get(0);
+		assertEquals(SampleOrderController.class.getName(), orders.getDoc().get(0).getTitle());
+		assertEquals("?shard=" + SampleOrderController.class.getName(), orders.getDoc().get(0).getContent().get(0));
+		assertEquals(2, orders.getResource().size());
+		assertTrue(orders.getResource().get(0).getMethodOrResource().isEmpty());
+
+		WadlResources customers = shardIndex.getResources().get(1);
+		assertEquals(3, customers.getResource().size());
+
+		// a shard is the WADL of just one controller
+		WadlApplication shard = WadlGenerator.generate(index.getShard(SampleOrderController.class.getName()),
+				"http://localhost:80", "test", new WadlGeneratorOptions());
+		List<WadlResource> resources = shard.getResources().get(0).getResource();
+		assertEquals(1, resources.size());
+		assertEquals("/orders", resources.get(0).getPath());
+
+		assertNull(index.getShard("com.example.MissingController"));
+	}
+
+	@Test
+	public void testUpdateIndexOnlyDescribesChangedMappings() {
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = SampleHandlerMappings.createHandlerMethods();
+		RequestMappingHandlerMapping handlerMapping = SampleHandlerMappings.create(handlerMethods);
+		WadlTypeMapper wadlTypeMapper = new JsonBasedWadlTypeMapper();
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+
+		HandlerMethodDescriptorIndex previous = HandlerMethodDescriptorIndex.create(handlerMapping,
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+
+		// remap /clients to another handler method
+		handlerMethods.put(
+				SampleHandlerMappings.mapping(new String[] { "/customers", "/clients" }, RequestMethod.GET, null,
+						"application/json"),
+				SampleHandlerMappings.handlerMethod(new SampleCustomerController(), "getCustomerOrders", Long.class));
+
+		HandlerMethodDescriptorIndex index = HandlerMethodDescriptorIndex.update(previous, handlerMapping,
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+
+		assertEquals(6, index.size());
+		for (int i = 0; i < 4; i++) {
+			assertSame(previous.getDescriptors().get(i), index.getDescriptors().get(i));
+		}
+		assertNotSame(previous.getDescriptors().get(4), index.getDescriptors().get(4));
+		assertSame(previous.getDescriptors().get(5), index.getDescriptors().get(5));
+
+		assertEquals(Collections.singleton(SampleCustomerController.class.getName()),
+				index.getChangedControllers(previous));
+
+		// the same as describing everything again
+		assertEquals(WadlGenerator.generate(handlerMapping, "http://localhost:80", "test",
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options),
+				WadlGenerator.generate(index, "http://localhost:80", "test", options));
+	}
+
+	@Test
+	public void testUpdateIndexDescribesEverythingWhenTypeBindingsChange() {
+		RequestMappingHandlerMapping handlerMapping = SampleHandlerMappings.create();
+		RegistryWadlTypeMapper wadlTypeMapper = new RegistryWadlTypeMapper(
+				new JsonBasedWadlTypeMapper().getJavaWadlTypeBindings());
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+
+		HandlerMethodDescriptorIndex previous = HandlerMethodDescriptorIndex.create(handlerMapping,
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+
+		// unchanged mappings are reused while the bindings are the same
+		HandlerMethodDescriptorIndex index = HandlerMethodDescriptorIndex.update(previous, handlerMapping,
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options);
+		assertSame(previous.getDescriptors().get(0), index.getDescriptors().get(0));
+
+		wadlTypeMapper.register(Long.class, new QName("urn:test", "id"));
+		index = HandlerMethodDescriptorIndex.update(index, handlerMapping, Collections.<Class<?>> emptyList(),
+				wadlTypeMapper, options);
+
+		for (int i = 0; i < index.size(); i++) {
+			assertNotSame(previous.getDescriptors().get(i), index.getDescriptors().get(i));
+		}
+		assertEquals(WadlGenerator.generate(handlerMapping, "http://localhost:80", "test",
+				Collections.<Class<?>> emptyList(), wadlTypeMapper, options),
+				WadlGenerator.generate(index, "http://localhost:80", "test", options));
+		assertFalse(WadlGenerator.generate(previous, "http://localhost:80", "test", options).equals(
+				WadlGenerator.generate(index, "http://localhost:80", "test", options)));
+	}
+
+	@Test
+	public void testCanonicalOutputDoesNotDependOnMappingOrder() {
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = SampleHandlerMappings.createHandlerMethods();
+
+		List<Map.Entry<RequestMappingInfo, HandlerMethod>> entries =
+				new ArrayList<Map.Entry<RequestMappingInfo, HandlerMethod>>(handlerMethods.entrySet());
+		Collections.reverse(entries);
+		Map<RequestMappingInfo, HandlerMethod> reversed = new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : entries) {
+			reversed.put(entry.getKey(), entry.getValue());
+		}
+
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+		WadlMarshaller marshaller = new WadlMarshaller();
+
+		byte[] ordered = marshaller.toBytes(WadlGenerator.generate(SampleHandlerMappings.create(handlerMethods),
+				"http://localhost:80", "test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(),
+				options));
+		byte[] unordered = marshaller.toBytes(WadlGenerator.generate(SampleHandlerMappings.create(reversed),
+				"http://localhost:80", "test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(),
+				options));
+		assertFalse(Arrays.equals(ordered, unordered));
+
+		options.setCanonical(true);
+		ordered = marshaller.toBytes(WadlGenerator.generate(SampleHandlerMappings.create(handlerMethods),
+				"http://localhost:80", "test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(),
+				options));
+		unordered = marshaller.toBytes(WadlGenerator.generate(SampleHandlerMappings.create(reversed),
+				"http://localhost:80", "test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(),
+				options));
+		assertArrayEquals(ordered, unordered);
+
+		// resources by path, methods by name
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(reversed),
+				"http://localhost:80", "test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(),
+				options);
+		List<WadlResource> resources = application.getResources().get(0).getResource();
+		assertEquals("/clients", resources.get(0).getPath());
+		assertEquals("/customers", resources.get(1).getPath());
+		assertEquals("/orders", resources.get(2).getPath());
+
+		WadlResource order = (WadlResource) resources.get(2).getMethodOrResource().get(1);
+		assertEquals("DELETE", ((WadlMethod) order.getMethodOrResource().get(0)).getName());
+		assertEquals("GET", ((WadlMethod) order.getMethodOrResource().get(1)).getName());
+		assertEquals("PUT", ((WadlMethod) order.getMethodOrResource().get(2)).getName());
+	}
+
+	@Test
+	public void testGenerateInternsIdenticalSubObjects() {
+		RequestMappingHandlerMapping handlerMapping = SampleHandlerMappings.create(createManyHandlerMethods(2));
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+
+		List<WadlResource> resources = WadlGenerator.generate(handlerMapping, "http://localhost:80", "test",
+				Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), options).getResources().get(0)
+				.getResource();
+		WadlMethod first = (WadlMethod) resources.get(0).getMethodOrResource().get(0);
+		WadlMethod second = (WadlMethod) resources.get(1).getMethodOrResource().get(0);
+
+		assertNotSame(first, second);
+		assertSame(first.getRequest().getParam().get(0), second.getRequest().getParam().get(0));
+		assertSame(first.getResponse().get(0).getRepresentation().get(0),
+				second.getResponse().get(0).getRepresentation().get(0));
+		assertSame(first.getDoc().get(0), second.getDoc().get(0));
+
+		options.setInterning(false);
+		resources = WadlGenerator.generate(handlerMapping, "http://localhost:80", "test",
+				Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), options).getResources().get(0)
+				.getResource();
+		first = (WadlMethod) resources.get(0).getMethodOrResource().get(0);
+		second = (WadlMethod) resources.get(1).getMethodOrResource().get(0);
+
+		assertNotSame(first.getRequest().getParam().get(0), second.getRequest().getParam().get(0));
+		assertEquals(first.getRequest().getParam().get(0), second.getRequest().getParam().get(0));
+	}
+
+	@Test
+	public void testGenerateReportsMetrics() {
+		WadlGenerationMetrics metrics = new WadlGenerationMetrics();
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+		options.setListener(metrics);
+
+		WadlGenerator.generate(SampleHandlerMappings.create(), this.request, "test",
+				Collections.<Class<?>> singletonList(SampleCustomerController.class), new JsonBasedWadlTypeMapper(),
+				options);
+
+		assertEquals(1, metrics.getGenerationCount());
+		assertEquals(2, metrics.getIgnoredControllerCount());
+		assertEquals(2, metrics.getResourceCount());
+		assertEquals(4, metrics.getMethodCount());
+		assertEquals(6, metrics.getParamCount());
+	}
+
+	@Test
+	public void testWadlTypeMapperIsThreadSafe() throws Exception {
+		final WadlTypeMapper wadlTypeMapper = new JsonBasedWadlTypeMapper();
+		final Class<?>[] javaTypes = { String.class, Long.class, ArrayList.class, LinkedHashMap.class, Runnable.class,
+				Long[].class, WadlGeneratorTest.class };
+
+		List<Future<List<QName>>> results = new ArrayList<Future<List<QName>>>();
+		for (int i = 0; i < THREADS * 4; i++) {
+			results.add(this.executor.submit(new Callable<List<QName>>() {
+				public List<QName> call() {
+					List<QName> wadlTypes = new ArrayList<QName>();
+					for (int j = 0; j < 1000; j++) {
+						for (Class<?> javaType : javaTypes) {
+							wadlTypes.add(wadlTypeMapper.getWadlType(javaType));
+						}
+					}
+					return wadlTypes;
+				}
+			}));
+		}
+
+		List<QName> expected = results.get(0).get();
+		assertTrue(expected.size() > 0);
+		for (Future<List<QName>> result : results) {
+			assertEquals(expected, result.get());
+		}
+	}
+
+	static Map<RequestMappingInfo, HandlerMethod> createManyHandlerMethods(int count) {
+		SampleOrderController orders = new SampleOrderController();
+
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+		for (int i = 0; i < count; i++) {
+			handlerMethods.put(SampleHandlerMappings.mapping(new String[] { "/orders" + i + "/{id}" },
+					RequestMethod.GET, null, "application/json"),
+					SampleHandlerMappings.handlerMethod(orders, "getOrder", Long.class));
+			handlerMethods.put(SampleHandlerMappings.mapping(new String[] { "/orders" + i },
+					RequestMethod.GET, null, "application/json"),
+					SampleHandlerMappings.handlerMethod(orders, "findOrders", String.class, Integer.class));
+		}
+		return handlerMethods;
+	}
+
+	public static class BookController {
+
+		public List<String> list() {
+			return Collections.emptyList();
+		}
+	}
+
+	public static class AuthorController {
+
+		public List<String> list() {
+			return Collections.emptyList();
+		}
+
+		public List<String> list(@PathVariable Long id) {
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import javax.xml.namespace.QName;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlDoc;
+import net.java.dev.wadl._2009._02.WadlMethod;
+import net.java.dev.wadl._2009._02.WadlParam;
+import net.java.dev.wadl._2009._02.WadlParamStyle;
+import net.java.dev.wadl._2009._02.WadlRepresentation;
+import net.java.dev.wadl._2009._02.WadlRequest;
+import net.java.dev.wadl._2009._02.WadlResource;
+import net.java.dev.wadl._2009._02.WadlResources;
+import net.java.dev.wadl._2009._02.WadlResponse;
+
+import org.junit.Test;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+
+/**
+ * Tests for WadlJsonWriter.
+ *
+ * @author Alan Loi
+ */
+public class WadlJsonWriterTest {
+
+	private final WadlJsonWriter writer = new WadlJsonWriter();
+
+	@Test
+	public void testWriteMirrorsSchema() throws Exception {
+		WadlApplication application = new WadlApplication();
+		WadlDoc doc = new WadlDoc();
+		doc.setTitle("test");
+		application.getDoc().add(doc);
+
+		WadlParam param = new WadlParam();
+		param.setName("id");
+		param.setStyle(WadlParamStyle.TEMPLATE);
+		param.setType(new QName("http://www.w3.org/2001/XMLSchema", "long", "xs"));
+		param.setRequired(true);
+
+		WadlRequest request = new WadlRequest();
+		request.getParam().add(param);
+
+		WadlRepresentation representation = new WadlRepresentation();
+		representation.setMediaType("application/json");
+
+		WadlResponse response = new WadlResponse();
+		response.getStatus().add(200L);
+		response.getRepresentation().add(representation);
+
+		WadlMethod method = new WadlMethod();
+		method.setName("GET");
+		method.setId("getOrder");
+		method.setRequest(request);
+		method.getResponse().add(response);
+
+		WadlResource child = new WadlResource();
+		child.setPath("{id}");
+		child.getMethodOrResource().add(method);
+
+		WadlResource resource = new WadlResource();
+		resource.setPath("/orders");
+		resource.getMethodOrResource().add(child);
+
+		WadlResources resources = new WadlResources();
+		resources.setBase("http://localhost/\"app\"");
+		resources.getResource().add(resource);
+		application.getResources().add(resources);
+
+		assertEquals("{\"doc\":[{\"title\":\"test\"}],\"resources\":[{\"base\":\"http://localhost/\\\"app\\\"\","
+				+ "\"resource\":[{\"path\":\"/orders\",\"resource\":[{\"path\":\"{id}\","
+				+ "\"method\":[{\"id\":\"getOrder\",\"name\":\"GET\",\"request\":{\"param\":[{\"name\":\"id\","
+				+ "\"style\":\"template\",\"type\":\"{http://www.w3.org/2001/XMLSchema}long\",\"required\":true}]},"
+				+ "\"response\":[{\"status\":[200],"
+				+ "\"representation\":[{\"mediaType\":\"application/json\"}]}]}]}]}]}]}",
+				new String(this.writer.toBytes(application), "UTF-8"));
+	}
+
+	@Test
+	public void testWriteGeneratedWadl() throws Exception {
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(), "http://localhost:80",
+				"test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), new WadlGeneratorOptions());
+
+		String json = new String(this.writer.toBytes(application), "UTF-8");
+		assertTrue(json.startsWith("{\"doc\":[{\"title\":\"test\"}],\"resources\":[{\"base\":\"http://localhost:80\""));
+		assertTrue(json.contains("{\"path\":\"/clients\",\"method\":[{\"href\":"
+				+ "\"#com.alanloi.springmvc.wadl.sample.SampleCustomerController.findCustomers\"}]"));
+		assertTrue(json.endsWith("]}]}"));
+	}
+
+	@Test
+	public void testEscape() {
+		assertEquals("plain", WadlJsonWriter.escape("plain"));
+		assertEquals("a\\\"b\\\\c\\nd\\u0001\\u2028", WadlJsonWriter.escape("a\"b\\c\nd\u0001\u2028"));
+	}
+}
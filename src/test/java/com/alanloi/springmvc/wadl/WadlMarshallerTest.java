@@ -0,0 +1,46 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+
+import org.junit.Test;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+
+/**
+ * Tests for WadlMarshaller.
+ *
+ * @author Alan Loi
+ */
+public class WadlMarshallerTest {
+
+	@Test
+	public void testToBytesRoundTrips() throws Exception {
+		WadlApplication application = WadlGenerator.generate(SampleHandlerMappings.create(), "http://localhost:80",
+				"test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), new WadlGeneratorOptions());
+
+		WadlMarshaller marshaller = new WadlMarshaller();
+		byte[] first = marshaller.toBytes(application);
+		byte[] second = marshaller.toBytes(application);
+
+		assertEquals(new String(first, "UTF-8"), new String(second, "UTF-8"));
+		assertEquals(application, WadlMarshaller.getContext().createUnmarshaller().unmarshal(
+				new ByteArrayInputStream(first)));
+	}
+
+	@Test
+	public void testSchemaLocationAndFormatting() throws Exception {
+		WadlMarshaller marshaller = new WadlMarshaller(true, "http://wadl.dev.java.net/2009/02 wadl.xsd");
+
+		String xml = new String(marshaller.toBytes(new WadlApplication()), "UTF-8");
+
+		assertTrue(xml.contains("schemaLocation=\"http://wadl.dev.java.net/2009/02 wadl.xsd\""));
+		assertTrue(xml.contains("\n"));
+	}
+}
@@ -0,0 +1,104 @@
+package com.alanloi.springmvc.wadl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import net.java.dev.wadl._2009._02.WadlApplication;
+import net.java.dev.wadl._2009._02.WadlOption;
+import net.java.dev.wadl._2009._02.WadlParam;
+import net.java.dev.wadl._2009._02.WadlResource;
+import net.java.dev.wadl._2009._02.WadlResources;
+
+import org.junit.Test;
+
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+
+/**
+ * Tests for WadlValidator.
+ *
+ * @author Alan Loi
+ */
+public class WadlValidatorTest {
+
+	@Test
+	public void testGeneratedWadlIsValid() {
+		new WadlValidator().validate(generate());
+
+		assertSame(WadlValidator.getSchema(), WadlValidator.getSchema());
+	}
+
+	@Test
+	public void testCanonicalWadlIsValid() {
+		WadlGeneratorOptions options = new WadlGeneratorOptions();
+		options.setCanonical(true);
+
+		new WadlValidator().validate(WadlGenerator.generate(SampleHandlerMappings.create(), "http://localhost:80",
+				"test", Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), options));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testInvalidWadl() {
+		new WadlValidator().validate(createInvalid());
+	}
+
+	@Test
+	public void testValidateOnlyWhenChanged() {
+		WadlValidator validator = new WadlValidator(true);
+		WadlApplication application = generate();
+
+		assertTrue(validator.validate(application, "first"));
+		assertFalse(validator.validate(application, "first"));
+		assertTrue(validator.validate(application, "second"));
+
+		// an invalid WADL isn't remembered
+		try {
+			validator.validate(createInvalid(), "third");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(validator.validate(application, "third"));
+	}
+
+	@Test
+	public void testAlwaysValidate() {
+		WadlValidator validator = new WadlValidator();
+		WadlApplication application = generate();
+
+		assertTrue(validator.validate(application, "first"));
+		assertTrue(validator.validate(application, "first"));
+	}
+
+	/**
+	 * @return the WADL of all the sample controllers, including a mapping to
+	 *         more than one path
+	 */
+	private static WadlApplication generate() {
+		return WadlGenerator.generate(SampleHandlerMappings.create(), "http://localhost:80", "test",
+				Collections.<Class<?>> emptyList(), new JsonBasedWadlTypeMapper(), new WadlGeneratorOptions());
+	}
+
+	/**
+	 * @return a WADL with an option which has no (required) value
+	 */
+	private static WadlApplication createInvalid() {
+		WadlParam param = new WadlParam();
+		param.setName("status");
+		param.getOption().add(new WadlOption());
+
+		WadlResource resource = new WadlResource();
+		resource.setPath("orders");
+		resource.getParam().add(param);
+
+		WadlResources resources = new WadlResources();
+		resources.setBase("http://localhost:80");
+		resources.getResource().add(resource);
+
+		WadlApplication application = new WadlApplication();
+		application.getResources().add(resources);
+		return application;
+	}
+}
@@ -0,0 +1,151 @@
+package com.alanloi.springmvc.wadl.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+
+import org.apache.commons.lang.ClassUtils;
+import org.junit.Test;
+
+/**
+ * Tests the caching in AbstractWadlTypeMapper.
+ *
+ * @author Alan Loi
+ */
+public class AbstractWadlTypeMapperTest {
+
+	private static final Class<?>[] JAVA_TYPES = { String.class, Long.class, Long[].class, BigDecimal.class,
+			Boolean.class, Date.class, java.sql.Date.class, GregorianCalendar.class, List.class, ArrayList.class,
+			Set.class, TreeSet.class, Map.class, HashMap.class, Object.class, Runnable.class, Comparable.class,
+			AbstractWadlTypeMapperTest.class, int.class };
+
+	@Test
+	public void testCachedJsonTypesMatchUncached() {
+		assertCachedTypesMatchUncached(new JsonBasedWadlTypeMapper());
+	}
+
+	@Test
+	public void testCachedXmlTypesMatchUncached() {
+		assertCachedTypesMatchUncached(new XmlBasedWadlTypeMapper());
+	}
+
+	@Test
+	public void testJsonTypesMatchBaseline() {
+		assertTypesMatchBaseline(new JsonBasedWadlTypeMapper());
+	}
+
+	@Test
+	public void testXmlTypesMatchBaseline() {
+		assertTypesMatchBaseline(new XmlBasedWadlTypeMapper());
+	}
+
+	@Test
+	public void testClassOfForeignClassLoaderIsNotCached() throws Exception {
+		CountingWadlTypeMapper mapper = new CountingWadlTypeMapper();
+
+		// the same class, loaded by a class loader which isn't visible to the mapper
+		URL classpath = Unrelated.class.getProtectionDomain().getCodeSource().getLocation();
+		ClassLoader foreignLoader = new URLClassLoader(new URL[] { classpath }, null);
+		Class<?> foreignType = foreignLoader.loadClass(Unrelated.class.getName());
+
+		assertNull(mapper.getWadlType(foreignType));
+		assertNull(mapper.getWadlType(foreignType));
+		assertEquals(2, mapper.resolveCount);
+		assertEquals(0, mapper.getCacheSize());
+
+		assertNull(mapper.getWadlType(Unrelated.class));
+		assertNull(mapper.getWadlType(Unrelated.class));
+		assertEquals(3, mapper.resolveCount);
+		assertEquals(1, mapper.getCacheSize());
+	}
+
+	@Test
+	public void testMissIsCached() {
+		CountingWadlTypeMapper mapper = new CountingWadlTypeMapper();
+
+		assertNull(mapper.getWadlType(Runnable.class));
+		assertNull(mapper.getWadlType(Runnable.class));
+		assertEquals(1, mapper.resolveCount);
+	}
+
+	@Test
+	public void testHitIsCached() {
+		CountingWadlTypeMapper mapper = new CountingWadlTypeMapper();
+
+		QName first = mapper.getWadlType(Long.class);
+		QName second = mapper.getWadlType(Long.class);
+
+		assertEquals(new QName("http://wadl.dev.java.net/2009/02", "number"), first);
+		assertSame(first, second);
+		assertEquals(1, mapper.resolveCount);
+	}
+
+	private void assertCachedTypesMatchUncached(AbstractWadlTypeMapper mapper) {
+		for (int i = 0; i < 2; i++) {
+			for (Class<?> javaType : JAVA_TYPES) {
+				assertEquals("Mismatch for " + javaType, mapper.resolveWadlType(javaType),
+						mapper.getWadlType(javaType));
+			}
+		}
+	}
+
+	private void assertTypesMatchBaseline(AbstractWadlTypeMapper mapper) {
+		for (int i = 0; i < 2; i++) {
+			for (Class<?> javaType : JAVA_TYPES) {
+				assertEquals("Mismatch for " + javaType, getBaselineWadlType(mapper.getJavaWadlTypeBindings(),
+						javaType), mapper.getWadlType(javaType));
+			}
+		}
+	}
+
+	/**
+	 * The lookup as it was before resolved types were cached.
+	 */
+	@SuppressWarnings("unchecked")
+	private static QName getBaselineWadlType(List<JavaWadlTypePair> bindings, Class<?> javaType) {
+		Class<?> componentType = javaType.getComponentType();
+		if (componentType != null) {
+			javaType = componentType;
+		}
+
+		List<Class<?>> javaTypes = new ArrayList<Class<?>>();
+		javaTypes.add(javaType);
+		javaTypes.addAll(ClassUtils.getAllSuperclasses(javaType));
+		javaTypes.addAll(ClassUtils.getAllInterfaces(javaType));
+
+		for (JavaWadlTypePair binding : bindings) {
+			if (javaTypes.contains(binding.getJavaType())) {
+				return binding.getWadlType();
+			}
+		}
+		return null;
+	}
+
+	public static class Unrelated {
+	}
+
+	static class CountingWadlTypeMapper extends JsonBasedWadlTypeMapper {
+
+		private int resolveCount;
+
+		@Override
+		protected QName resolveWadlType(Class<?> javaType) {
+			this.resolveCount++;
+			return super.resolveWadlType(javaType);
+		}
+	}
+}
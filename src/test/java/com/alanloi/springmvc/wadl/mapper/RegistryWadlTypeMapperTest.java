@@ -0,0 +1,135 @@
+package com.alanloi.springmvc.wadl.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for RegistryWadlTypeMapper.
+ *
+ * @author Alan Loi
+ */
+public class RegistryWadlTypeMapperTest {
+
+	private RegistryWadlTypeMapper mapper;
+
+	@Before
+	public void setUp() {
+		this.mapper = new RegistryWadlTypeMapper(new JsonBasedWadlTypeMapper().getJavaWadlTypeBindings());
+	}
+
+	@Test
+	public void testInitialBindings() {
+		assertEquals(wadlQName("string"), this.mapper.getWadlType(String.class));
+		assertEquals(wadlQName("number"), this.mapper.getWadlType(Long.class));
+		assertEquals(wadlQName("number"), this.mapper.getWadlType(Long[].class));
+		assertEquals(wadlQName("array"), this.mapper.getWadlType(ArrayList.class));
+		assertEquals(wadlQName("object"), this.mapper.getWadlType(this.getClass()));
+		assertNull(this.mapper.getWadlType(Runnable.class));
+	}
+
+	@Test
+	public void testMostSpecificBindingWins() {
+		// registered after Object, but closer to the class
+		this.mapper.register(CustomerId.class, wadlQName("id"));
+		this.mapper.register(Collection.class, wadlQName("collection"));
+
+		assertEquals(wadlQName("id"), this.mapper.getWadlType(CustomerId.class));
+		assertEquals(wadlQName("id"), this.mapper.getWadlType(PremiumCustomerId.class));
+
+		// List is a direct interface of ArrayList, Collection is further up
+		assertEquals(wadlQName("array"), this.mapper.getWadlType(ArrayList.class));
+		assertEquals(wadlQName("collection"), this.mapper.getWadlType(Collection.class));
+	}
+
+	@Test
+	public void testRegisterInvalidatesResolvedTypes() {
+		assertEquals(wadlQName("object"), this.mapper.getWadlType(UUID.class));
+
+		this.mapper.register(UUID.class, wadlQName("uuid"));
+		assertEquals(wadlQName("uuid"), this.mapper.getWadlType(UUID.class));
+
+		assertTrue(this.mapper.unregister(UUID.class));
+		assertFalse(this.mapper.unregister(UUID.class));
+		assertEquals(wadlQName("object"), this.mapper.getWadlType(UUID.class));
+	}
+
+	@Test
+	public void testRegisterAllReplacesBindings() {
+		this.mapper.registerAll(Arrays.asList(new JavaWadlTypePair(String.class, wadlQName("text")),
+				new JavaWadlTypePair(CustomerId.class, wadlQName("id"))));
+
+		assertEquals(wadlQName("text"), this.mapper.getWadlType(String.class));
+		assertEquals(wadlQName("id"), this.mapper.getWadlType(CustomerId.class));
+
+		List<JavaWadlTypePair> bindings = this.mapper.getJavaWadlTypeBindings();
+		assertEquals(String.class, bindings.get(0).getJavaType());
+		assertEquals(wadlQName("text"), bindings.get(0).getWadlType());
+		assertEquals(CustomerId.class, bindings.get(bindings.size() - 1).getJavaType());
+	}
+
+	@Test
+	public void testConcurrentRegistration() throws InterruptedException {
+		final Class<?>[] types = { Integer.class, Long.class, Short.class, Float.class, Double.class,
+				Byte.class, Character.class, UUID.class };
+
+		Thread[] threads = new Thread[types.length];
+		for (int i = 0; i < types.length; i++) {
+			final Class<?> type = types[i];
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					RegistryWadlTypeMapperTest.this.mapper.register(type, wadlQName(type.getSimpleName()));
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// no registration is lost
+		for (Class<?> type : types) {
+			assertEquals(wadlQName(type.getSimpleName()), this.mapper.getWadlType(type));
+		}
+	}
+
+	@Test
+	public void testClassOfForeignClassLoaderIsNotCached() throws Exception {
+		// the same class, loaded by a class loader which isn't visible to the mapper
+		URL classpath = CustomerId.class.getProtectionDomain().getCodeSource().getLocation();
+		ClassLoader foreignLoader = new URLClassLoader(new URL[] { classpath }, null);
+		Class<?> foreignType = foreignLoader.loadClass(CustomerId.class.getName());
+
+		assertEquals(wadlQName("object"), this.mapper.getWadlType(foreignType));
+		assertEquals(wadlQName("object"), this.mapper.getWadlType(foreignType));
+		assertEquals(0, this.mapper.getCacheSize());
+
+		assertEquals(wadlQName("object"), this.mapper.getWadlType(CustomerId.class));
+		assertEquals(1, this.mapper.getCacheSize());
+	}
+
+	private static QName wadlQName(String localPart) {
+		return new QName("http://wadl.dev.java.net/2009/02", localPart);
+	}
+
+	static class CustomerId {
+	}
+
+	static class PremiumCustomerId extends CustomerId {
+	}
+}
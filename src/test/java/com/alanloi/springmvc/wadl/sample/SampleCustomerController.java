@@ -0,0 +1,30 @@
+package com.alanloi.springmvc.wadl.sample;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Sample controller used as a test fixture.
+ *
+ * @author Alan Loi
+ */
+@Controller
+public class SampleCustomerController {
+
+	@RequestMapping(value = { "/customers", "/clients" }, method = RequestMethod.GET, produces = "application/json")
+	public @ResponseBody List<String> findCustomers() {
+		return Collections.emptyList();
+	}
+
+	@RequestMapping(value = "/customers/{customerId}/orders", method = RequestMethod.GET,
+			produces = "application/json")
+	public @ResponseBody List<String> getCustomerOrders(@PathVariable Long customerId) {
+		return Collections.emptyList();
+	}
+}
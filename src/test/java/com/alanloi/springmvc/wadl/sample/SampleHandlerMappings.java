@@ -0,0 +1,84 @@
+package com.alanloi.springmvc.wadl.sample;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.condition.ConsumesRequestCondition;
+import org.springframework.web.servlet.mvc.condition.PatternsRequestCondition;
+import org.springframework.web.servlet.mvc.condition.ProducesRequestCondition;
+import org.springframework.web.servlet.mvc.condition.RequestMethodsRequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Builds the request mappings of the sample controllers, as Spring MVC would
+ * detect them, without starting an application context.
+ *
+ * @author Alan Loi
+ */
+public final class SampleHandlerMappings {
+
+	private SampleHandlerMappings() {
+	}
+
+	/**
+	 * @return the request mappings of all sample controllers
+	 */
+	public static Map<RequestMappingInfo, HandlerMethod> createHandlerMethods() {
+		SampleOrderController orders = new SampleOrderController();
+		SampleCustomerController customers = new SampleCustomerController();
+
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = new LinkedHashMap<RequestMappingInfo, HandlerMethod>();
+		handlerMethods.put(mapping(new String[] { "/orders/{id}" }, RequestMethod.GET, null, "application/json"),
+				handlerMethod(orders, "getOrder", Long.class));
+		handlerMethods.put(mapping(new String[] { "/orders/{id}" }, RequestMethod.PUT, "application/json", null),
+				handlerMethod(orders, "updateOrder", Long.class, Boolean.class));
+		handlerMethods.put(mapping(new String[] { "/orders/{id}" }, RequestMethod.DELETE, null, null),
+				handlerMethod(orders, "deleteOrder", Long.class));
+		handlerMethods.put(mapping(new String[] { "/orders" }, RequestMethod.GET, null, "application/json"),
+				handlerMethod(orders, "findOrders", String.class, Integer.class));
+		handlerMethods.put(
+				mapping(new String[] { "/customers", "/clients" }, RequestMethod.GET, null, "application/json"),
+				handlerMethod(customers, "findCustomers"));
+		handlerMethods.put(
+				mapping(new String[] { "/customers/{customerId}/orders" }, RequestMethod.GET, null, "application/json"),
+				handlerMethod(customers, "getCustomerOrders", Long.class));
+		return handlerMethods;
+	}
+
+	/**
+	 * @return a (mocked) handler mapping with the request mappings of all
+	 *         sample controllers
+	 */
+	public static RequestMappingHandlerMapping create() {
+		return create(createHandlerMethods());
+	}
+
+	public static RequestMappingHandlerMapping create(Map<RequestMappingInfo, HandlerMethod> handlerMethods) {
+		RequestMappingHandlerMapping handlerMapping = mock(RequestMappingHandlerMapping.class);
+		when(handlerMapping.getHandlerMethods()).thenReturn(handlerMethods);
+		return handlerMapping;
+	}
+
+	public static RequestMappingInfo mapping(String[] patterns, RequestMethod method, String consumes,
+			String produces) {
+		return new RequestMappingInfo(new PatternsRequestCondition(patterns), new RequestMethodsRequestCondition(
+				method), null, null, (consumes != null ? new ConsumesRequestCondition(consumes) : null),
+				(produces != null ? new ProducesRequestCondition(produces) : null), null);
+	}
+
+	public static HandlerMethod handlerMethod(Object controller, String methodName, Class<?>... parameterTypes) {
+		try {
+			Method method = controller.getClass().getMethod(methodName, parameterTypes);
+			return new HandlerMethod(controller, method);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
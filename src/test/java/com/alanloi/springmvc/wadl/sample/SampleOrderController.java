@@ -0,0 +1,41 @@
+package com.alanloi.springmvc.wadl.sample;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Sample controller used as a test fixture.
+ *
+ * @author Alan Loi
+ */
+@Controller
+@RequestMapping("/orders")
+public class SampleOrderController {
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = "application/json")
+	public @ResponseBody String getOrder(@PathVariable("id") Long id) {
+		return null;
+	}
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.PUT, consumes = "application/json")
+	public void updateOrder(@PathVariable Long id,
+			@RequestParam(value = "force", required = false, defaultValue = "false") Boolean force) {
+	}
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+	public void deleteOrder(@PathVariable Long id) {
+	}
+
+	@RequestMapping(method = RequestMethod.GET, produces = "application/json")
+	public @ResponseBody List<String> findOrders(@RequestParam("q") String query,
+			@RequestParam(value = "page", defaultValue = "1") Integer page) {
+		return Collections.emptyList();
+	}
+}
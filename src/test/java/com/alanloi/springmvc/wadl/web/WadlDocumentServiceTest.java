@@ -0,0 +1,148 @@
+package com.alanloi.springmvc.wadl.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+import com.alanloi.springmvc.wadl.CachingWadlGenerator;
+import com.alanloi.springmvc.wadl.WadlFilter;
+import com.alanloi.springmvc.wadl.sample.SampleCustomerController;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+import com.alanloi.springmvc.wadl.sample.SampleOrderController;
+
+/**
+ * Tests for WadlDocumentService.
+ *
+ * @author Alan Loi
+ */
+public class WadlDocumentServiceTest {
+
+	private static final int CALLERS = 8;
+
+	private CachingWadlGenerator generator;
+	private WadlDocumentService service;
+
+	@Before
+	public void setUp() {
+		this.generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+		this.service = new WadlDocumentService(this.generator);
+	}
+
+	@Test
+	public void testShardsOfRemovedControllersAreDropped() {
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = SampleHandlerMappings.createHandlerMethods();
+		this.generator = new CachingWadlGenerator(SampleHandlerMappings.create(handlerMethods), "test", null);
+		this.service = new WadlDocumentService(this.generator);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wadl");
+
+		String orders = SampleOrderController.class.getName();
+		String customers = SampleCustomerController.class.getName();
+		assertNotNull(this.service.getShardDocument(request, orders));
+		assertNotNull(this.service.getShardDocument(request, customers));
+		assertEquals(new HashSet<String>(Arrays.asList(orders, customers)), this.service.getCachedShards());
+
+		// the customer controller is gone after a refresh
+		for (Iterator<HandlerMethod> it = handlerMethods.values().iterator(); it.hasNext();) {
+			if (it.next().getBeanType() == SampleCustomerController.class) {
+				it.remove();
+			}
+		}
+		this.generator.invalidate();
+
+		this.service.getShardIndexDocument(request);
+		assertEquals(Collections.singleton(orders), this.service.getCachedShards());
+		assertNull(this.service.getShardDocument(request, customers));
+	}
+
+	@Test
+	public void testJsonDocumentTemplateIsCached() {
+		WadlDocumentTemplate template = this.service.getJsonDocumentTemplate();
+
+		assertEquals(WadlDocumentService.WADL_JSON_CONTENT_TYPE, template.getContentType());
+		assertTrue(new String(template.getContent()).startsWith("{"));
+		assertSame(template, this.service.getJsonDocumentTemplate());
+	}
+
+	@Test
+	public void testJsonDocumentTemplateAfterInvalidate() {
+		WadlDocumentTemplate first = this.service.getJsonDocumentTemplate();
+		this.generator.invalidate();
+		WadlDocumentTemplate second = this.service.getJsonDocumentTemplate();
+
+		assertNotSame(first, second);
+		assertArrayEquals(first.getContent(), second.getContent());
+		assertSame(second, this.service.getJsonDocumentTemplate());
+	}
+
+	@Test
+	public void testConcurrentJsonCallersGetOneTemplate() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<WadlDocumentTemplate>> results = new ArrayList<Future<WadlDocumentTemplate>>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(executor.submit(new Callable<WadlDocumentTemplate>() {
+					public WadlDocumentTemplate call() {
+						return service.getJsonDocumentTemplate();
+					}
+				}));
+			}
+
+			WadlDocumentTemplate expected = this.service.getJsonDocumentTemplate();
+			for (Future<WadlDocumentTemplate> result : results) {
+				assertSame(expected, result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConcurrentFilterCallersGetOneTemplate() throws Exception {
+		final WadlFilter filter = new WadlFilter.Builder().includeController(SampleOrderController.class).build();
+
+		assertConcurrentCallersGetOne(new Callable<Object>() {
+			public Object call() {
+				return service.getDocumentTemplate(filter);
+			}
+		});
+	}
+
+	private static void assertConcurrentCallersGetOne(Callable<Object> caller) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<Object>> results = new ArrayList<Future<Object>>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(executor.submit(caller));
+			}
+
+			Object expected = caller.call();
+			for (Future<Object> result : results) {
+				assertSame(expected, result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
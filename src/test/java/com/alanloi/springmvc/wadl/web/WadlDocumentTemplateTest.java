@@ -0,0 +1,116 @@
+package com.alanloi.springmvc.wadl.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for WadlDocumentTemplate.
+ *
+ * @author Alan Loi
+ */
+public class WadlDocumentTemplateTest {
+
+	private static final String CONTENT_TYPE = "application/xml";
+
+	@Test
+	public void testRenderReplacesPlaceholder() throws Exception {
+		WadlDocumentTemplate template = WadlDocumentTemplate.create(
+				"<resources base=\"${wadl.baseUrl}\"><resource path=\"/a\"/></resources>".getBytes("UTF-8"),
+				CONTENT_TYPE);
+
+		WadlDocument document = template.render("http://host:80/app?a=1&b=2");
+
+		assertEquals("<resources base=\"http://host:80/app?a=1&amp;b=2\"><resource path=\"/a\"/></resources>",
+				new String(document.getContent(), "UTF-8"));
+	}
+
+	@Test
+	public void testFirstRenderIsNotCompressed() throws Exception {
+		WadlDocumentTemplate template = WadlDocumentTemplate.create(
+				"<resources base=\"${wadl.baseUrl}\"/>".getBytes("UTF-8"), CONTENT_TYPE);
+		assertTrue(template.hasPlaceholder());
+
+		WadlDocument document = template.render("http://host");
+		assertNull(document.getGzippedContent());
+		assertEquals(template.getEtag("http://host"), document.getEtag());
+		assertFalse(document.getEtag().equals(template.getEtag("http://other")));
+
+		// compressed once it's requested again, with the same ETag
+		WadlDocument compressed = template.render("http://host");
+		assertNotNull(compressed.getGzippedContent());
+		assertEquals(document.getEtag(), compressed.getEtag());
+		assertSame(compressed, template.render("http://host"));
+	}
+
+	@Test
+	public void testPrepareCompresses() throws Exception {
+		WadlDocumentTemplate template = WadlDocumentTemplate.create(
+				"<resources base=\"${wadl.baseUrl}\"/>".getBytes("UTF-8"), CONTENT_TYPE);
+
+		WadlDocument document = template.prepare("http://host");
+
+		assertNotNull(document.getGzippedContent());
+		assertSame(document, template.render("http://host"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedBaseUrlIsEvicted() throws Exception {
+		WadlDocumentTemplate template = WadlDocumentTemplate.create(
+				"<resources base=\"${wadl.baseUrl}\"/>".getBytes("UTF-8"), CONTENT_TYPE);
+		WadlDocument document = template.prepare("http://live");
+
+		for (int i = 0; i < 100; i++) {
+			template.render("http://host" + i);
+			assertSame(document, template.render("http://live"));
+		}
+
+		// hosts seen after the cache filled up are still cached
+		assertNotNull(template.render("http://host99").getGzippedContent());
+		assertNull(template.render("http://host0").getGzippedContent());
+	}
+
+	@Test
+	public void testRenderReplacesAllPlaceholders() throws Exception {
+		WadlDocumentTemplate template = WadlDocumentTemplate.create("${wadl.baseUrl}|${wadl.baseUrl}".getBytes("UTF-8"),
+				CONTENT_TYPE);
+
+		assertEquals("x|x", new String(template.splice("x"), "UTF-8"));
+	}
+
+	@Test
+	public void testRenderWithoutPlaceholder() throws Exception {
+		byte[] content = "<resources base=\"http://fixed\"/>".getBytes("UTF-8");
+		WadlDocumentTemplate template = WadlDocumentTemplate.create(content, CONTENT_TYPE);
+
+		assertFalse(template.hasPlaceholder());
+		assertSame(template.render("http://a"), template.render("http://b"));
+		assertSame(content, template.render("http://a").getContent());
+	}
+
+	@Test
+	public void testFingerprintIgnoresBaseUrl() throws Exception {
+		byte[] content = "<resources base=\"${wadl.baseUrl}\"/>".getBytes("UTF-8");
+		WadlDocumentTemplate template = WadlDocumentTemplate.create(content, CONTENT_TYPE);
+
+		assertEquals(64, template.getFingerprint().length());
+		assertEquals(WadlDocumentTemplate.create(content.clone(), CONTENT_TYPE).getFingerprint(),
+				template.getFingerprint());
+		assertFalse(template.getFingerprint().equals(
+				WadlDocumentTemplate.create("<resources/>".getBytes("UTF-8"), CONTENT_TYPE).getFingerprint()));
+	}
+
+	@Test
+	public void testRenderJsonEscapesForJson() throws Exception {
+		WadlDocumentTemplate template = WadlDocumentTemplate.createJson(
+				"{\"base\":\"${wadl.baseUrl}\"}".getBytes("UTF-8"), "application/json");
+
+		assertEquals("{\"base\":\"http://host/a\\\"&b\"}",
+				new String(template.render("http://host/a\"&b").getContent(), "UTF-8"));
+	}
+}
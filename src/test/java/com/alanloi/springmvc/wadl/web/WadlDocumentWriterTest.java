@@ -0,0 +1,119 @@
+package com.alanloi.springmvc.wadl.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests for WadlDocumentWriter.
+ *
+ * @author Alan Loi
+ */
+public class WadlDocumentWriterTest {
+
+	private static final byte[] CONTENT = "<application/>".getBytes();
+
+	private WadlDocument document;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@Before
+	public void setUp() {
+		this.document = WadlDocument.create(CONTENT, "application/xml");
+		this.request = new MockHttpServletRequest("GET", "/wadl");
+		this.response = new MockHttpServletResponse();
+	}
+
+	@Test
+	public void testWritePlain() throws IOException {
+		WadlDocumentWriter.write(this.document, this.request, this.response);
+
+		assertEquals(HttpServletResponse.SC_OK, this.response.getStatus());
+		assertEquals(this.document.getEtag(), this.response.getHeader("ETag"));
+		assertNull(this.response.getHeader("Content-Encoding"));
+		assertArrayEquals(CONTENT, this.response.getContentAsByteArray());
+	}
+
+	@Test
+	public void testWriteGzip() throws IOException {
+		this.request.addHeader("Accept-Encoding", "deflate, gzip");
+
+		WadlDocumentWriter.write(this.document, this.request, this.response);
+
+		assertEquals("gzip", this.response.getHeader("Content-Encoding"));
+		assertEquals(this.document.getGzipEtag(), this.response.getHeader("ETag"));
+		assertArrayEquals(CONTENT, gunzip(this.response.getContentAsByteArray()));
+	}
+
+	@Test
+	public void testWriteNotModified() throws IOException {
+		this.request.addHeader("If-None-Match", "\"other\", " + this.document.getEtag());
+
+		WadlDocumentWriter.write(this.document, this.request, this.response);
+
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, this.response.getStatus());
+		assertEquals(0, this.response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void testWriteModified() throws IOException {
+		this.request.addHeader("If-None-Match", "\"other\"");
+
+		WadlDocumentWriter.write(this.document, this.request, this.response);
+
+		assertEquals(HttpServletResponse.SC_OK, this.response.getStatus());
+		assertArrayEquals(CONTENT, this.response.getContentAsByteArray());
+	}
+
+	@Test
+	public void testWriteGzipWithIdentityEtag() throws IOException {
+		this.request.addHeader("Accept-Encoding", "gzip");
+		this.request.addHeader("If-None-Match", this.document.getEtag());
+
+		WadlDocumentWriter.write(this.document, this.request, this.response);
+
+		assertEquals(HttpServletResponse.SC_OK, this.response.getStatus());
+		assertEquals(this.document.getGzipEtag(), this.response.getHeader("ETag"));
+		assertArrayEquals(CONTENT, gunzip(this.response.getContentAsByteArray()));
+	}
+
+	@Test
+	public void testAcceptsGzip() {
+		assertTrue(WadlDocumentWriter.acceptsGzip("gzip"));
+		assertTrue(WadlDocumentWriter.acceptsGzip("deflate, gzip;q=0.5"));
+		assertTrue(WadlDocumentWriter.acceptsGzip("*"));
+		assertFalse(WadlDocumentWriter.acceptsGzip("gzip;q=0"));
+		assertFalse(WadlDocumentWriter.acceptsGzip("identity"));
+		assertFalse(WadlDocumentWriter.acceptsGzip(null));
+	}
+
+	@Test
+	public void testEtagIsStableForSameContent() {
+		assertEquals(this.document.getEtag(), WadlDocument.create(CONTENT.clone(), "application/xml").getEtag());
+	}
+
+	private static byte[] gunzip(byte[] gzipped) throws IOException {
+		GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,210 @@
+package com.alanloi.springmvc.wadl.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+import com.alanloi.springmvc.wadl.CachingWadlGenerator;
+import com.alanloi.springmvc.wadl.WadlGenerator;
+import com.alanloi.springmvc.wadl.mapper.JsonBasedWadlTypeMapper;
+import com.alanloi.springmvc.wadl.mapper.RegistryWadlTypeMapper;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+
+/**
+ * Tests for WadlSnapshotStore.
+ *
+ * @author Alan Loi
+ */
+public class WadlSnapshotStoreTest {
+
+	private static final String FINGERPRINT = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+	private static final String OTHER_FINGERPRINT = "fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210";
+
+	private static final byte[] CONTENT = ("<application base=\"" + WadlDocumentTemplate.BASE_URL_PLACEHOLDER
+			+ "\"/>").getBytes();
+
+	private File directory;
+	private WadlSnapshotStore store;
+	private WadlDocumentTemplate template;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = File.createTempFile("wadl-snapshots.", ".tmp");
+		this.directory.delete();
+
+		this.store = new WadlSnapshotStore(this.directory);
+		this.template = WadlDocumentTemplate.create(CONTENT, WadlDocumentService.WADL_CONTENT_TYPE);
+		this.request = new MockHttpServletRequest("GET", "/wadl");
+	}
+
+	@After
+	public void tearDown() {
+		delete(this.directory);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		String baseUrl = WadlGenerator.getBaseUrl(this.request);
+
+		assertNull(this.store.load(FINGERPRINT));
+		this.store.save(FINGERPRINT, this.template, Arrays.asList(baseUrl));
+
+		WadlSnapshot snapshot = this.store.load(FINGERPRINT);
+		assertNotNull(snapshot);
+		assertEquals(FINGERPRINT, snapshot.getFingerprint());
+		assertArrayEquals(CONTENT, snapshot.getDocumentTemplate().getContent());
+		assertTrue(snapshot.isStored(baseUrl));
+		assertFalse(snapshot.isStored("http://other:8080"));
+	}
+
+	@Test
+	public void testWriteStoredDocument() throws IOException {
+		String baseUrl = WadlGenerator.getBaseUrl(this.request);
+		WadlSnapshot snapshot = this.store.save(FINGERPRINT, this.template, Arrays.asList(baseUrl));
+
+		// the same response as from memory
+		WadlDocument document = this.template.render(baseUrl);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		snapshot.write(this.request, response);
+
+		assertEquals(document.getEtag(), response.getHeader("ETag"));
+		assertArrayEquals(document.getContent(), response.getContentAsByteArray());
+
+		this.request.addHeader("Accept-Encoding", "gzip");
+		response = new MockHttpServletResponse();
+		snapshot.write(this.request, response);
+
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals(document.getGzipEtag(), response.getHeader("ETag"));
+		assertArrayEquals(document.getGzippedContent(), response.getContentAsByteArray());
+
+		this.request.addHeader("If-None-Match", document.getGzipEtag());
+		response = new MockHttpServletResponse();
+		snapshot.write(this.request, response);
+
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+	}
+
+	@Test
+	public void testWriteOtherBaseUrl() throws IOException {
+		WadlSnapshot snapshot = this.store.save(FINGERPRINT, this.template, Arrays.asList("http://other:8080"));
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		snapshot.write(this.request, response);
+
+		WadlDocument document = this.template.render(WadlGenerator.getBaseUrl(this.request));
+		assertEquals(document.getEtag(), response.getHeader("ETag"));
+		assertArrayEquals(document.getContent(), response.getContentAsByteArray());
+	}
+
+	@Test
+	public void testSaveKeepsSnapshotsOfOtherNodes() throws IOException {
+		String baseUrl = WadlGenerator.getBaseUrl(this.request);
+
+		// a node of the previous build, and one of the new build sharing the directory
+		WadlSnapshot previous = this.store.save(OTHER_FINGERPRINT, this.template, Arrays.asList(baseUrl));
+		new WadlSnapshotStore(this.directory).save(FINGERPRINT, this.template, Arrays.asList(baseUrl));
+
+		assertNotNull(this.store.load(OTHER_FINGERPRINT));
+		assertTrue(previous.isStored(baseUrl));
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		previous.write(this.request, response);
+		assertArrayEquals(this.template.render(baseUrl).getContent(), response.getContentAsByteArray());
+	}
+
+	@Test
+	public void testSaveDeletesExpiredSnapshots() throws IOException {
+		this.store.save(OTHER_FINGERPRINT, this.template, Arrays.<String> asList());
+		File other = new File(this.directory, OTHER_FINGERPRINT);
+		assertTrue(other.setLastModified(System.currentTimeMillis() - this.store.getRetentionMillis() - 60000));
+
+		this.store.save(FINGERPRINT, this.template, Arrays.<String> asList());
+
+		assertNull(this.store.load(OTHER_FINGERPRINT));
+		assertNotNull(this.store.load(FINGERPRINT));
+		assertEquals(1, this.directory.listFiles().length);
+	}
+
+	@Test
+	public void testWriteRemovedDocument() throws IOException {
+		String baseUrl = WadlGenerator.getBaseUrl(this.request);
+		WadlSnapshot snapshot = this.store.save(FINGERPRINT, this.template, Arrays.asList(baseUrl));
+
+		// e.g. by a node sharing the directory
+		delete(new File(this.directory, FINGERPRINT));
+
+		this.request.addHeader("Accept-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		snapshot.write(this.request, response);
+
+		WadlDocument document = this.template.render(baseUrl);
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		assertEquals(document.getEtag(), response.getHeader("ETag"));
+		assertArrayEquals(document.getContent(), response.getContentAsByteArray());
+	}
+
+	@Test
+	public void testFingerprint() {
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+		String fingerprint = this.store.getFingerprint(generator);
+
+		assertEquals(64, fingerprint.length());
+		assertEquals(fingerprint, this.store.getFingerprint(new CachingWadlGenerator(SampleHandlerMappings.create(),
+				"test", null)));
+
+		// with a request mapping less
+		Map<RequestMappingInfo, HandlerMethod> handlerMethods = SampleHandlerMappings.createHandlerMethods();
+		Iterator<RequestMappingInfo> it = handlerMethods.keySet().iterator();
+		it.next();
+		it.remove();
+
+		assertFalse(fingerprint.equals(this.store.getFingerprint(new CachingWadlGenerator(SampleHandlerMappings
+				.create(handlerMethods), "test", null))));
+	}
+
+	@Test
+	public void testFingerprintChangesWithTypeBindings() {
+		RegistryWadlTypeMapper wadlTypeMapper = new RegistryWadlTypeMapper(
+				new JsonBasedWadlTypeMapper().getJavaWadlTypeBindings());
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null,
+				wadlTypeMapper);
+		String fingerprint = this.store.getFingerprint(generator);
+
+		wadlTypeMapper.register(Long.class, new QName("http://example.com/types", "id"));
+
+		assertFalse(fingerprint.equals(this.store.getFingerprint(generator)));
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,236 @@
+package com.alanloi.springmvc.wadl.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.OrderComparator;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.alanloi.springmvc.wadl.CachingWadlGenerator;
+import com.alanloi.springmvc.wadl.sample.SampleHandlerMappings;
+
+/**
+ * Tests for WadlWarmUp.
+ *
+ * @author Alan Loi
+ */
+public class WadlWarmUpTest {
+
+	private static final Executor SAME_THREAD = new Executor() {
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	@Test
+	public void testWarmUpOnContextRefreshed() {
+		WadlDocumentService service = new WadlDocumentService(new CachingWadlGenerator(
+				SampleHandlerMappings.create(), "test", null));
+
+		WadlWarmUp warmUp = new WadlWarmUp(service);
+		warmUp.setExecutor(SAME_THREAD);
+		assertEquals(WadlWarmUp.Status.NOT_STARTED, warmUp.getStatus());
+
+		warmUp.onApplicationEvent(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+
+		assertTrue(warmUp.isReady());
+		warmUp.checkReady();
+		assertSame(service.getDocumentTemplate(), service.getDocumentTemplate());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWarmUpFailure() {
+		RequestMappingHandlerMapping handlerMapping = mock(RequestMappingHandlerMapping.class);
+		when(handlerMapping.getHandlerMethods()).thenThrow(new IllegalStateException("broken"));
+
+		WadlWarmUp warmUp = new WadlWarmUp(new WadlDocumentService(new CachingWadlGenerator(handlerMapping,
+				"test", Collections.<Class<?>> emptyList())));
+		warmUp.setExecutor(SAME_THREAD);
+		warmUp.onApplicationEvent(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+
+		assertFalse(warmUp.isReady());
+		assertEquals(WadlWarmUp.Status.FAILED, warmUp.getStatus());
+		warmUp.checkReady();
+	}
+
+	@Test
+	public void testIndexedInBackground() {
+		AtomicInteger lookups = new AtomicInteger();
+		CachingWadlGenerator generator = new CachingWadlGenerator(createHandlerMapping(lookups), "test", null);
+		generator.setIndexOnRefresh(false);
+
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		WadlWarmUp warmUp = new WadlWarmUp(new WadlDocumentService(generator));
+		warmUp.setExecutor(new Executor() {
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+
+		refresh(generator, warmUp);
+		assertEquals(0, lookups.get());
+		assertEquals(WadlWarmUp.Status.WARMING_UP, warmUp.getStatus());
+
+		tasks.get(0).run();
+		assertEquals(1, lookups.get());
+		assertTrue(warmUp.isReady());
+	}
+
+	@Test
+	public void testDoesNotReconfigureGenerator() {
+		CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+		WadlWarmUp warmUp = new WadlWarmUp(new WadlDocumentService(generator));
+		warmUp.setExecutor(SAME_THREAD);
+
+		refresh(generator, warmUp);
+
+		assertTrue(generator.isIndexOnRefresh());
+		assertTrue(warmUp.isReady());
+	}
+
+	@Test
+	public void testGeneratorInvalidatesBeforeWarmUp() {
+		AtomicInteger lookups = new AtomicInteger();
+		CachingWadlGenerator generator = new CachingWadlGenerator(createHandlerMapping(lookups), "test", null);
+		WadlWarmUp warmUp = new WadlWarmUp(new WadlDocumentService(generator));
+		warmUp.setExecutor(SAME_THREAD);
+
+		warmUp.warmUp();
+		assertEquals(1, lookups.get());
+
+		// the warm-up generates the new WADL, rather than reading the one from before the refresh
+		refresh(warmUp, generator);
+		assertEquals(2, lookups.get());
+		assertTrue(warmUp.isReady());
+	}
+
+	@Test
+	public void testSnapshotSkipsIndexing() throws IOException {
+		File directory = File.createTempFile("wadl-snapshots.", ".tmp");
+		directory.delete();
+		try {
+			WadlSnapshotStore store = new WadlSnapshotStore(directory);
+
+			CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+			WadlWarmUp warmUp = new WadlWarmUp(new WadlDocumentService(generator));
+			warmUp.setExecutor(SAME_THREAD);
+			warmUp.setSnapshotStore(store);
+			refresh(generator, warmUp);
+			assertTrue(warmUp.isReady());
+
+			// a restart of the same application only fingerprints the request mappings
+			AtomicInteger lookups = new AtomicInteger();
+			generator = new CachingWadlGenerator(createHandlerMapping(lookups), "test", null);
+			generator.setIndexOnRefresh(false);
+			WadlDocumentService service = new WadlDocumentService(generator);
+			warmUp = new WadlWarmUp(service);
+			warmUp.setExecutor(SAME_THREAD);
+			warmUp.setSnapshotStore(store);
+			refresh(generator, warmUp);
+
+			assertTrue(warmUp.isReady());
+			assertNotNull(service.getSnapshot());
+			assertEquals(1, lookups.get());
+		} finally {
+			for (File file : directory.listFiles()) {
+				for (File child : file.listFiles()) {
+					child.delete();
+				}
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void testRefreshDropsSnapshot() throws IOException {
+		File directory = File.createTempFile("wadl-snapshots.", ".tmp");
+		directory.delete();
+		try {
+			WadlSnapshotStore store = new WadlSnapshotStore(directory);
+
+			CachingWadlGenerator generator = new CachingWadlGenerator(SampleHandlerMappings.create(), "test", null);
+			WadlDocumentService service = new WadlDocumentService(generator);
+			final List<Runnable> tasks = new ArrayList<Runnable>();
+			WadlWarmUp warmUp = new WadlWarmUp(service);
+			warmUp.setExecutor(new Executor() {
+				public void execute(Runnable command) {
+					tasks.add(command);
+				}
+			});
+			warmUp.setSnapshotStore(store);
+			warmUp.warmUp();
+			assertNotNull(service.getSnapshot());
+
+			// until the warm-up has run, the refreshed context is served by the generator
+			refresh(generator, warmUp);
+			assertNull(service.getSnapshot());
+			assertEquals(WadlWarmUp.Status.WARMING_UP, warmUp.getStatus());
+
+			tasks.get(0).run();
+			assertNotNull(service.getSnapshot());
+			assertTrue(warmUp.isReady());
+		} finally {
+			for (File file : directory.listFiles()) {
+				for (File child : file.listFiles()) {
+					child.delete();
+				}
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Send a ContextRefreshedEvent to the listeners in the order Spring
+	 * would.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void refresh(ApplicationListener... listeners) {
+		List<ApplicationListener> sorted = new ArrayList<ApplicationListener>(Arrays.asList(listeners));
+		OrderComparator.sort(sorted);
+
+		ContextRefreshedEvent event = new ContextRefreshedEvent(mock(ApplicationContext.class));
+		for (ApplicationListener listener : sorted) {
+			listener.onApplicationEvent(event);
+		}
+	}
+
+	/**
+	 * @return a handler mapping of the sample controllers which counts the
+	 *         lookups of its handler methods
+	 */
+	private static RequestMappingHandlerMapping createHandlerMapping(final AtomicInteger lookups) {
+		final Map<RequestMappingInfo, HandlerMethod> handlerMethods = SampleHandlerMappings.createHandlerMethods();
+
+		return new RequestMappingHandlerMapping() {
+			@Override
+			public Map<RequestMappingInfo, HandlerMethod> getHandlerMethods() {
+				lookups.incrementAndGet();
+				return Collections.unmodifiableMap(handlerMethods);
+			}
+		};
+	}
+}